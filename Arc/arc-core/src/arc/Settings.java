@@ -16,6 +16,12 @@ import java.util.zip.*;
 public class Settings{
     protected final static byte typeBool = 0, typeInt = 1, typeLong = 2, typeFloat = 3, typeString = 4, typeBinary = 5;
     protected final static int maxBackups = 10, minBackupIntervalMs = 1000 * 60 * 2;
+    /** Journal entry operations. */
+    protected final static byte journalPut = 0, journalRemove = 1;
+    /** Journal size below which it's never compacted into the settings file. */
+    protected final static int minJournalCompactSize = 64 * 1024;
+    /** Key of the journal generation in the settings file. It is not part of {@link #values}. */
+    protected final static String journalGenerationKey = "$journalGeneration";
 
     //general state data
     protected Fi dataDirectory;
@@ -30,6 +36,17 @@ public class Settings{
     protected boolean writeCompressed = false;
     private long lastBackupTime;
     protected ExecutorService executor = Threads.executor("Settings Backup", 1);
+    /** If true, saves append changed keys to {@link #getJournalFile()} instead of rewriting every value. */
+    protected boolean journaled = false;
+    /** Keys changed since the last save, only tracked when journaled. */
+    protected ObjectSet<String> changedKeys = new ObjectSet<>();
+    /** Set when the changes can't be journaled, e.g. after {@link #clear()}. */
+    protected boolean fullSaveNeeded;
+    /**
+     * Generation of the settings file, which the journal header has to match to be applied. Every full save writes a new one,
+     * so a journal which was already written into the settings file is never applied again, even if deleting it failed.
+     */
+    protected long journalGeneration;
 
     //IO utility objects
     protected ByteArrayOutputStream byteStream = new ByteArrayOutputStream(32);
@@ -45,6 +62,18 @@ public class Settings{
         this.writeCompressed = compressed;
     }
 
+    /**
+     * Sets whether saves are journaled. Changed keys are appended to a journal file, and only once it grows larger than
+     * the settings file, all values are written into the settings file and the journal is cleared.
+     * A journal left by a crash is always applied when loading, whether this is enabled or not, if it belongs to the loaded settings file.
+     */
+    public synchronized void setJournaled(boolean journaled){
+        this.journaled = journaled;
+        changedKeys.clear();
+        //changes made before were not tracked
+        fullSaveNeeded = true;
+    }
+
     public String getAppName(){
         return appName;
     }
@@ -124,11 +153,13 @@ public class Settings{
     public synchronized void loadValues(){
         //don't load settings files if neither of them exist
         if(!getSettingsFile().exists() && !getBackupSettingsFile().exists()){
+            loadJournal();
             return;
         }
 
         try{
             loadValues(getSettingsFile());
+            loadJournal();
 
             //back up the save file, as the values have now been loaded successfully
             getSettingsFile().copyTo(getBackupSettingsFile());
@@ -144,6 +175,8 @@ public class Settings{
 
                     loadValues(attempt);
                     attempt.copyTo(getSettingsFile());
+                    //only applied if the backup is of the settings file the journal was written for
+                    loadJournal();
 
                     Log.info("Loaded backup settings file successfully!");
 
@@ -172,31 +205,7 @@ public class Settings{
 
                 byte type = stream.readByte();
 
-                switch(type){
-                    case typeBool:
-                        values.put(key, stream.readBoolean());
-                        break;
-                    case typeInt:
-                        values.put(key, stream.readInt());
-                        break;
-                    case typeLong:
-                        values.put(key, stream.readLong());
-                        break;
-                    case typeFloat:
-                        values.put(key, stream.readFloat());
-                        break;
-                    case typeString:
-                        values.put(key, stream.readUTF());
-                        break;
-                    case typeBinary:
-                        int length = stream.readInt();
-                        byte[] bytes = new byte[length];
-                        stream.readFully(bytes);
-                        values.put(key, bytes);
-                        break;
-                    default:
-                        throw new IOException("Unknown key type: " + type);
-                }
+                values.put(key, readValue(stream, type));
             }
             //make sure all data was read - this helps with potential corruption
             int end = stream.read();
@@ -204,40 +213,85 @@ public class Settings{
                 throw new IOException("Trailing settings data; expected EOF, but got: " + end);
             }
         }
+
+        Object generation = values.remove(journalGenerationKey);
+        journalGeneration = generation instanceof Long ? (Long)generation : 0;
+    }
+
+    /** Reads a value of this type, as written by {@link #writeValue}. */
+    protected Object readValue(DataInputStream stream, byte type) throws IOException{
+        switch(type){
+            case typeBool:
+                return stream.readBoolean();
+            case typeInt:
+                return stream.readInt();
+            case typeLong:
+                return stream.readLong();
+            case typeFloat:
+                return stream.readFloat();
+            case typeString:
+                return stream.readUTF();
+            case typeBinary:
+                int length = stream.readInt();
+                byte[] bytes = new byte[length];
+                stream.readFully(bytes);
+                return bytes;
+            default:
+                throw new IOException("Unknown key type: " + type);
+        }
+    }
+
+    /** Writes the type and the value. */
+    protected void writeValue(DataOutputStream stream, Object value) throws IOException{
+        if(value instanceof Boolean){
+            stream.writeByte(typeBool);
+            stream.writeBoolean((Boolean)value);
+        }else if(value instanceof Integer){
+            stream.writeByte(typeInt);
+            stream.writeInt((Integer)value);
+        }else if(value instanceof Long){
+            stream.writeByte(typeLong);
+            stream.writeLong((Long)value);
+        }else if(value instanceof Float){
+            stream.writeByte(typeFloat);
+            stream.writeFloat((Float)value);
+        }else if(value instanceof String){
+            stream.writeByte(typeString);
+            stream.writeUTF((String)value);
+        }else if(value instanceof byte[]){
+            stream.writeByte(typeBinary);
+            stream.writeInt(((byte[])value).length);
+            stream.write((byte[])value);
+        }
     }
 
-    /** Saves all entries from {@link #values} into the correct location. */
+    /** Saves all entries from {@link #values} into the correct location, or appends changed ones to the journal if it's enabled. */
     public synchronized void saveValues(){
+        if(journaled && !fullSaveNeeded && getSettingsFile().exists()){
+            Fi journal = getJournalFile();
+            if(journal.length() < Math.max(minJournalCompactSize, getSettingsFile().length())){
+                saveJournal(journal);
+                return;
+            }
+        }
+
         Fi file = getSettingsFile();
+        //a journal which isn't deleted after this, e.g. because of a crash, must not be applied to this file
+        boolean generational = journaled || getJournalFile().exists();
+        long generation = journalGeneration + 1;
 
         try(DataOutputStream stream = new DataOutputStream(writeCompressed ? new FastDeflaterOutputStream(file.write(false, 8192)) : file.write(false, 8192))){
-            stream.writeInt(values.size());
+            stream.writeInt(values.size() + (generational ? 1 : 0));
 
             for(Map.Entry<String, Object> entry : values.entrySet()){
                 stream.writeUTF(entry.getKey());
 
-                Object value = entry.getValue();
-
-                if(value instanceof Boolean){
-                    stream.writeByte(typeBool);
-                    stream.writeBoolean((Boolean)value);
-                }else if(value instanceof Integer){
-                    stream.writeByte(typeInt);
-                    stream.writeInt((Integer)value);
-                }else if(value instanceof Long){
-                    stream.writeByte(typeLong);
-                    stream.writeLong((Long)value);
-                }else if(value instanceof Float){
-                    stream.writeByte(typeFloat);
-                    stream.writeFloat((Float)value);
-                }else if(value instanceof String){
-                    stream.writeByte(typeString);
-                    stream.writeUTF((String)value);
-                }else if(value instanceof byte[]){
-                    stream.writeByte(typeBinary);
-                    stream.writeInt(((byte[])value).length);
-                    stream.write((byte[])value);
-                }
+                writeValue(stream, entry.getValue());
+            }
+
+            if(generational){
+                stream.writeUTF(journalGenerationKey);
+                writeValue(stream, generation);
             }
 
         }catch(Throwable e){
@@ -246,6 +300,12 @@ public class Settings{
             throw new RuntimeException("Error writing preferences: " + file, e);
         }
 
+        //everything in the journal is in the settings file now
+        if(generational) journalGeneration = generation;
+        getJournalFile().delete();
+        changedKeys.clear();
+        fullSaveNeeded = false;
+
         if(Time.timeSinceMillis(lastBackupTime) > minBackupIntervalMs){
             lastBackupTime = Time.millis();
 
@@ -270,6 +330,113 @@ public class Settings{
         }
     }
 
+    /**
+     * Appends all changed keys to the journal, as one entry of {@code int length, int crc32, changes}.
+     * A new journal starts with the {@link #journalGeneration} of the settings file as a {@code long}.
+     */
+    protected void saveJournal(Fi journal){
+        if(changedKeys.isEmpty()) return;
+
+        byteStream.reset();
+        try(DataOutputStream stream = new DataOutputStream(byteStream)){
+            stream.writeInt(changedKeys.size);
+            for(String key : changedKeys){
+                Object value = values.get(key);
+                if(value == null){
+                    stream.writeByte(journalRemove);
+                    stream.writeUTF(key);
+                }else{
+                    stream.writeByte(journalPut);
+                    stream.writeUTF(key);
+                    writeValue(stream, value);
+                }
+            }
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+
+        byte[] changes = byteStream.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(changes, 0, changes.length);
+        boolean header = journal.length() == 0;
+        try(DataOutputStream stream = new DataOutputStream(new FileOutputStream(journal.file(), true))){
+            //one write, so a crash can only leave the last entry incomplete
+            ByteArrayOutputStream entry = new ByteArrayOutputStream(changes.length + 16);
+            DataOutputStream entryStream = new DataOutputStream(entry);
+            if(header) entryStream.writeLong(journalGeneration);
+            entryStream.writeInt(changes.length);
+            entryStream.writeInt((int)crc.getValue());
+            entryStream.write(changes);
+            entry.writeTo(stream);
+        }catch(Throwable e){
+            throw new RuntimeException("Error writing preferences journal: " + journal, e);
+        }
+        changedKeys.clear();
+    }
+
+    /**
+     * Applies all complete entries of the journal to {@link #values}, and cuts off an incomplete one left by a crash.
+     * A journal of another generation than the loaded settings file is deleted instead.
+     */
+    protected void loadJournal(){
+        Fi journal = getJournalFile();
+        if(!journal.exists()) return;
+
+        byte[] bytes = journal.readBytes();
+        long generation = bytes.length < 8 ? -1 : (long)readInt(bytes, 0) << 32 | (readInt(bytes, 4) & 0xffffffffL);
+        if(generation != journalGeneration){
+            //e.g. a crash after the settings file was rewritten, but before the journal was deleted; the settings file has everything in it
+            Log.warn("Settings journal is of generation @, but the settings file of generation @. Ignoring it.", generation, journalGeneration);
+            journal.delete();
+            return;
+        }
+
+        int offset = 8, entries = 0;
+        CRC32 crc = new CRC32();
+        try{
+            while(offset + 8 <= bytes.length){
+                int length = readInt(bytes, offset), sum = readInt(bytes, offset + 4);
+                if(length < 0 || offset + 8 + length > bytes.length) break;
+                crc.reset();
+                crc.update(bytes, offset + 8, length);
+                if((int)crc.getValue() != sum) break;
+
+                DataInputStream stream = new DataInputStream(new ByteArrayInputStream(bytes, offset + 8, length));
+                int amount = stream.readInt();
+                for(int i = 0; i < amount; i++){
+                    byte op = stream.readByte();
+                    String key = stream.readUTF();
+                    if(op == journalRemove){
+                        values.remove(key);
+                    }else{
+                        values.put(key, readValue(stream, stream.readByte()));
+                    }
+                }
+                offset += 8 + length;
+                entries++;
+            }
+        }catch(IOException e){
+            Log.err("Failed to read settings journal entry at byte " + offset, e);
+        }
+
+        if(offset != bytes.length){
+            Log.warn("Settings journal has an incomplete entry at byte @, dropping the last @ bytes.", offset, bytes.length - offset);
+            journal.writeBytes(bytes, 0, offset, false);
+        }
+        if(entries > 0){
+            Log.info("Applied @ settings journal entries.", entries);
+        }
+    }
+
+    private static int readInt(byte[] bytes, int offset){
+        return (bytes[offset] & 0xff) << 24 | (bytes[offset + 1] & 0xff) << 16 | (bytes[offset + 2] & 0xff) << 8 | (bytes[offset + 3] & 0xff);
+    }
+
+    /** Returns the file changes are appended to when journaled. */
+    public Fi getJournalFile(){
+        return getDataDirectory().child("settings_journal.bin");
+    }
+
     /** Returns the file used for writing settings to. Not available on all platforms! */
     public Fi getSettingsFile(){
         return getDataDirectory().child("settings.bin");
@@ -306,6 +473,7 @@ public class Settings{
     /** Clears all preference values. */
     public synchronized void clear(){
         values.clear();
+        fullSaveNeeded = true;
     }
 
     public synchronized Object getDefault(String name){
@@ -427,6 +595,7 @@ public class Settings{
         if(object instanceof Float || object instanceof Integer || object instanceof Boolean || object instanceof Long
         || object instanceof String || object instanceof byte[]){
             values.put(name, object);
+            if(journaled) changedKeys.add(name);
             modified = true;
         }else{
             throw new IllegalArgumentException("Invalid object stored: " + (object == null ? null : object.getClass()) + ".");
@@ -435,6 +604,7 @@ public class Settings{
 
     public synchronized void remove(String name){
         values.remove(name);
+        if(journaled) changedKeys.add(name);
         modified = true;
     }
 
@@ -0,0 +1,120 @@
+package utils;
+
+import arc.*;
+import arc.files.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class SettingsJournalTest{
+    Fi dir;
+
+    @Before
+    public void setup(){
+        dir = Fi.tempDirectory("settings");
+    }
+
+    @After
+    public void cleanup(){
+        dir.deleteDirectory();
+    }
+
+    Settings create(){
+        Settings settings = new Settings();
+        settings.setDataDirectory(dir);
+        settings.setJournaled(true);
+        settings.load();
+        return settings;
+    }
+
+    @Test
+    public void appendsChanges(){
+        Settings settings = create();
+        for(int i = 0; i < 100; i++){
+            settings.put("key" + i, i);
+        }
+        settings.forceSave();
+        long size = settings.getSettingsFile().length();
+        assertFalse(settings.getJournalFile().exists());
+
+        settings.put("key5", "five");
+        settings.remove("key6");
+        settings.forceSave();
+        assertEquals("settings file is not rewritten", size, settings.getSettingsFile().length());
+        assertTrue(settings.getJournalFile().exists());
+
+        Settings loaded = create();
+        assertEquals("five", loaded.getString("key5"));
+        assertFalse(loaded.has("key6"));
+        assertEquals(7, loaded.getInt("key7"));
+        assertEquals(99, loaded.keySize());
+    }
+
+    @Test
+    public void incompleteEntry(){
+        Settings settings = create();
+        settings.put("a", 1);
+        settings.forceSave();
+        settings.put("a", 2);
+        settings.forceSave();
+
+        //a crash while appending the next entry
+        Fi journal = settings.getJournalFile();
+        long length = journal.length();
+        journal.writeBytes(new byte[]{0, 0, 0, 40, 1, 2, 3}, true);
+
+        Settings loaded = create();
+        assertEquals(2, loaded.getInt("a"));
+        assertEquals("incomplete entry is cut off", length, journal.length());
+    }
+
+    @Test
+    public void compacts(){
+        Settings settings = create();
+        settings.put("a", 1);
+        settings.forceSave();
+
+        settings.put("blob", new byte[100 * 1024]);
+        settings.forceSave();
+        assertTrue(settings.getJournalFile().exists());
+
+        //journal is larger than the settings file now
+        settings.put("a", 2);
+        settings.forceSave();
+        assertFalse(settings.getJournalFile().exists());
+
+        Settings loaded = create();
+        assertEquals(2, loaded.getInt("a"));
+        assertEquals(100 * 1024, loaded.getBytes("blob").length);
+    }
+
+    @Test
+    public void crashBeforeJournalDeleted(){
+        Settings settings = create();
+        settings.put("a", 1);
+        settings.forceSave();
+        settings.put("a", 2);
+        settings.put("blob", new byte[100 * 1024]);
+        settings.forceSave();
+        byte[] journal = settings.getJournalFile().readBytes();
+
+        //compacts with a change that isn't in the journal, then crashes before the journal is deleted
+        settings.put("a", 3);
+        settings.remove("blob");
+        settings.forceSave();
+        assertFalse(settings.getJournalFile().exists());
+        settings.getJournalFile().writeBytes(journal);
+
+        Settings loaded = create();
+        assertEquals("journal is not applied over newer values", 3, loaded.getInt("a"));
+        assertFalse(loaded.has("blob"));
+        assertFalse("outdated journal is deleted", loaded.getJournalFile().exists());
+
+        //and journaling works as before afterwards
+        loaded.forceSave();
+        loaded.put("a", 4);
+        loaded.forceSave();
+        assertTrue(loaded.getJournalFile().exists());
+        assertEquals(4, create().getInt("a"));
+    }
+}
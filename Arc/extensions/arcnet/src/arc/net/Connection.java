@@ -21,7 +21,7 @@ public class Connection{
     EndPoint endPoint;
     TcpConnection tcp;
     UdpConnection udp;
-    InetSocketAddress udpRemoteAddress;
+    volatile InetSocketAddress udpRemoteAddress;
     private NetListener[] listeners = {};
     private final Object listenerLock = new Object();
     private int lastPingID;
@@ -23,7 +23,7 @@ public class Server implements EndPoint{
     private int emptySelects;
     private ServerSocketChannel serverChannel;
     private UdpConnection udp;
-    private Connection[] connections = {};
+    private volatile Connection[] connections = {};
     private ObjectMap<InetSocketAddress, Connection> udpAddressToConnection = new ObjectMap<>();
     private IntMap<Connection> pendingConnections = new IntMap<>();
     NetListener[] listeners = {};
@@ -36,6 +36,11 @@ public class Server implements EndPoint{
     protected DiscoveryReceiver discoveryReceiver;
     protected ServerDiscoveryHandler discoveryHandler;
     private ServerConnectFilter connectFilter;
+    /** Guards {@link #connections}, {@link #pendingConnections} and {@link #udpAddressToConnection}, which selector threads modify too. */
+    private final Object connectionLock = new Object();
+    private int selectorThreads = 1;
+    private SelectorThread[] selectorWorkers = {};
+    private int nextSelector;
 
     private NetListener dispatchListener = new NetListener(){
         public void connected(Connection connection){
@@ -123,6 +128,16 @@ public class Server implements EndPoint{
         return connectFilter;
     }
 
+    /**
+     * Sets the amount of threads which read and write TCP connections. Takes effect on the next bind.
+     * With 1 (the default), everything happens in {@link #update(int)}. Otherwise, each accepted connection is assigned to one of
+     * this many selector threads, which do all TCP reads and socket writes for it, so its received callbacks stay ordered.
+     * Accepting, UDP, keep alive and timeouts stay in {@link #update(int)}.
+     */
+    public void setSelectorThreads(int threads){
+        selectorThreads = Math.max(threads, 1);
+    }
+
     /**
      * Opens a TCP only server.
      * @throws IOException if the server could not be opened.
@@ -164,6 +179,13 @@ public class Server implements EndPoint{
                     discoveryReceiver = new DiscoveryReceiver(multicastPort);
                     discoveryReceiver.start();
                 }
+
+                if(selectorThreads > 1){
+                    selectorWorkers = new SelectorThread[selectorThreads];
+                    for(int i = 0; i < selectorThreads; i++){
+                        selectorWorkers[i] = new SelectorThread(i);
+                    }
+                }
             }catch(IOException ex){
                 close();
                 throw ex;
@@ -218,30 +240,7 @@ public class Server implements EndPoint{
 
                         if(fromConnection != null){ // Must be a TCP read or
                             // write operation.
-                            if(udp != null && fromConnection.udpRemoteAddress == null){
-                                fromConnection.close(DcReason.error);
-                                continue;
-                            }
-                            if((ops & SelectionKey.OP_READ) == SelectionKey.OP_READ){
-                                try{
-                                    while(true){
-                                        Object object = fromConnection.tcp.readObject();
-                                        if(object == null)
-                                            break;
-                                        fromConnection.notifyReceived(object);
-                                    }
-                                }catch(IOException | ArcNetException ex){
-                                    ArcNet.handleError(new ArcNetException("Error reading TCP from connection: " + fromConnection, ex));
-                                    fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
-                                }
-                            }
-                            if((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE){
-                                try{
-                                    fromConnection.tcp.writeOperation();
-                                }catch(IOException ex){
-                                    fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
-                                }
-                            }
+                            tcpOperation(fromConnection, ops, udp);
                             continue;
                         }
 
@@ -274,7 +273,9 @@ public class Server implements EndPoint{
                         if(fromAddress == null)
                             continue;
 
-                        fromConnection = udpAddressToConnection.get(fromAddress);
+                        synchronized(connectionLock){
+                            fromConnection = udpAddressToConnection.get(fromAddress);
+                        }
 
                         Object object;
                         try{
@@ -290,14 +291,24 @@ public class Server implements EndPoint{
                                 // reply over TCP with a RegisterUDP to indicate
                                 // success.
                                 int fromConnectionID = ((RegisterUDP)object).connectionID;
-                                Connection connection = pendingConnections
-                                .remove(fromConnectionID);
+                                Connection connection;
+                                synchronized(connectionLock){
+                                    connection = pendingConnections.remove(fromConnectionID);
+                                }
                                 if(connection != null){
                                     if(connection.udpRemoteAddress != null) continue;
                                     connection.udpRemoteAddress = fromAddress;
                                     addConnection(connection);
-                                    connection.sendTCP(new RegisterUDP());
-                                    connection.notifyConnected();
+                                    if(selectorWorkers.length > 0){
+                                        // Notify before replying: the client only sends
+                                        // once registered, and a selector thread may
+                                        // read the channel meanwhile.
+                                        connection.notifyConnected();
+                                        connection.sendTCP(new RegisterUDP());
+                                    }else{
+                                        connection.sendTCP(new RegisterUDP());
+                                        connection.notifyConnected();
+                                    }
                                     continue;
                                 }
                                 continue;
@@ -339,6 +350,34 @@ public class Server implements EndPoint{
         }
     }
 
+    /** Reads and writes a TCP connection. Called by the thread whose selector the connection is registered with. */
+    private void tcpOperation(Connection fromConnection, int ops, UdpConnection udp){
+        if(udp != null && fromConnection.udpRemoteAddress == null){
+            fromConnection.close(DcReason.error);
+            return;
+        }
+        if((ops & SelectionKey.OP_READ) == SelectionKey.OP_READ){
+            try{
+                while(true){
+                    Object object = fromConnection.tcp.readObject();
+                    if(object == null)
+                        break;
+                    fromConnection.notifyReceived(object);
+                }
+            }catch(IOException | ArcNetException ex){
+                ArcNet.handleError(new ArcNetException("Error reading TCP from connection: " + fromConnection, ex));
+                fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
+            }
+        }
+        if((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE){
+            try{
+                fromConnection.tcp.writeOperation();
+            }catch(IOException ex){
+                fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
+            }
+        }
+    }
+
     private void keepAlive(){
         long time = System.currentTimeMillis();
         Connection[] connections = this.connections;
@@ -389,36 +428,65 @@ public class Server implements EndPoint{
         if(udp != null)
             connection.udp = udp;
         try{
-            SelectionKey selectionKey = connection.tcp.accept(selector, socketChannel);
-            selectionKey.attach(connection);
-
             int id = generateId();
             connection.id = id;
             connection.setConnected(true);
             connection.addListener(dispatchListener);
 
-            if(udp == null)
-                addConnection(connection);
-            else
-                pendingConnections.put(id, connection);
-
-            RegisterTCP registerConnection = new RegisterTCP();
-            registerConnection.connectionID = id;
-            connection.sendTCP(registerConnection);
-
-            if(udp == null)
-                connection.notifyConnected();
+            if(selectorWorkers.length > 0){
+                SelectorThread worker = selectorWorkers[nextSelector++ % selectorWorkers.length];
+                // The worker can't select the channel until the connection is
+                // registered and the listeners were notified, otherwise the
+                // first packets could be received before notifyConnected().
+                synchronized(worker.registerLock){
+                    worker.register(connection, socketChannel);
+                    registerConnection(connection, udp, true);
+                }
+            }else{
+                SelectionKey selectionKey = connection.tcp.accept(selector, socketChannel);
+                selectionKey.attach(connection);
+                registerConnection(connection, udp, false);
+            }
         }catch(IOException ex){
             connection.close(DcReason.error);
         }
     }
 
+    /**
+     * @param notifyFirst whether to notify the listeners of a TCP only connection before sending RegisterTCP, for selector threads,
+     * which may read the channel while the accept thread is still here.
+     */
+    private void registerConnection(Connection connection, UdpConnection udp, boolean notifyFirst){
+        if(udp == null){
+            addConnection(connection);
+        }else{
+            synchronized(connectionLock){
+                pendingConnections.put(connection.id, connection);
+            }
+        }
+
+        if(udp == null && notifyFirst){
+            connection.notifyConnected();
+            // A listener may have refused the connection.
+            if(!connection.isConnected) return;
+        }
+
+        RegisterTCP registerConnection = new RegisterTCP();
+        registerConnection.connectionID = connection.id;
+        connection.sendTCP(registerConnection);
+
+        if(udp == null && !notifyFirst)
+            connection.notifyConnected();
+    }
+
     private int generateId(){
         int[] id = {0}; //java lambda as just amazing aren't they????
         Rand rand = new Rand(); //not really concerned about allocating an object with two longs
-        do{
-            id[0] = rand.nextInt();
-        }while(pendingConnections.containsKey(id[0]) || Structs.contains(connections, c -> c.id == id[0]));
+        synchronized(connectionLock){
+            do{
+                id[0] = rand.nextInt();
+            }while(pendingConnections.containsKey(id[0]) || Structs.contains(connections, c -> c.id == id[0]));
+        }
         return id[0];
     }
 
@@ -431,24 +499,28 @@ public class Server implements EndPoint{
     }
 
     private void addConnection(Connection connection){
-        Connection[] newConnections = new Connection[connections.length + 1];
-        newConnections[0] = connection;
-        System.arraycopy(connections, 0, newConnections, 1, connections.length);
-        connections = newConnections;
-
-        if(connection.udpRemoteAddress != null){
-            udpAddressToConnection.put(connection.udpRemoteAddress, connection);
+        synchronized(connectionLock){
+            Connection[] newConnections = new Connection[connections.length + 1];
+            newConnections[0] = connection;
+            System.arraycopy(connections, 0, newConnections, 1, connections.length);
+            connections = newConnections;
+
+            if(connection.udpRemoteAddress != null){
+                udpAddressToConnection.put(connection.udpRemoteAddress, connection);
+            }
         }
     }
 
     void removeConnection(Connection connection){
-        ArrayList<Connection> temp = new ArrayList<>(Arrays.asList(connections));
-        temp.remove(connection);
-        connections = temp.toArray(new Connection[0]);
-
-        pendingConnections.remove(connection.id);
-        if(connection.udpRemoteAddress != null){
-            udpAddressToConnection.remove(connection.udpRemoteAddress);
+        synchronized(connectionLock){
+            ArrayList<Connection> temp = new ArrayList<>(Arrays.asList(connections));
+            temp.remove(connection);
+            connections = temp.toArray(new Connection[0]);
+
+            pendingConnections.remove(connection.id);
+            if(connection.udpRemoteAddress != null){
+                udpAddressToConnection.remove(connection.udpRemoteAddress);
+            }
         }
     }
 
@@ -574,6 +646,11 @@ public class Server implements EndPoint{
             discoveryReceiver = null;
         }
 
+        for(SelectorThread worker : selectorWorkers){
+            worker.stop();
+        }
+        selectorWorkers = new SelectorThread[0];
+
         UdpConnection udp = this.udp;
         if(udp != null){
             udp.close();
@@ -658,6 +735,81 @@ public class Server implements EndPoint{
         }
     }
 
+    /** Selects the TCP channels of a subset of the connections. See {@link #setSelectorThreads(int)}. */
+    class SelectorThread implements Runnable{
+        final Selector selector;
+        /** Held while registering a channel, so the thread doesn't block in select meanwhile. */
+        final Object registerLock = new Object();
+        final Thread thread;
+        volatile boolean running = true;
+        int emptySelects;
+
+        SelectorThread(int index) throws IOException{
+            selector = Selector.open();
+            thread = Threads.daemon("Server Selector " + index, this);
+        }
+
+        void register(Connection connection, SocketChannel socketChannel) throws IOException{
+            synchronized(registerLock){
+                selector.wakeup();
+                SelectionKey selectionKey = connection.tcp.accept(selector, socketChannel);
+                selectionKey.attach(connection);
+            }
+        }
+
+        void stop(){
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run(){
+            while(running){
+                try{
+                    select();
+                }catch(IOException ex){
+                    ArcNet.handleError(ex);
+                }
+            }
+            try{
+                selector.close();
+            }catch(IOException ignored){
+            }
+        }
+
+        void select() throws IOException{
+            synchronized(registerLock){ // Blocks to avoid a select while a channel is being registered.
+            }
+            long startTime = System.currentTimeMillis();
+            if(selector.select(250) == 0){
+                //same as in update(), in case NIO keeps returning immediately
+                if(++emptySelects == 100){
+                    emptySelects = 0;
+                    long elapsedTime = System.currentTimeMillis() - startTime;
+                    try{
+                        if(elapsedTime < 25) Thread.sleep(25 - elapsedTime);
+                    }catch(InterruptedException ignored){
+                    }
+                }
+                return;
+            }
+            emptySelects = 0;
+
+            UdpConnection udp = Server.this.udp;
+            Set<SelectionKey> keys = selector.selectedKeys();
+            for(Iterator<SelectionKey> iter = keys.iterator(); iter.hasNext();){
+                SelectionKey selectionKey = iter.next();
+                iter.remove();
+                Connection connection = (Connection)selectionKey.attachment();
+                try{
+                    tcpOperation(connection, selectionKey.readyOps(), udp);
+                }catch(CancelledKeyException ex){
+                    connection.close(DcReason.error);
+                }
+            }
+        }
+    }
+
     public interface ServerConnectFilter{
         boolean accept(String address);
     }
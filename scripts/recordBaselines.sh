@@ -0,0 +1,11 @@
+#!/usr/bin/env bash
+# Records the JMH benchmarks into work/benchmarks/baselines, named <date>-<commit>-<cpu>.json, see the README there.
+# usage: scripts/recordBaselines.sh [benchmark regex] [jmh args...]
+
+commit=$(git rev-parse --short HEAD)
+cpu=$(lscpu 2>/dev/null | sed -n 's/^Model name: *//p' | head -1 | tr -cs 'A-Za-z0-9' '-' | sed 's/-$//')
+name="$(date +%F)-$commit-${cpu:-unknown}.json"
+
+cd work || (echo "work directory not found" && exit 1)
+./gradlew benchmarks:jmh -Pjmh="${1:-.*}" -PjmhArgs="${*:2}" -PjmhResult="baselines/$name" || exit 1
+echo "Recorded work/benchmarks/baselines/$name"
@@ -7,7 +7,10 @@ import mindustry.*;
 import mindustry.game.EventType.*;
 import mindustry.gen.*;
 import mindustry.mod.*;
+import mindustry.net.Administration.*;
 import mindustryX.features.*;
+import mindustryX.features.logic.*;
+import mindustryX.features.net.*;
 
 import java.net.*;
 import java.util.*;
@@ -44,6 +47,10 @@ public class Hooks implements ApplicationListener{
         LogicExt.init();
         CompatDataPatches.init();
         ServerProfileSwitcher.init();
+        DeltaSnapshot.init();
+        InterestFilter.init();
+        WorldDataEncoder.init();
+        registerConfigs(LogicCompiler.enabled, ParallelLogic.enabled, mindustry.entities.SplashBatch.enabled);
         if(!Vars.headless){
             if(AutoUpdate.INSTANCE.getActive())
                 AutoUpdate.INSTANCE.checkUpdate();
@@ -59,6 +66,16 @@ public class Hooks implements ApplicationListener{
         }
     }
 
+    /**
+     * Configs declared by feature classes are only added to {@link Config#all} once their class is initialized, which referencing them here does.
+     * Otherwise, the config command and startup commands can't find them before the feature is used.
+     */
+    private static void registerConfigs(Config... configs){
+        for(Config config : configs){
+            if(!Config.all.contains(config, true)) Config.all.add(config);
+        }
+    }
+
     @SuppressWarnings("unused")//call before arc.util.Http$HttpRequest.block
     public static void onHttp(Http.HttpRequest req){
         if(VarsX.githubMirror.get()){
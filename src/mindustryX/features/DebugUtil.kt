@@ -10,6 +10,7 @@ import mindustry.game.EventType
 import mindustry.gen.Tex
 import mindustry.ui.Styles
 import mindustryX.features.func.exportBlockData
+import mindustryX.features.net.SnapshotStaging
 
 object DebugUtil {
     @JvmField
@@ -51,12 +52,20 @@ object DebugUtil {
         label { "Vertices: $lastVertices" }.fillX().labelAlign(Align.left).touchable(Touchable.disabled).row()
         label { "Texture: $lastSwitchTexture" }.fillX().labelAlign(Align.left).touchable(Touchable.disabled).row()
         label { "Flush: $lastFlushCount" }.fillX().labelAlign(Align.left).touchable(Touchable.disabled).row()
+        label { TickProfiler.summary(8) }.fillX().labelAlign(Align.left).touchable(Touchable.disabled)
+            .visible { TickProfiler.enabled.bool() }.row()
+        label { SnapshotStaging.summary() }.fillX().labelAlign(Align.left).touchable(Touchable.disabled)
+            .visible { Vars.net.client() }.row()
+        label { ReplayController.summary() }.fillX().labelAlign(Align.left).touchable(Touchable.disabled)
+            .visible { ReplayController.recording() }.row()
         image().update { DebugUtil.reset() }.row()
         table { t ->
             t.left().defaults().size(32f).pad(4f)
             t.button("D", Styles.logicTogglet) { renderDebug = !renderDebug }.checked { renderDebug }.tooltip("Render Debug")
             if (!Vars.mobile)
                 t.button("M", Styles.logicTogglet) { Vars.mobile = !Vars.mobile }.checked { Vars.mobile }.tooltip("Mock Mobile")
+            t.button("P", Styles.logicTogglet) { TickProfiler.enabled.set(!TickProfiler.enabled.bool()) }
+                .checked { TickProfiler.enabled.bool() }.tooltip("Tick Profiler")
             t.button("E", Styles.cleart) { exportBlockData() }.tooltip("Export Block Data")
         }.fillX()
     }
@@ -2,8 +2,10 @@ package mindustryX.features;
 
 import arc.*;
 import arc.files.*;
+import arc.func.*;
 import arc.scene.ui.layout.*;
 import arc.util.*;
+import arc.util.io.*;
 import mindustry.*;
 import mindustry.core.*;
 import mindustry.game.*;
@@ -16,6 +18,8 @@ import mindustryX.features.SettingsV2.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import static mindustry.Vars.*;
 
@@ -26,10 +30,24 @@ import static mindustry.Vars.*;
  */
 public class ReplayController{
     private static final CheckPref enable = new CheckPref("replayRecord");
+    private static final SliderPref keyframeInterval = new SliderPref("replayKeyframeInterval", 2, 0, 10, 1, it -> {
+        if(it == 0) return "关闭";
+        return it + "分钟";
+    });
 
     public static boolean replaying;
+    /** Offset of the last packet handed to the game, in ticks. */
+    public static volatile float playPosition;
+    private static volatile float seekTarget = -1f;
+
+    /** Counters since client start, for measurements. Capturing is on the game thread, compressing on the writer thread. */
+    public static long keyframes, captureNanos;
+    public static final AtomicLong compressNanos = new AtomicLong();
 
     private static ReplayData.Writer writer;
+    /** Writes and compresses recordings off the game thread, in order. */
+    private static @Nullable ExecutorService writerExecutor;
+    private static volatile boolean writeFailed;
     private static ReplayData.Reader reader;
 
     public static void init(){
@@ -53,6 +71,11 @@ public class ReplayController{
                 pausedDialog.cont.row()
                 .button("查看录制信息", Icon.fileImage, ReplayController::showInfo).name("ReplayInfo")
                 .size(0, 60).colspan(pausedDialog.cont.getColumns()).fill();
+                pausedDialog.cont.row().table(t -> {
+                    t.defaults().size(0, 60).growX();
+                    t.button("后退30秒", Icon.left, () -> seek(playPosition - 30 * 60f));
+                    t.button("前进30秒", Icon.right, () -> seek(playPosition + 30 * 60f));
+                }).colspan(pausedDialog.cont.getColumns()).fillX();
             });
         }
     }
@@ -72,26 +95,97 @@ public class ReplayController{
         ReplayData header = new ReplayData(Version.build, new Date(), anonymous ? "anonymous" : ip, anonymous ? "anonymous" : Vars.player.name.trim());
         writer.writeHeader(header);
         Log.info("录制中: @", file.absolutePath());
+        writeFailed = false;
         ReplayController.writer = writer;
     }
 
     public static void onClientPacket(Packet p){
         if(writer == null) return;
+        var writer = ReplayController.writer;
         if(p instanceof Disconnect){
-            writer.close();
-            writer = null;
+            //closed even after a failed write, so the file is released
+            executor().submit(() -> {
+                try{
+                    writer.close();
+                }catch(Throwable e){
+                    Log.err(e);
+                }
+            });
+            ReplayController.writer = null;
             Log.info("录制结束");
             return;
         }
         try{
-            writer.writePacket(p);
+            if(keyframeInterval.get() > 0 && writer.keyframeDue(keyframeInterval.get() * 60 * 60f) && !(p instanceof WorldStream)
+            && state.isGame() && !netClient.isConnecting() && LogicExt.mockProtocol == Version.build){
+                var record = writer.keyframe(captureKeyframe());
+                submit(() -> writer.write(record));
+            }
+            var record = writer.record(p);
+            submit(() -> writer.write(record));
         }catch(Exception e){
-            net.disconnect();
-            Log.err(e);
-            Core.app.post(() -> ui.showException("录制出错!", e));
+            failed(e);
         }
     }
 
+    private static ExecutorService executor(){
+        if(writerExecutor == null) writerExecutor = Threads.executor("Replay Writer", 1);
+        return writerExecutor;
+    }
+
+    private static void submit(Runnable task){
+        executor().submit(() -> {
+            if(writeFailed) return;
+            try{
+                task.run();
+            }catch(Throwable e){
+                writeFailed = true;
+                Core.app.post(() -> {
+                    if(writer != null) failed(e);
+                });
+            }
+        });
+    }
+
+    private static void failed(Throwable e){
+        net.disconnect();
+        Log.err(e);
+        Core.app.post(() -> ui.showException("录制出错!", e));
+    }
+
+    /**
+     * Current world in the same form as the world data sent on join, so seeking can load it like the initial {@link WorldStream}.
+     * The world is written on the game thread, uncompressed. Deflating it, the bulk of the cost, happens when the writer thread calls the result.
+     */
+    private static Prov<byte[]> captureKeyframe(){
+        long start = Time.nanos();
+        var raw = new ByteArrayOutputStream();
+        NetworkIO.writeWorld(player, raw);
+        captureNanos += Time.timeSinceNanos(start);
+        keyframes++;
+
+        return () -> {
+            long compressStart = Time.nanos();
+            var out = new ByteArrayOutputStream();
+            try(var stream = new FastDeflaterOutputStream(out)){
+                raw.writeTo(stream);
+            }catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+            compressNanos.addAndGet(Time.timeSinceNanos(compressStart));
+            return out.toByteArray();
+        };
+    }
+
+    /** Average time per keyframe of writing the world on the game thread, and of compressing it on the writer thread. */
+    public static String summary(){
+        return Strings.format("Replay keyframe(ms) capture/compress: @/@", keyframes == 0 ? 0 : captureNanos / keyframes / 1000000, keyframes == 0 ? 0 : compressNanos.get() / keyframes / 1000000);
+    }
+
+    public static boolean recording(){
+        return writer != null;
+    }
+
     //replay
 
     public static void startPlay(Fi input){
@@ -111,14 +205,39 @@ public class ReplayController{
         netClient.beginConnecting();
         Reflect.set(net, "active", true);
 
+        playPosition = 0f;
+        seekTarget = -1f;
         Threads.daemon("Replay Controller", () -> {
             float startTime = Time.time;
             try{
                 while(replaying){
+                    float target = seekTarget;
+                    if(target >= 0f){
+                        seekTarget = -1f;
+                        //load the closest keyframe, unless reading on from the current position is shorter
+                        int keyframe = reader.keyframeBefore(target);
+                        boolean back = target < playPosition;
+                        if(keyframe < 0 && back && reader.getIndex() != null && !reader.getIndex().isEmpty()) keyframe = 0;
+                        if(keyframe >= 0 && (back || reader.getIndex().get(keyframe).getStartOffset() > playPosition)){
+                            reader.seekBlock(keyframe);
+                            Core.app.post(() -> {
+                                if(!replaying) return;
+                                logic.reset();
+                                netClient.beginConnecting();
+                            });
+                        }else if(back){
+                            Log.warn("[Replay] this replay can't seek backwards.");
+                            continue;
+                        }
+                        //packets before the target are handed over without waiting
+                        startTime = Time.time - target;
+                    }
+
                     var info = reader.nextPacket();
                     Packet packet = reader.readPacket(info);
-                    while(Time.time - startTime < info.getOffset())
+                    while(Time.time - startTime < info.getOffset() && seekTarget < 0f)
                         Thread.sleep(1);
+                    playPosition = info.getOffset();
                     Core.app.post(() -> {
                         if(!replaying) return;
                         try{
@@ -141,6 +260,12 @@ public class ReplayController{
         });
     }
 
+    /** Jumps to an offset of the replay being played, in ticks. */
+    public static void seek(float offset){
+        if(!replaying) return;
+        seekTarget = Math.max(offset, 0f);
+    }
+
     public static void stopPlay(){
         if(!replaying){
             if(reader != null){
@@ -171,14 +296,32 @@ public class ReplayController{
         dialog.cont.add("服务器ip:" + replay.getServerIp()).row();
         dialog.cont.add("玩家名:" + replay.getRecordPlayer()).row();
 
-        if(reader.getSource() != null){
+        if(reader.getIndex() != null){
+            var index = reader.getIndex();
+            int packets = 0;
+            for(var block : index) packets += block.getPackets();
+            dialog.cont.add("回放格式: v" + reader.getFormat()).row();
+            dialog.cont.add("数据包总数：" + packets).row();
+            dialog.cont.add("回放长度:" + formatTime(reader.getDuration() == null ? 0f : reader.getDuration())).row();
+            dialog.cont.pane(t -> {
+                t.defaults().pad(2);
+                for(var block : index){
+                    if(!block.getKeyframe()) continue;
+                    t.add("关键帧 " + formatTime(block.getStartOffset()));
+                    t.button("跳转", Icon.play, () -> {
+                        seek(block.getStartOffset());
+                        dialog.hide();
+                    }).disabled(b -> !replaying).fillX();
+                    t.row();
+                }
+            }).growX().row();
+        }else if(reader.getSource() != null){
             var tmpReader = new ReplayData.Reader(reader.getSource());
             var packets = tmpReader.allPacket();
             tmpReader.close();
 
             dialog.cont.add("数据包总数：" + packets.size()).row();
-            int secs = (int)(packets.get(packets.size() - 1).getOffset() / 60);
-            dialog.cont.add("回放长度:" + (secs / 3600) + ":" + (secs / 60 % 60) + ":" + (secs % 60)).row();
+            dialog.cont.add("回放长度:" + formatTime(packets.get(packets.size() - 1).getOffset())).row();
             dialog.cont.pane(t -> {
                 t.defaults().pad(2);
                 for(var packet : packets){
@@ -192,4 +335,9 @@ public class ReplayController{
         dialog.addCloseButton();
         dialog.show();
     }
+
+    private static String formatTime(float ticks){
+        int secs = (int)(ticks / 60);
+        return (secs / 3600) + ":" + (secs / 60 % 60) + ":" + (secs % 60);
+    }
 }
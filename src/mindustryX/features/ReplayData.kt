@@ -1,6 +1,7 @@
 package mindustryX.features
 
 import arc.files.Fi
+import arc.func.Prov
 import arc.util.Time
 import arc.util.io.ByteBufferOutput
 import arc.util.io.Reads
@@ -8,13 +9,22 @@ import arc.util.io.Writes
 import mindustry.Vars
 import mindustry.net.Net
 import mindustry.net.Packet
+import mindustry.net.Packets.WorldStream
 import mindustry.net.Streamable
 import java.io.*
 import java.nio.ByteBuffer
 import java.util.*
+import java.util.zip.Deflater
+import java.util.zip.Inflater
 import java.util.zip.DeflaterOutputStream
 import java.util.zip.InflaterInputStream
 
+/**
+ * 回放文件格式
+ * v1: one deflated stream of header and packets.
+ * v2: [MAGIC][formatVersion][header] then independently deflated blocks of packets, a block list and a trailer pointing at it.
+ * A block starts at every [WorldStream], so each of those is a keyframe to seek to. Files without a trailer (crashed recordings) are indexed by walking the block headers.
+ */
 data class ReplayData(
     val version: Int,
     val time: Date,
@@ -25,29 +35,72 @@ data class ReplayData(
         override fun server(): Boolean = true
     }
 
+    data class PacketInfo(
+        val offset: Float,
+        val id: Byte,
+        val length: Int,
+    )
+
+    /** @param position file position of the block header */
+    data class BlockInfo(
+        val position: Long,
+        val startOffset: Float,
+        val endOffset: Float,
+        val packets: Int,
+        val keyframe: Boolean,
+    )
+
+    /** A packet serialized by [Writer.record] or [Writer.keyframe], to be written by [Writer.write]. [data] is only called by [Writer.write]. */
+    class Record(
+        val offset: Float,
+        val id: Int,
+        val keyframe: Boolean,
+        val data: Prov<ByteArray>,
+    )
+
+    /**
+     * [record] and [keyframe] read game state and must be called on the game thread. [write] and [close] only touch the file,
+     * so they may run on another thread, as long as it is always the same one and records are written in order.
+     */
     class Writer(outputStream: OutputStream) : Closeable {
-        val writes = DataOutputStream(DeflaterOutputStream(outputStream))
+        private val out = CountingOutputStream(outputStream)
+        val writes = DataOutputStream(out)
         private val startTime = Time.time
         private val tmpBuf: ByteBuffer = ByteBuffer.allocate(32768)
         private val tmpWr: Writes = Writes(ByteBufferOutput(tmpBuf))
 
+        private val blockBytes = ByteArrayOutputStream(blockSize + 1024)
+        private val block = DataOutputStream(blockBytes)
+        private val deflated = ByteArrayOutputStream(blockSize / 2)
+        private val deflater = Deflater()
+        private val blocks = mutableListOf<BlockInfo>()
+        private var blockPackets = 0
+        private var blockStart = 0f
+        private var blockEnd = 0f
+        private var blockKeyframe = false
+        @Volatile
+        private var lastKeyframe = -1f
+
         fun writeHeader(meta: ReplayData) {
+            writes.write(MAGIC)
+            writes.writeInt(FORMAT_VERSION)
             writes.writeInt(meta.version)
             writes.writeLong(meta.time.time)
             writes.writeUTF(meta.serverIp)
             writes.writeUTF(meta.recordPlayer)
         }
 
-        fun writePacket(packet: Packet) {
-            val id = Net.getPacketId(packet).toUInt()
-            writes.writeFloat(Time.time - startTime)
-            writes.writeByte(id.toInt())
+        /** @return whether the last keyframe is older than [intervalTicks], never true before the first one. */
+        fun keyframeDue(intervalTicks: Float): Boolean = lastKeyframe >= 0 && Time.time - startTime - lastKeyframe >= intervalTicks
+
+        /** Serializes a packet, see [Writer]. */
+        fun record(packet: Packet): Record {
+            val offset = Time.time - startTime
+            if (packet is WorldStream) lastKeyframe = offset
 
-            if (packet is Streamable) packet.stream.apply {
+            val data = if (packet is Streamable) packet.stream.run {
                 mark(available())
-                writes.writeVarShort(available())
-                copyTo(writes)
-                reset()
+                readBytes().also { reset() }
             } else {
                 tmpBuf.position(0)
                 val oldNet = Vars.net
@@ -57,13 +110,74 @@ data class ReplayData(
                 } finally {
                     Vars.net = oldNet
                 }
-                writes.writeVarShort(tmpBuf.position())
-                writes.write(tmpBuf.array(), 0, tmpBuf.position())
+                tmpBuf.array().copyOf(tmpBuf.position())
             }
+            return Record(offset, Net.getPacketId(packet).toInt(), packet is WorldStream, Prov { data })
+        }
+
+        /** A keyframe at the current offset, whose [WorldStream] data is produced later by [world], see [Writer]. */
+        fun keyframe(world: Prov<ByteArray>): Record {
+            val offset = Time.time - startTime
+            lastKeyframe = offset
+            return Record(offset, Net.getPacketId(WorldStream()).toInt(), true, world)
+        }
+
+        fun write(record: Record) {
+            if (record.keyframe) {
+                flushBlock()
+                blockKeyframe = true
+            }
+            if (blockPackets == 0) blockStart = record.offset
+            blockEnd = record.offset
+            blockPackets++
+
+            val data = record.data.get()
+            block.writeFloat(record.offset)
+            block.writeByte(record.id)
+            block.writeVarShort(data.size)
+            block.write(data)
+
+            if (blockBytes.size() >= blockSize || blockEnd - blockStart >= blockSpan) flushBlock()
+        }
+
+        private fun flushBlock() {
+            if (blockPackets == 0) return
+            deflated.reset()
+            deflater.reset()
+            DeflaterOutputStream(deflated, deflater).apply {
+                blockBytes.writeTo(this)
+                finish()
+            }
+
+            blocks += BlockInfo(out.count, blockStart, blockEnd, blockPackets, blockKeyframe)
+            writes.writeInt(blockPackets)
+            writes.writeFloat(blockStart)
+            writes.writeFloat(blockEnd)
+            writes.writeBoolean(blockKeyframe)
+            writes.writeInt(deflated.size())
+            deflated.writeTo(writes)
+
+            blockBytes.reset()
+            blockPackets = 0
+            blockKeyframe = false
         }
 
         override fun close() {
+            flushBlock()
+            writes.writeInt(-1)
+            val indexPosition = out.count
+            writes.writeInt(blocks.size)
+            for (info in blocks) {
+                writes.writeLong(info.position)
+                writes.writeFloat(info.startOffset)
+                writes.writeFloat(info.endOffset)
+                writes.writeInt(info.packets)
+                writes.writeBoolean(info.keyframe)
+            }
+            writes.writeLong(indexPosition)
+            writes.write(INDEX_MAGIC)
             writes.close()
+            deflater.end()
         }
 
         private fun DataOutputStream.writeVarShort(value: Int) {
@@ -75,28 +189,86 @@ data class ReplayData(
         }
     }
 
-    class Reader(inputStream: InputStream) : Closeable {
-        val reads = DataInputStream(InflaterInputStream(inputStream))
-        val meta = readHeader()
-        var source: Fi? = null
+    /**
+     * Reads v1 and v2 replays. Only v2 files opened from a [Fi] have an [index] and can [seekBlock].
+     */
+    class Reader private constructor(input: InputStream?, private val file: RandomAccessFile?) : Closeable {
+        constructor(inputStream: InputStream) : this(inputStream, null)
+
+        constructor(fi: Fi) : this(fi, openSeekable(fi))
 
-        constructor(fi: Fi) : this(fi.read(32768)) {
+        private constructor(fi: Fi, file: RandomAccessFile?) : this(if (file == null) fi.read(32768) else null, file) {
             source = fi
         }
 
-        private val arcOldFormat = meta.version <= 10
-        private val readsWrap = Reads(reads)
+        var source: Fi? = null
+        /** Format of the file, 1 or 2. */
+        val format: Int
+        val meta: ReplayData
+        /** Blocks of a v2 file opened from a [Fi], null otherwise. */
+        val index: List<BlockInfo>?
+
+        /** v2: block headers are read from here. v1: the inflated stream. */
+        private val raw: DataInput
+        /** Packets of the current block, or of the whole file for v1. */
+        private var reads: DataInputStream
+        private val readsWrap: Reads
+        private val inflater = Inflater()
+        private var blockRemaining = 0
+
+        init {
+            if (file != null) {
+                raw = file
+                format = 2
+            } else {
+                val stream = DataInputStream(input!!.buffered())
+                stream.mark(MAGIC.size)
+                val magic = ByteArray(MAGIC.size)
+                val isV2 = try {
+                    stream.readFully(magic)
+                    magic.contentEquals(MAGIC)
+                } catch (e: EOFException) {
+                    false
+                }
+                if (isV2) {
+                    raw = stream
+                    format = 2
+                } else {
+                    stream.reset()
+                    raw = DataInputStream(InflaterInputStream(stream))
+                    format = 1
+                }
+            }
+
+            if (format == 2) {
+                val formatVersion = raw.readInt()
+                if (formatVersion > FORMAT_VERSION) throw IOException("Unsupported replay format: $formatVersion")
+            }
+            meta = readHeader()
+            reads = if (format == 1) raw as DataInputStream else DataInputStream(ByteArrayInputStream(ByteArray(0)))
+            readsWrap = Reads(reads)
+            index = file?.let { readIndex(it) }
+        }
+
+        private val arcOldFormat = format == 1 && meta.version <= 10
+
+        /** Total length in ticks, if known without reading the packets. */
+        val duration: Float? get() = index?.lastOrNull()?.endOffset
 
         private fun readHeader(): ReplayData {
-            val version = reads.readInt()
-            val time = Date(reads.readLong())
-            val serverIp = reads.readUTF()
-            val recordPlayer = reads.readUTF()
+            val version = raw.readInt()
+            val time = Date(raw.readLong())
+            val serverIp = raw.readUTF()
+            val recordPlayer = raw.readUTF()
             return ReplayData(version, time, serverIp, recordPlayer)
         }
 
         @Throws(EOFException::class)
         fun nextPacket(): PacketInfo {
+            if (format == 2) {
+                while (blockRemaining == 0) nextBlock()
+                blockRemaining--
+            }
             val offset = if (!arcOldFormat) {
                 reads.readFloat()
             } else {
@@ -124,7 +296,7 @@ data class ReplayData(
             while (true) {
                 try {
                     val info = nextPacket()
-                    reads.skip(info.length.toLong())
+                    reads.skipBytes(info.length)
                     add(info)
                 } catch (e: EOFException) {
                     break
@@ -132,8 +304,76 @@ data class ReplayData(
             }
         }
 
+        /** @return the last keyframe block starting at or before [offset], or -1. */
+        fun keyframeBefore(offset: Float): Int = index?.indexOfLast { it.keyframe && it.startOffset <= offset } ?: -1
+
+        /** Continues reading at the start of block [i] of [index]. */
+        fun seekBlock(i: Int) {
+            val file = file ?: throw IllegalStateException("Replay is not seekable")
+            file.seek(index!![i].position)
+            blockRemaining = 0
+        }
+
+        /** Reads and inflates the next block, the end marker and truncated blocks count as end of file. */
+        @Throws(EOFException::class)
+        private fun nextBlock() {
+            val packets = raw.readInt()
+            if (packets < 0) throw EOFException()
+            raw.readFloat()
+            raw.readFloat()
+            raw.readBoolean()
+            val bytes = ByteArray(raw.readInt())
+            raw.readFully(bytes)
+
+            inflater.reset()
+            reads = DataInputStream(InflaterInputStream(ByteArrayInputStream(bytes), inflater))
+            readsWrap.input = reads
+            blockRemaining = packets
+        }
+
+        private fun readIndex(file: RandomAccessFile): List<BlockInfo> {
+            val start = file.filePointer
+            val length = file.length()
+            try {
+                if (length - start >= TRAILER_SIZE) {
+                    file.seek(length - TRAILER_SIZE)
+                    val indexPosition = file.readLong()
+                    val magic = ByteArray(INDEX_MAGIC.size)
+                    file.readFully(magic)
+                    if (magic.contentEquals(INDEX_MAGIC) && indexPosition in start until length) {
+                        file.seek(indexPosition)
+                        return List(file.readInt()) {
+                            BlockInfo(file.readLong(), file.readFloat(), file.readFloat(), file.readInt(), file.readBoolean())
+                        }
+                    }
+                }
+
+                //recording didn't finish, walk the block headers instead
+                file.seek(start)
+                val blocks = mutableListOf<BlockInfo>()
+                try {
+                    while (true) {
+                        val position = file.filePointer
+                        val packets = file.readInt()
+                        if (packets < 0) break
+                        val info = BlockInfo(position, file.readFloat(), file.readFloat(), packets, file.readBoolean())
+                        val size = file.readInt()
+                        if (file.filePointer + size > length) break
+                        file.seek(file.filePointer + size)
+                        blocks += info
+                    }
+                } catch (e: EOFException) {
+                    //truncated header
+                }
+                return blocks
+            } finally {
+                file.seek(start)
+            }
+        }
+
         override fun close() {
-            reads.close()
+            (raw as? Closeable)?.close()
+            inflater.end()
         }
 
         private fun DataInputStream.readVarShort(): Int {
@@ -147,9 +387,42 @@ data class ReplayData(
         }
     }
 
-    data class PacketInfo(
-        val offset: Float,
-        val id: Byte,
-        val length: Int,
-    )
-}
\ No newline at end of file
+    private class CountingOutputStream(out: OutputStream) : FilterOutputStream(out) {
+        var count = 0L
+
+        override fun write(b: Int) {
+            out.write(b)
+            count++
+        }
+
+        override fun write(b: ByteArray, off: Int, len: Int) {
+            out.write(b, off, len)
+            count += len
+        }
+    }
+
+    companion object {
+        private val MAGIC = "MREP".toByteArray()
+        private val INDEX_MAGIC = "MRIX".toByteArray()
+        const val FORMAT_VERSION = 2
+        /** Uncompressed size and time span (ticks) after which a block is closed. */
+        private const val blockSize = 64 * 1024
+        private const val blockSpan = 10 * 60f
+
+        private const val TRAILER_SIZE = 8 + 4
+
+        /** @return the file positioned after the magic if it is a v2 replay on the file system, null otherwise. */
+        private fun openSeekable(fi: Fi): RandomAccessFile? {
+            val path = fi.file()
+            if (!path.isFile) return null
+            val file = RandomAccessFile(path, "r")
+            val magic = ByteArray(MAGIC.size)
+            if (file.length() >= MAGIC.size) {
+                file.readFully(magic)
+                if (magic.contentEquals(MAGIC)) return file
+            }
+            file.close()
+            return null
+        }
+    }
+}
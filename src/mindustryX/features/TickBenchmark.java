@@ -0,0 +1,95 @@
+package mindustryX.features;
+
+import arc.*;
+import arc.math.*;
+import arc.util.*;
+
+import java.lang.management.*;
+import java.util.*;
+
+/**
+ * 服务器Tick基准测试
+ * Runs the loaded game for a fixed amount of ticks as fast as possible, with a fixed delta and without frame pacing,
+ * and reports tick time percentiles, allocation rate and the {@link TickProfiler} breakdown of the whole run.
+ * <p>
+ * Call on the main thread, outside of listener updates (e.g. from a console command).
+ */
+public class TickBenchmark{
+
+    /** @return the report, one line per entry */
+    public static String run(int ticks, long seed){
+        int warmup = Math.min(ticks / 10, 300);
+        Mathf.rand.setSeed(seed);
+
+        boolean profilerWas = TickProfiler.enabled.bool();
+        int intervalWas = TickProfiler.sampleInterval.num();
+
+        try{
+            for(int i = 0; i < warmup; i++){
+                tick();
+            }
+
+            TickProfiler.enabled.set(true);
+            TickProfiler.sampleInterval.set(1);
+            TickProfiler.windowTicks = Integer.MAX_VALUE;
+            TickProfiler.reset();
+            System.gc();
+
+            long[] times = new long[ticks];
+            long allocatedStart = allocatedBytes(), start = Time.nanos();
+            for(int i = 0; i < ticks; i++){
+                long tickStart = Time.nanos();
+                tick();
+                times[i] = Time.timeSinceNanos(tickStart);
+            }
+            long total = Time.timeSinceNanos(start), allocated = allocatedStart < 0 ? -1 : allocatedBytes() - allocatedStart;
+            TickProfiler.publish();
+
+            Arrays.sort(times);
+            float seconds = total / (float)Time.nanosPerMilli / 1000f;
+            StringBuilder out = new StringBuilder();
+            out.append(Strings.format("@ ticks (+@ warmup), seed @: @s, @ ticks/s, @x realtime",
+            ticks, warmup, seed, Strings.fixed(seconds, 2), Strings.fixed(ticks / seconds, 1), Strings.fixed(ticks / seconds / 60f, 2)));
+            out.append('\n').append(Strings.format("tick (ms): mean @, p50 @, p95 @, p99 @, max @",
+            ms(total / ticks), ms(percentile(times, 0.5)), ms(percentile(times, 0.95)), ms(percentile(times, 0.99)), ms(times[ticks - 1])));
+            out.append('\n').append(allocated < 0 ? "allocation: unavailable on this JVM" : Strings.format("allocation: @ MB/s, @ KB/tick",
+            Strings.fixed(allocated / 1024f / 1024f / seconds, 1), Strings.fixed(allocated / 1024f / ticks, 1)));
+            out.append('\n').append(TickProfiler.summary(20));
+            return out.toString();
+        }finally{
+            TickProfiler.windowTicks = TickProfiler.defaultWindowTicks;
+            TickProfiler.sampleInterval.set(intervalWas);
+            TickProfiler.enabled.set(profilerWas);
+            TickProfiler.reset();
+        }
+    }
+
+    /** One frame of the headless application, without the runnables and the frame pacing. */
+    static void tick(){
+        Core.graphics.incrementFrameId();
+        Time.updateGlobal();
+        synchronized(Core.app.getListeners()){
+            for(ApplicationListener listener : Core.app.getListeners()){
+                listener.update();
+            }
+        }
+    }
+
+    static long percentile(long[] sorted, double fraction){
+        return sorted[Math.min((int)(sorted.length * fraction), sorted.length - 1)];
+    }
+
+    static String ms(long nanos){
+        return Strings.fixed(nanos / (float)Time.nanosPerMilli, 3);
+    }
+
+    /** @return bytes allocated by all live threads, or -1 if the JVM can't tell. */
+    static long allocatedBytes(){
+        if(!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) || !bean.isThreadAllocatedMemoryEnabled()) return -1;
+        long sum = 0;
+        for(long bytes : bean.getThreadAllocatedBytes(bean.getAllThreadIds())){
+            if(bytes > 0) sum += bytes;
+        }
+        return sum;
+    }
+}
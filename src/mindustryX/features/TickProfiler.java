@@ -0,0 +1,230 @@
+package mindustryX.features;
+
+import arc.struct.*;
+import arc.util.*;
+import arc.util.serialization.*;
+import arc.util.serialization.Jval.*;
+import mindustry.gen.*;
+import mindustry.net.*;
+import mindustry.net.Administration.*;
+import mindustry.world.blocks.power.*;
+import mindustryX.features.net.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * 分层Tick性能分析
+ * Opt-in profiler of the game tick. Only one tick out of {@link #sampleInterval} is measured, other ticks just check {@link #active}.
+ * Time is attributed to a tree of subsystems; {@code entities/update} is split per block type for buildings and per class for other entities.
+ * <p>
+ * Times are summed over {@link #windowTicks} measured ticks, then published as the mean per tick in {@link Node#meanNanos}.
+ * Main thread only, except {@link #asyncProcess} which is called after the async threads were awaited.
+ */
+public class TickProfiler{
+    public static final Config enabled = new Config("tickProfiler", "Measure tick time per subsystem, entity class and block type.", false, TickProfiler::reset);
+    public static final Config sampleInterval = new Config("tickProfilerInterval", "Measure one tick out of this many.", 10);
+    static final int defaultWindowTicks = 30;
+    /** Measured ticks summed before publishing. {@link TickBenchmark} publishes once per run instead. */
+    static int windowTicks = defaultWindowTicks;
+
+    /** Whether the current tick is measured. */
+    public static boolean active;
+
+    public static final Node
+    root = new Node("frame", null),
+    logic = root.child("logic"),
+    fog = logic.child("fog"),
+    entities = logic.child("entities"),
+    physics = entities.child("physics"),
+    power = entities.child("power"),
+    processors = entities.child("processors"),
+    splash = entities.child("splash"),
+    update = entities.child("update"),
+    collide = entities.child("collide"),
+    sync = root.child("netServer.sync"),
+    async = root.child("async"),
+    asyncWait = async.child("wait"),
+    pathfinderThread = root.child("pathfinder");
+
+    /** Leaves of the tree sorted by published time, slowest first. */
+    public static final Seq<Node> top = new Seq<>();
+    /** Amount of measured ticks in the published values. */
+    public static int publishedTicks;
+
+    private static long tick, tickStart, lastPathfinderBusy = -1, lastPathfinderTick;
+    private static int sampled;
+
+    /** Called at the beginning of {@code Logic.update}. */
+    public static void beginTick(){
+        if(!enabled.bool()){
+            active = false;
+            return;
+        }
+        if(sampled >= windowTicks){
+            publish();
+        }
+
+        tick++;
+        active = tick % Math.max(sampleInterval.num(), 1) == 0;
+        if(!active) return;
+        sampled++;
+        tickStart = Time.nanos();
+
+        //the pathfinder runs on its own thread; attribute its busy time evenly to the ticks since the last sample
+        if(pathfinder != null){
+            long busy = pathfinder.busyTime;
+            if(lastPathfinderBusy >= 0){
+                pathfinderThread.add((busy - lastPathfinderBusy) / Math.max(tick - lastPathfinderTick, 1));
+            }
+            lastPathfinderBusy = busy;
+            lastPathfinderTick = tick;
+        }
+    }
+
+    /** Called at the end of {@code Logic.update}. */
+    public static void endTick(){
+        if(active) logic.add(Time.timeSinceNanos(tickStart));
+    }
+
+    /** @return start time for {@link #end}, or 0 if this tick isn't measured. */
+    public static long begin(){
+        return active ? Time.nanos() : 0L;
+    }
+
+    public static void end(Node node, long start){
+        if(active && start != 0L) node.add(Time.timeSinceNanos(start));
+    }
+
+    /** Attributes the update of one entity. */
+    public static void entity(Entityc entity, long nanos){
+        Object key = entity instanceof Building build ? build.block : entity instanceof PowerGraphUpdaterc ? PowerGraph.class : entity.getClass();
+        Node node = update.children.get(key);
+        if(node == null){
+            String name = entity instanceof Building build ? build.block.name : key == PowerGraph.class ? "PowerGraph.update" : entity.getClass().getSimpleName();
+            node = update.child(key, name);
+        }
+        node.add(nanos);
+    }
+
+    public static void asyncProcess(Object process, long nanos){
+        if(!active) return;
+        Node node = async.children.get(process.getClass());
+        if(node == null) node = async.child(process.getClass(), process.getClass().getSimpleName());
+        node.add(nanos);
+    }
+
+    public static void reset(){
+        active = false;
+        sampled = 0;
+        publishedTicks = 0;
+        lastPathfinderBusy = -1;
+        top.clear();
+        root.clear();
+    }
+
+    static void publish(){
+        publishedTicks = sampled;
+        top.clear();
+        root.publish(sampled);
+        top.sort(n -> -n.meanNanos);
+        sampled = 0;
+    }
+
+    /** @return the slowest {@code amount} leaves, one per line. */
+    public static String summary(int amount){
+        if(publishedTicks == 0) return "Profiler: waiting for samples";
+        StringBuilder out = new StringBuilder("Tick (ms): logic ").append(Strings.fixed(logic.meanNanos / Time.nanosPerMilli, 2));
+        for(int i = 0; i < Math.min(amount, top.size); i++){
+            Node node = top.get(i);
+            out.append('\n').append(node.path()).append(' ').append(Strings.fixed(node.meanNanos / Time.nanosPerMilli, 3));
+        }
+        return out.toString();
+    }
+
+    public static String json(){
+        Jval out = Jval.newObject();
+        out.put("sampleInterval", sampleInterval.num());
+        out.put("sampledTicks", publishedTicks);
+        out.put("tree", root.toJson());
+        out.put("deltaSnapshot", DeltaSnapshot.stats());
+        out.put("interestFilter", InterestFilter.stats());
+        out.put("broadcast", ArcNetProvider.broadcastStats());
+        PacketQueue inbound = net.inboundQueue();
+        if(inbound != null) out.put("inboundQueue", inbound.stats());
+        if(controlPath != null) out.put("controlPath", controlPath.stats());
+        out.put("parallelLogic", mindustryX.features.logic.ParallelLogic.stats());
+        out.put("splashBatch", mindustry.entities.SplashBatch.stats());
+        out.put("worldData", WorldDataEncoder.stats());
+        if(netServer != null) out.put("blockSync", netServer.blockSyncStats());
+        if(netServer != null && netServer.admins.store != null) out.put("playerStore", netServer.admins.store.stats());
+        return out.toString(Jformat.formatted);
+    }
+
+    public static class Node{
+        public final String name;
+        public final @Nullable Node parent;
+        public final OrderedMap<Object, Node> children = new OrderedMap<>();
+        /** Published mean per measured tick. */
+        public float meanNanos, meanCalls;
+        long nanos, calls;
+
+        Node(String name, @Nullable Node parent){
+            this.name = name;
+            this.parent = parent;
+        }
+
+        Node child(String name){
+            return child(name, name);
+        }
+
+        Node child(Object key, String name){
+            Node node = new Node(name, this);
+            children.put(key, node);
+            return node;
+        }
+
+        void add(long nanos){
+            this.nanos += nanos;
+            calls++;
+        }
+
+        void clear(){
+            nanos = calls = 0;
+            meanNanos = meanCalls = 0f;
+            for(Node child : children.values()){
+                child.clear();
+            }
+        }
+
+        void publish(int ticks){
+            meanNanos = (float)nanos / ticks;
+            meanCalls = (float)calls / ticks;
+            nanos = calls = 0;
+            if(children.isEmpty()){
+                top.add(this);
+            }
+            for(Node child : children.values()){
+                child.publish(ticks);
+            }
+        }
+
+        public String path(){
+            return parent == null || parent == root ? name : parent.path() + "/" + name;
+        }
+
+        Jval toJson(){
+            Jval out = Jval.newObject();
+            out.put("name", name);
+            out.put("ms", meanNanos / Time.nanosPerMilli);
+            out.put("calls", meanCalls);
+            if(!children.isEmpty()){
+                Jval array = Jval.newArray();
+                for(Node child : children.values()){
+                    array.add(child.toJson());
+                }
+                out.put("children", array);
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package mindustryX.features.logic;
+
+import arc.util.*;
+import mindustry.logic.*;
+import mindustry.logic.LExecutor.*;
+import mindustry.net.Administration.*;
+
+/**
+ * 逻辑预编译执行
+ * Replaces common instructions of an assembled program with specialized ones, without the {@link LogicOp} lambda
+ * dispatch, and runs straight-line blocks of them in one go. Anything unsupported runs the original instruction.
+ * <p>
+ * Instruction budget and {@code @counter} semantics are the same as {@link LExecutor#runOnce()}:
+ * a block is only entered when the remaining budget covers all of it, and instructions which touch {@code @counter} end a block.
+ */
+public class LogicCompiler{
+    public static final Config enabled = new Config("logicCompiler", "Compile logic processors into specialized instructions.", false);
+
+    public static @Nullable Program compile(LExecutor exec){
+        if(!enabled.bool() || exec.instructions.length == 0) return null;
+        return new Program(exec.instructions, exec.counter);
+    }
+
+    public static class Program{
+        /** The instructions this program was compiled from. */
+        public final LInstruction[] source;
+        final LInstruction[] code;
+        /** Amount of instructions that can run without checking the counter, starting at this index. */
+        final int[] blockLength;
+
+        public Program(LInstruction[] source, LVar counter){
+            this.source = source;
+            int length = source.length;
+            code = new LInstruction[length];
+            blockLength = new int[length];
+
+            for(int i = 0; i < length; i++){
+                code[i] = specialize(source[i]);
+            }
+            for(int i = length - 1; i >= 0; i--){
+                LInstruction inst = source[i];
+                if(usesVar(inst, counter)){
+                    blockLength[i] = 0;
+                }else if(inst instanceof JumpI || inst instanceof EndI){
+                    blockLength[i] = 1;
+                }else if(isStraight(inst)){
+                    blockLength[i] = 1 + (i + 1 < length ? blockLength[i + 1] : 0);
+                }
+            }
+        }
+
+        /** Runs up to {@code budget} instructions, stopping after an instruction that yields. */
+        public int run(LExecutor exec, int budget){
+            LVar counter = exec.counter;
+            int length = code.length, ran = 0;
+
+            while(ran < budget){
+                //reset to start
+                if(counter.numval >= length || counter.numval < 0){
+                    counter.numval = 0;
+                }
+
+                int pc = (int)counter.numval;
+                int block = blockLength[pc];
+                counter.isobj = false;
+
+                if(block > 1 && block <= budget - ran && counter.numval == pc){
+                    //the counter is only read by the last instruction of a block (a jump)
+                    counter.numval = pc + block;
+                    for(int i = pc, end = pc + block; i < end; i++){
+                        code[i].run(exec);
+                    }
+                    ran += block;
+                }else{
+                    counter.numval++;
+                    code[pc].run(exec);
+                    ran++;
+                    if(exec.yield) break;
+                }
+            }
+            return ran;
+        }
+    }
+
+    /** Instructions which never touch the counter, yield, or change the program. */
+    static boolean isStraight(LInstruction inst){
+        return inst instanceof SetI || inst instanceof OpI || inst instanceof SelectI || inst instanceof PrintI || inst instanceof NoopI;
+    }
+
+    static boolean usesVar(LInstruction inst, LVar var){
+        if(inst instanceof SetI i) return i.from == var || i.to == var;
+        if(inst instanceof OpI i) return i.a == var || i.b == var || i.dest == var;
+        if(inst instanceof SelectI i) return i.result == var || i.comp0 == var || i.comp1 == var || i.a == var || i.b == var;
+        if(inst instanceof PrintI i) return i.value == var;
+        if(inst instanceof JumpI i) return i.value == var || i.compare == var;
+        return false;
+    }
+
+    static LInstruction specialize(LInstruction inst){
+        if(inst instanceof SetI i && i.to.constant) return new NoopI();
+        if(inst instanceof OpI i){
+            LVar a = i.a, b = i.b, dest = i.dest;
+            return switch(i.op){
+                case add -> exec -> dest.setnum(a.num() + b.num());
+                case sub -> exec -> dest.setnum(a.num() - b.num());
+                case mul -> exec -> dest.setnum(a.num() * b.num());
+                case div -> exec -> dest.setnum(a.num() / b.num());
+                case idiv -> exec -> dest.setnum(Math.floor(a.num() / b.num()));
+                case mod -> exec -> dest.setnum(a.num() % b.num());
+                case emod -> exec -> {
+                    double bv = b.num();
+                    dest.setnum(((a.num() % bv) + bv) % bv);
+                };
+                case land -> exec -> dest.setnum(a.num() != 0 && b.num() != 0 ? 1 : 0);
+                case lessThan -> exec -> dest.setnum(a.num() < b.num() ? 1 : 0);
+                case lessThanEq -> exec -> dest.setnum(a.num() <= b.num() ? 1 : 0);
+                case greaterThan -> exec -> dest.setnum(a.num() > b.num() ? 1 : 0);
+                case greaterThanEq -> exec -> dest.setnum(a.num() >= b.num() ? 1 : 0);
+                case shl -> exec -> dest.setnum((long)a.num() << (long)b.num());
+                case shr -> exec -> dest.setnum((long)a.num() >> (long)b.num());
+                case ushr -> exec -> dest.setnum((long)a.num() >>> (long)b.num());
+                case or -> exec -> dest.setnum((long)a.num() | (long)b.num());
+                case and -> exec -> dest.setnum((long)a.num() & (long)b.num());
+                case xor -> exec -> dest.setnum((long)a.num() ^ (long)b.num());
+                case max -> exec -> dest.setnum(Math.max(a.num(), b.num()));
+                case min -> exec -> dest.setnum(Math.min(a.num(), b.num()));
+                case abs -> exec -> dest.setnum(Math.abs(a.num()));
+                case floor -> exec -> dest.setnum(Math.floor(a.num()));
+                case ceil -> exec -> dest.setnum(Math.ceil(a.num()));
+                default -> inst;
+            };
+        }
+        if(inst instanceof JumpI i){
+            LVar value = i.value, compare = i.compare;
+            int address = i.address;
+            if(address == -1) return new NoopI();
+            return switch(i.op){
+                case always -> exec -> exec.counter.numval = address;
+                case lessThan -> exec -> {
+                    if(value.num() < compare.num()) exec.counter.numval = address;
+                };
+                case lessThanEq -> exec -> {
+                    if(value.num() <= compare.num()) exec.counter.numval = address;
+                };
+                case greaterThan -> exec -> {
+                    if(value.num() > compare.num()) exec.counter.numval = address;
+                };
+                case greaterThanEq -> exec -> {
+                    if(value.num() >= compare.num()) exec.counter.numval = address;
+                };
+                default -> inst;
+            };
+        }
+        return inst;
+    }
+}
@@ -0,0 +1,221 @@
+package mindustryX.features.logic;
+
+import arc.struct.*;
+import arc.util.*;
+import mindustry.gen.*;
+import mindustry.logic.*;
+import mindustry.logic.LExecutor.*;
+import mindustry.net.Administration.*;
+import mindustry.world.blocks.logic.*;
+import mindustry.world.blocks.logic.LogicBlock.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * 逻辑处理器并行执行
+ * Runs processors whose programs only compute on their own variables and on the buildings their instructions name
+ * (memory cells, displays, messages, other processors) on a fork-join pool, after all entities were updated.
+ * {@link LogicBuild#updateTile()} still accumulates their instruction budget, but leaves running it to {@link #end()}.
+ * <p>
+ * Processors are grouped by the buildings they can reach: every deferred processor reaches itself and the targets of its
+ * read, write and flush instructions, every other processor reaches itself and all of its links. A group runs on one thread in entity order,
+ * so memory, message and display contents end up the same as when running serially, and different groups share nothing.
+ * A group with any processor that can't be deferred runs serially in updateTile as before.
+ * A world processor that can't be deferred can reach any building, so it disables the pass.
+ */
+public class ParallelLogic{
+    public static final Config enabled = new Config("parallelLogic", "Run processors which only compute and use memory cells, displays and messages on several threads.", false);
+    /** Below this many deferred processors, they all run serially. */
+    public static int minProcessors = 16;
+
+    private static @Nullable ForkJoinPool pool;
+    private static final Seq<LogicBuild> processors = new Seq<>(LogicBuild.class);
+    /** Maps building id to the first processor that reaches it. */
+    private static final IntIntMap claimed = new IntIntMap();
+    private static int[] parent = new int[64], groupStart = new int[65], order = new int[64], fill = new int[64];
+    private static boolean[] serial = new boolean[64];
+    private static int groupCount;
+    private static int lastDeferred, lastGroups, lastProcessors;
+
+    /** Whether a program can be deferred: it doesn't touch units, the world or shared randomness, and names the buildings it uses as constants. */
+    public static boolean isolated(LInstruction[] instructions, Seq<LVar> targets){
+        for(LInstruction inst : instructions){
+            if(inst instanceof SetI || inst instanceof SelectI || inst instanceof JumpI || inst instanceof EndI || inst instanceof NoopI ||
+            inst instanceof PrintI || inst instanceof PrintCharI || inst instanceof FormatI || inst instanceof DrawI ||
+            inst instanceof PackColorI || inst instanceof UnpackColorI || inst instanceof LookupI || inst instanceof WaitI || inst instanceof StopI){
+                continue;
+            }
+
+            if(inst instanceof OpI op){
+                //uses the shared GlobalVars.rand
+                if(op.op == LogicOp.rand) return false;
+                continue;
+            }
+
+            LVar target =
+                inst instanceof ReadI i ? i.target :
+                inst instanceof WriteI i ? i.target :
+                inst instanceof PrintFlushI i ? i.target :
+                inst instanceof DrawFlushI i ? i.target :
+                null;
+
+            if(target == null || !target.constant) return false;
+            targets.add(target);
+        }
+        return true;
+    }
+
+    /** Picks the processors to defer this tick. Called before entities are updated. */
+    public static void begin(){
+        groupCount = lastDeferred = lastGroups = 0;
+        if(!enabled.bool()) return;
+
+        processors.clear();
+        for(int i = 0; i < Groups.build.size(); i++){
+            if(Groups.build.index(i) instanceof LogicBuild build){
+                processors.add(build);
+            }
+        }
+        int size = lastProcessors = processors.size;
+        if(size < minProcessors) return;
+
+        if(parent.length < size){
+            parent = new int[size];
+            order = new int[size];
+            fill = new int[size];
+            groupStart = new int[size + 1];
+            serial = new boolean[size];
+        }
+
+        claimed.clear();
+        for(int i = 0; i < size; i++){
+            LogicBuild build = processors.items[i];
+            LExecutor exec = build.executor;
+            parent[i] = i;
+            serial[i] = !exec.isolated || build.loadBlock != null || !exec.initialized();
+
+            if(!exec.isolated && ((LogicBlock)build.block).privileged && !state.rules.disableWorldProcessors) return;
+
+            claim(build.id, i);
+            if(exec.isolated){
+                for(LVar target : exec.isolatedTargets){
+                    if(target.obj() instanceof Building other) claim(other.id, i);
+                }
+            }else{
+                for(Building other : exec.links){
+                    if(other != null) claim(other.id, i);
+                }
+            }
+        }
+
+        //a group runs serially if any of its processors does
+        for(int i = 0; i < size; i++){
+            if(serial[i]) serial[find(i)] = true;
+        }
+
+        //counting sort of deferred processors by group, keeping entity order inside of each group
+        int deferred = 0;
+        Arrays.fill(groupStart, 0, size + 1, 0);
+        for(int i = 0; i < size; i++){
+            int root = find(i);
+            if(!serial[root]){
+                groupStart[root + 1]++;
+                deferred++;
+            }
+        }
+        if(deferred < minProcessors) return;
+
+        for(int i = 0; i < size; i++){
+            groupStart[i + 1] += groupStart[i];
+        }
+        System.arraycopy(groupStart, 0, fill, 0, size);
+        for(int i = 0; i < size; i++){
+            int root = find(i);
+            if(!serial[root]){
+                order[fill[root]++] = i;
+                processors.items[i].executor.deferred = true;
+            }
+        }
+
+        //compact to the non-empty groups
+        for(int i = 0; i < size; i++){
+            if(groupStart[i + 1] > groupStart[i]){
+                groupStart[groupCount++] = groupStart[i];
+            }
+        }
+        groupStart[groupCount] = deferred;
+        lastDeferred = deferred;
+        lastGroups = groupCount;
+    }
+
+    /** Runs the budgets of deferred processors. Called after entities are updated. */
+    public static void end(){
+        if(groupCount == 0) return;
+
+        if(pool == null) pool = new ForkJoinPool(Math.max(OS.cores - 1, 1));
+        int grain = Math.max(groupCount / (pool.getParallelism() * 4), 1);
+        pool.invoke(new RunTask(0, groupCount, grain));
+
+        for(int i = 0; i < groupStart[groupCount]; i++){
+            processors.items[order[i]].executor.deferred = false;
+        }
+        groupCount = 0;
+        processors.clear();
+    }
+
+    public static String stats(){
+        return Strings.format("parallel logic: @/@ processors deferred in @ groups", lastDeferred, lastProcessors, lastGroups);
+    }
+
+    static void run(LogicBuild build){
+        LExecutor exec = build.executor;
+        if(exec.pendingBudget > 0){
+            build.accumulator -= exec.runBudget(exec.pendingBudget);
+            exec.yield = false;
+            exec.pendingBudget = 0;
+        }
+    }
+
+    private static void claim(int id, int processor){
+        int other = claimed.get(id, -1);
+        if(other == -1){
+            claimed.put(id, processor);
+        }else{
+            parent[find(other)] = find(processor);
+        }
+    }
+
+    private static int find(int i){
+        while(parent[i] != i){
+            i = parent[i] = parent[parent[i]];
+        }
+        return i;
+    }
+
+    static class RunTask extends RecursiveAction{
+        final int from, to, grain;
+
+        RunTask(int from, int to, int grain){
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from <= grain){
+                for(int g = from; g < to; g++){
+                    for(int i = groupStart[g]; i < groupStart[g + 1]; i++){
+                        run(processors.items[order[i]]);
+                    }
+                }
+            }else{
+                int mid = (from + to) >>> 1;
+                invokeAll(new RunTask(from, mid, grain), new RunTask(mid, to, grain));
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package mindustryX.features.net;
+
+import arc.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+import mindustry.game.EventType.*;
+import mindustry.gen.*;
+import mindustry.net.*;
+import mindustry.net.Administration.*;
+
+import java.io.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * 增量实体快照
+ * Entities whose sync state is unchanged since the last snapshot acknowledged by the client are skipped.
+ * Only clients which announced {@link #capabilityPacket} get this format, others use the vanilla {@code entitySnapshot}.
+ * <p>
+ * Granularity is per entity: {@code writeSync} is generated code, so the state is compared by a hash of its serialized bytes.
+ * A full keyframe is sent every {@link #keyframeInterval} snapshots, which also drops stale baseline entries.
+ * Records carry their length, so clients frame packets on the network thread, see {@link SnapshotStaging}.
+ */
+public class DeltaSnapshot{
+    public static final String capabilityPacket = "mdtx.snapDelta", dataPacket = "mdtx.snap", ackPacket = "mdtx.snapAck";
+    public static final int protocolVersion = 2;
+
+    public static final Config enabled = new Config("deltaSnapshot", "Send delta entity snapshots to MindustryX clients.", false);
+    public static final Config keyframeInterval = new Config("deltaSnapshotKeyframe", "Amount of delta snapshots between two full keyframes.", 20);
+
+    /** same as NetServer.maxSnapshotSize */
+    private static final int maxSnapshotSize = 800;
+    /** Amount of unacknowledged packets remembered per connection. Older ones are treated as lost. */
+    private static final int historySize = 64;
+
+    /** Counters since server start, for measurements. */
+    public static long packetsSent, bytesSent, entitiesSent, entitiesSkipped, keyframes;
+
+    private static final ObjectMap<NetConnection, Baseline> baselines = new ObjectMap<>();
+    private static final SnapshotStream stream = new SnapshotStream();
+    private static final DataOutputStream data = new DataOutputStream(stream);
+    private static final Writes writes = new Writes(data);
+    private static final IntSeq hiddenIds = new IntSeq();
+
+    //client side
+    private static final IntSeq pendingAcks = new IntSeq();
+    private static long maxUpdateSpacing = 200;
+
+    public static void init(){
+        Events.on(WorldLoadEvent.class, e -> baselines.clear());
+        Events.on(PlayerLeave.class, e -> {
+            if(e.player.con != null) baselines.remove(e.player.con);
+        });
+
+        netServer.addPacketHandler(capabilityPacket, (player, content) -> {
+            if(player.con == null || Strings.parseInt(content, 0) != protocolVersion) return;
+            baselines.put(player.con, new Baseline());
+            Call.clientPacketReliable(player.con, capabilityPacket, String.valueOf(Config.snapshotInterval.num()));
+        });
+        netServer.addBinaryPacketHandler(ackPacket, (player, bytes) -> {
+            Baseline baseline = baselines.get(player.con);
+            if(baseline == null) return;
+            for(int i = 0; i + 4 <= bytes.length; i += 4){
+                baseline.ack((bytes[i] & 0xff) << 24 | (bytes[i + 1] & 0xff) << 16 | (bytes[i + 2] & 0xff) << 8 | (bytes[i + 3] & 0xff));
+            }
+        });
+
+        if(netClient == null) return;
+        Events.on(WorldLoadEvent.class, e -> {
+            pendingAcks.clear();
+            SnapshotStaging.reset();
+            //same as the "MDTX" packet, server drops packets before connectConfirm
+            if(net.client()) Time.run(60f, () -> Call.serverPacketReliable(capabilityPacket, String.valueOf(protocolVersion)));
+        });
+        netClient.addPacketHandler(capabilityPacket, interval -> maxUpdateSpacing = Math.max(Strings.parseInt(interval, 200), 16) * 2L);
+        netClient.addBinaryPacketHandler(dataPacket, DeltaSnapshot::readSnapshot);
+        Events.run(Trigger.update, () -> {
+            if(pendingAcks.isEmpty() || !net.client()) return;
+            byte[] bytes = new byte[pendingAcks.size * 4];
+            for(int i = 0; i < pendingAcks.size; i++){
+                int seq = pendingAcks.items[i];
+                bytes[i * 4] = (byte)(seq >>> 24);
+                bytes[i * 4 + 1] = (byte)(seq >>> 16);
+                bytes[i * 4 + 2] = (byte)(seq >>> 8);
+                bytes[i * 4 + 3] = (byte)seq;
+            }
+            pendingAcks.clear();
+            Call.serverBinaryPacketUnreliable(ackPacket, bytes);
+        });
+    }
+
+    /**
+     * Writes the entity part of a snapshot for this player.
+     * @return false if the player should receive the vanilla format instead.
+     */
+    public static boolean writeEntities(Player player) throws IOException{
+        if(!enabled.bool()) return false;
+        Baseline baseline = baselines.get(player.con);
+        if(baseline == null) return false;
+
+        if(++baseline.sinceKeyframe >= keyframeInterval.num()){
+            baseline.sinceKeyframe = 0;
+            baseline.acked.clear();
+            keyframes++;
+        }
+
+        hiddenIds.clear();
+        int sent = 0;
+        beginPacket(baseline);
+
+        for(Syncc entity : Groups.sync){
+            if(entity.isSyncHidden(player)){
+                hiddenIds.add(entity.id());
+                baseline.acked.remove(entity.id());
+                continue;
+            }
+            if(!InterestFilter.shouldSync(entity)) continue;
+
+            int start = stream.size();
+            data.writeInt(entity.id());
+            data.writeByte(entity.classId() & 0xFF);
+            int lengthPos = stream.size();
+            data.writeShort(0);//length, so clients can frame records before reading them
+            entity.beforeWrite();
+            entity.writeSync(writes);
+            data.flush();
+            stream.patchShort(lengthPos, stream.size() - lengthPos - 2);
+
+            int hash = stream.hash(start);
+            if(baseline.acked.get(entity.id(), ~hash) == hash){
+                stream.truncate(start);
+                entitiesSkipped++;
+                continue;
+            }
+
+            baseline.record(entity.id(), hash);
+            sent++;
+            entitiesSent++;
+
+            if(stream.size() > maxSnapshotSize){
+                sendPacket(player, baseline, sent);
+                sent = 0;
+                beginPacket(baseline);
+            }
+        }
+
+        if(sent > 0){
+            sendPacket(player, baseline, sent);
+        }
+
+        if(hiddenIds.size > 0){
+            Call.hiddenSnapshot(player.con, hiddenIds);
+        }
+        return true;
+    }
+
+    private static void beginPacket(Baseline baseline) throws IOException{
+        stream.reset();
+        data.writeInt(baseline.beginSeq());
+        data.writeShort(0);//amount, patched in sendPacket
+    }
+
+    private static void sendPacket(Player player, Baseline baseline, int amount){
+        stream.patchShort(4, amount);
+        byte[] bytes = stream.toByteArray();
+        packetsSent++;
+        bytesSent += bytes.length;
+        baseline.seq++;
+        Call.clientBinaryPacketUnreliable(player.con, dataPacket, bytes);
+    }
+
+    private static void readSnapshot(byte[] bytes){
+        try{
+            SnapshotStaging.Frame frame = SnapshotStaging.take(bytes);
+            if(frame == null){
+                Log.err("Malformed delta entity snapshot");
+                return;
+            }
+            SnapshotStaging.apply(frame, bytes, maxUpdateSpacing);
+            pendingAcks.add(frame.seq);
+        }catch(Exception e){
+            Log.err("Error reading delta entity snapshot", e);
+        }
+    }
+
+    public static String stats(){
+        return Strings.format("delta snapshot: @ clients, @ packets, @ KiB, @ entities sent, @ skipped, @ keyframes",
+        baselines.size, packetsSent, bytesSent / 1024, entitiesSent, entitiesSkipped, keyframes);
+    }
+
+    static class Baseline{
+        /** Seq of the packet being written. */
+        int seq;
+        int sinceKeyframe;
+        /** entity id -> hash of the state the client has acknowledged. */
+        final IntIntMap acked = new IntIntMap();
+        /** Per packet slot: id,hash pairs written into that packet. */
+        final IntSeq[] written = new IntSeq[historySize];
+        final int[] writtenSeq = new int[historySize];
+
+        Baseline(){
+            for(int i = 0; i < historySize; i++){
+                written[i] = new IntSeq();
+                writtenSeq[i] = -1;
+            }
+        }
+
+        int beginSeq(){
+            int slot = seq % historySize;
+            written[slot].clear();
+            writtenSeq[slot] = seq;
+            return seq;
+        }
+
+        void record(int id, int hash){
+            written[seq % historySize].add(id, hash);
+        }
+
+        void ack(int ackSeq){
+            if(ackSeq < 0) return;
+            int slot = ackSeq % historySize;
+            if(writtenSeq[slot] != ackSeq) return;
+            IntSeq pairs = written[slot];
+            for(int i = 0; i < pairs.size; i += 2){
+                acked.put(pairs.items[i], pairs.items[i + 1]);
+            }
+            writtenSeq[slot] = -1;
+            pairs.clear();
+        }
+    }
+
+    static class SnapshotStream extends ReusableByteOutStream{
+        void truncate(int size){
+            count = size;
+        }
+
+        void patchShort(int offset, int value){
+            buf[offset] = (byte)(value >>> 8);
+            buf[offset + 1] = (byte)value;
+        }
+
+        /** FNV-1a of bytes written since {@code start}. */
+        int hash(int start){
+            int h = 0x811c9dc5;
+            for(int i = start; i < count; i++){
+                h = (h ^ (buf[i] & 0xff)) * 0x01000193;
+            }
+            return h;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package mindustryX.features.net;
+
+import arc.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.game.EventType.*;
+import mindustry.gen.*;
+import mindustry.net.*;
+import mindustry.net.Administration.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * 实体同步兴趣区域
+ * Units around a player's viewport are synced every snapshot, units in the far range every {@link #farInterval} snapshots,
+ * and units further away only when the client hasn't seen them yet. Removal is still sent by the usual remote calls.
+ * <p>
+ * Every sync entity is visited anyway to find new ones, so a rect test per unit is used instead of a tree query.
+ */
+public class InterestFilter{
+    public static final Config enabled = new Config("interestFilter", "Sync units far away from a player's viewport at a reduced rate.", false);
+    public static final Config nearMargin = new Config("interestNearMargin", "Margin around the viewport which is synced every snapshot, in tiles.", 12);
+    public static final Config farRange = new Config("interestFarRange", "Range beyond the near area which is synced at a reduced rate, in tiles. Units further away are only sent when they appear.", 60);
+    public static final Config farInterval = new Config("interestFarInterval", "Units in the far range are synced once every this many snapshots.", 5);
+    /** Snapshots between two refreshes of out-of-range units, also drops ids of removed units. */
+    private static final int knownRefreshInterval = 300;
+
+    /** Counters since server start, for measurements. */
+    public static long unitsSynced, unitsDeferred;
+
+    private static final ObjectMap<NetConnection, State> states = new ObjectMap<>();
+    private static final Rect near = new Rect(), far = new Rect();
+    private static @Nullable State current;
+    private static boolean farPass;
+
+    public static void init(){
+        Events.on(WorldLoadEvent.class, e -> states.clear());
+        Events.on(PlayerLeave.class, e -> {
+            if(e.player.con != null) states.remove(e.player.con);
+        });
+    }
+
+    /** Prepare the filter for a snapshot sent to this player, must be called before {@link #shouldSync}. */
+    public static void begin(Player player){
+        current = null;
+        NetConnection con = player.con;
+        if(!enabled.bool() || con == null || con.viewWidth <= 0f || con.viewHeight <= 0f) return;
+
+        State state = states.get(con, State::new);
+        if(++state.snapshots % knownRefreshInterval == 0){
+            state.known.clear();
+        }
+        farPass = state.snapshots % Math.max(farInterval.num(), 1) == 0;
+
+        float margin = nearMargin.num() * tilesize;
+        near.setCentered(con.viewX, con.viewY, con.viewWidth + margin * 2f, con.viewHeight + margin * 2f);
+        far.set(near).grow(farRange.num() * tilesize * 2f);
+        current = state;
+    }
+
+    public static boolean shouldSync(Syncc entity){
+        State state = current;
+        if(state == null || !(entity instanceof Unitc unit)) return true;
+
+        float x = unit.x(), y = unit.y();
+        if(near.contains(x, y) || (farPass && far.contains(x, y)) || !state.known.contains(unit.id())){
+            state.known.add(unit.id());
+            unitsSynced++;
+            return true;
+        }
+        unitsDeferred++;
+        return false;
+    }
+
+    public static String stats(){
+        return Strings.format("interest filter: @ units synced, @ deferred", unitsSynced, unitsDeferred);
+    }
+
+    static class State{
+        int snapshots;
+        /** Units which were sent to the client at least once. */
+        final IntSet known = new IntSet();
+    }
+}
@@ -0,0 +1,137 @@
+package mindustryX.features.net;
+
+import arc.util.*;
+import arc.util.io.*;
+import mindustry.core.*;
+import mindustry.gen.*;
+import mindustry.net.*;
+
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * 快照预解码
+ * Splits reading {@link DeltaSnapshot} packets between the network thread and the game thread.
+ * Every record carries its length, so once the network thread has read a packet, it frames its contents into primitive arrays
+ * (id, class id, offset, length) and checks them. The game thread then only looks up entities and applies their state.
+ * <p>
+ * Only the framing moves off the game thread, the fields themselves are still decoded there: {@code readSync} is generated per entity class
+ * and reads content and world references, which can only be resolved on the game thread.
+ * The vanilla {@code entitySnapshot} is not staged, its records have no length, so they can't be framed without {@code readSync}.
+ */
+public class SnapshotStaging{
+    /**
+     * Frames by the contents array of their packet, which the packet handler gets as is.
+     * Weak keys, so the frames of packets which are dropped before being handled go away with them.
+     */
+    private static final Map<byte[], Frame> staged = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final ByteBufferInput input = new ByteBufferInput();
+    private static final Reads reads = new Reads(input);
+
+    /**
+     * Counters since client start, for measurements. Framing is on the network thread and only reads record headers,
+     * applying is on the game thread and includes decoding the fields.
+     */
+    public static final AtomicLong stagedFrames = new AtomicLong(), frameNanos = new AtomicLong();
+    public static long unstagedFrames, appliedFrames, appliedEntities, applyNanos;
+
+    /** Drops staged frames, called when the client loads a world. */
+    public static void reset(){
+        staged.clear();
+    }
+
+    /** Called by the packet serializer on the network thread for every packet it has read. */
+    public static void stage(Packet packet){
+        if(!(packet instanceof ClientBinaryPacketUnreliableCallPacket p) || p.contents == null || !DeltaSnapshot.dataPacket.equals(p.type)) return;
+        long start = Time.nanos();
+
+        Frame frame = Frame.parse(p.contents);
+        if(frame != null){
+            staged.put(p.contents, frame);
+            stagedFrames.incrementAndGet();
+            frameNanos.addAndGet(Time.timeSinceNanos(start));
+        }
+    }
+
+    /**
+     * The frame staged for these packet contents, framing them now if they were not staged, e.g. when received through another net provider.
+     * @return null if the packet is malformed.
+     */
+    public static @Nullable Frame take(byte[] bytes){
+        Frame frame = staged.remove(bytes);
+        if(frame != null) return frame;
+
+        unstagedFrames++;
+        return Frame.parse(bytes);
+    }
+
+    /** Applies all records of a frame of these contents, see {@link NetClient#readSyncEntity(int, int, Reads)}. */
+    public static void apply(Frame frame, byte[] bytes, long maxUpdateSpacing){
+        long start = Time.nanos();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        input.setBuffer(buffer);
+        for(int i = 0; i < frame.amount; i++){
+            //every record starts at its own offset, so a record read wrongly does not shift the following ones
+            buffer.position(frame.offsets[i]);
+            Syncc entity = NetClient.readSyncEntity(frame.ids[i], frame.classIds[i], reads);
+
+            //entity may be skipped for a long time, don't interpolate over the whole gap.
+            if(entity.updateSpacing() > maxUpdateSpacing){
+                entity.updateSpacing(maxUpdateSpacing);
+            }
+        }
+        applied(start, frame.amount);
+    }
+
+    /** Counts the game thread time of applying entities, also used for vanilla snapshots. */
+    public static void applied(long start, int entities){
+        applyNanos += Time.timeSinceNanos(start);
+        appliedFrames++;
+        appliedEntities += entities;
+    }
+
+    /** Average time per packet of framing on the network thread, and of decoding and applying on the game thread. */
+    public static String summary(){
+        long staged = stagedFrames.get();
+        return Strings.format("Snapshot(us) frame/apply: @/@", staged == 0 ? 0 : frameNanos.get() / staged / 1000, appliedFrames == 0 ? 0 : applyNanos / appliedFrames / 1000);
+    }
+
+    /**
+     * Record headers of one delta snapshot packet: seq int, amount u16, then amount records of id int, class id u8, length u16 and the sync state.
+     * Doesn't reference the contents, so it doesn't keep them from being collected while staged.
+     */
+    public static class Frame{
+        public final int seq, amount;
+        public final int[] ids, classIds, offsets, lengths;
+
+        Frame(int seq, int amount){
+            this.seq = seq;
+            this.amount = amount;
+            ids = new int[amount];
+            classIds = new int[amount];
+            offsets = new int[amount];
+            lengths = new int[amount];
+        }
+
+        /** @return null if the data is malformed or references unknown entity classes. */
+        static @Nullable Frame parse(byte[] data){
+            if(data.length < 6) return null;
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            int seq = buffer.getInt(), amount = buffer.getShort() & 0xffff;
+            if(amount * 7 > buffer.remaining()) return null;
+            Frame frame = new Frame(seq, amount);
+
+            for(int i = 0; i < frame.amount; i++){
+                if(buffer.remaining() < 7) return null;
+                frame.ids[i] = buffer.getInt();
+                frame.classIds[i] = buffer.get() & 0xff;
+                frame.lengths[i] = buffer.getShort() & 0xffff;
+                frame.offsets[i] = buffer.position();
+                if(frame.lengths[i] > buffer.remaining() || EntityMapping.map(frame.classIds[i]) == null) return null;
+                buffer.position(buffer.position() + frame.lengths[i]);
+            }
+            return frame;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package mindustryX.features.net;
+
+import arc.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.game.EventType.*;
+import mindustry.gen.*;
+import mindustry.net.*;
+import mindustry.net.Administration.*;
+import mindustry.net.Packets.*;
+import mindustry.world.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.zip.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * 共享世界数据编码
+ * Sends world data to joining players without encoding and compressing the whole world on the main thread for each of them.
+ * The map part ({@link NetworkIO#writeWorldMap}) is written once per tick and world, and shared by everyone joining in that tick,
+ * like all players after a map change. Only the rules, state and player part ({@link NetworkIO#writeWorldHead}) is written per player.
+ * <p>
+ * The map part is shared per tick, not per revision of the world: it is written again on the next tick even if no block changed,
+ * because there is no cheap way to tell. So a join storm spread over several ticks still writes and compresses the map once per tick.
+ * <p>
+ * Both parts are compressed on a background thread into raw deflate blocks, which are joined into the same zlib stream
+ * {@link NetworkIO#writeWorld} would produce, so clients read it as usual. The checksum of the joined data is combined from both parts.
+ */
+public class WorldDataEncoder{
+    public static final Config enabled = new Config("sharedWorldData", "Encode the map once for all players joining in the same tick, and compress world data on a background thread.", false);
+
+    private static @Nullable ExecutorService executor;
+    private static @Nullable CompletableFuture<Segment> cachedMap;
+    private static long cachedFrame = -1;
+    private static int cachedLoads = -1, worldLoads;
+    private static @Nullable Tiles cachedTiles;
+    /** Latest request of each connection, so an older stream is never sent after a newer one. */
+    private static final ObjectIntMap<NetConnection> tickets = new ObjectIntMap<>();
+    private static int lastTicket;
+
+    /** Counters since server start, for measurements. */
+    public static long encodes, sharedMaps, mainThreadNanos;
+    private static final AtomicLong compressNanos = new AtomicLong();
+    private static volatile long lastBytes;
+
+    public static void init(){
+        Events.on(WorldLoadEvent.class, e -> invalidate());
+        Events.on(PlayerLeave.class, e -> {
+            if(e.player.con != null) tickets.remove(e.player.con, 0);
+        });
+    }
+
+    /** Drops the shared map part, must be called when the world changes without a {@link WorldLoadEvent} in the middle of a tick. */
+    public static void invalidate(){
+        worldLoads++;
+        cachedMap = null;
+    }
+
+    /** Replaces {@link mindustry.core.NetServer#sendWorldData}. The stream is sent on the main thread once it is compressed. */
+    public static void send(Player player){
+        NetConnection con = player.con;
+        int ticket = ++lastTicket;
+        tickets.put(con, ticket);
+
+        encode(player).whenComplete((bytes, error) -> Core.app.post(() -> {
+            if(tickets.get(con, 0) != ticket) return;
+            tickets.remove(con, 0);
+
+            if(error != null){
+                Log.err("Failed to encode world data for " + player.name, error);
+                con.kick("Failed to send world data.");
+                return;
+            }
+            if(!con.isConnected()) return;
+
+            WorldStream data = new WorldStream();
+            data.stream = new ByteArrayInputStream(bytes);
+            con.sendStream(data);
+            Log.debug("Packed @ bytes of world data to @ (@ / @)", bytes.length, player.name, con.address, player.uuid());
+        }));
+    }
+
+    /**
+     * Writes the world for this player on the calling thread, which must be the main thread.
+     * @return the zlib stream of {@link NetworkIO#writeWorld}, completed on a background thread.
+     */
+    public static CompletableFuture<byte[]> encode(Player player){
+        long start = Time.nanos();
+        try{
+            byte[] head = write(stream -> NetworkIO.writeWorldHead(player, stream));
+
+            long frame = Core.graphics.getFrameId();
+            if(cachedMap == null || cachedFrame != frame || cachedLoads != worldLoads || cachedTiles != world.tiles){
+                byte[] map = write(NetworkIO::writeWorldMap);
+                cachedMap = CompletableFuture.supplyAsync(() -> Segment.compress(map, true), executor());
+                cachedFrame = frame;
+                cachedLoads = worldLoads;
+                cachedTiles = world.tiles;
+            }else{
+                sharedMaps++;
+            }
+            encodes++;
+
+            return CompletableFuture.supplyAsync(() -> Segment.compress(head, false), executor()).thenCombine(cachedMap, WorldDataEncoder::join);
+        }catch(IOException e){
+            CompletableFuture<byte[]> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }finally{
+            mainThreadNanos += Time.timeSinceNanos(start);
+        }
+    }
+
+    public static String stats(){
+        return Strings.format("world data: @ encodes, @ shared maps, main thread @ms, compression @ms, last @ bytes",
+        encodes, sharedMaps, Strings.fixed(mainThreadNanos / (float)Time.nanosPerMilli, 2), Strings.fixed(compressNanos.get() / (float)Time.nanosPerMilli, 2), lastBytes);
+    }
+
+    static byte[] write(Part part) throws IOException{
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream stream = new DataOutputStream(out);
+        part.write(stream);
+        stream.flush();
+        return out.toByteArray();
+    }
+
+    static byte[] join(Segment head, Segment map){
+        byte[] out = new byte[2 + head.data.length + map.data.length + 4];
+        //zlib header of the default compression level, as written by a DeflaterOutputStream
+        out[0] = 0x78;
+        out[1] = (byte)0x9c;
+        System.arraycopy(head.data, 0, out, 2, head.data.length);
+        System.arraycopy(map.data, 0, out, 2 + head.data.length, map.data.length);
+
+        int adler = combineAdler(head.adler, map.adler, map.length), end = out.length - 4;
+        out[end] = (byte)(adler >>> 24);
+        out[end + 1] = (byte)(adler >>> 16);
+        out[end + 2] = (byte)(adler >>> 8);
+        out[end + 3] = (byte)adler;
+        lastBytes = out.length;
+        return out;
+    }
+
+    /** Adler-32 of two joined parts from their own checksums, as zlib's adler32_combine. */
+    static int combineAdler(int adler1, int adler2, long length2){
+        final int base = 65521;
+        long rem = length2 % base;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (rem * sum1) % base;
+        sum1 += (adler2 & 0xffff) + base - 1;
+        sum2 += ((adler1 >>> 16) & 0xffff) + ((adler2 >>> 16) & 0xffff) + base - rem;
+        if(sum1 >= base) sum1 -= base;
+        if(sum1 >= base) sum1 -= base;
+        if(sum2 >= base * 2L) sum2 -= base * 2L;
+        if(sum2 >= base) sum2 -= base;
+        return (int)(sum1 | (sum2 << 16));
+    }
+
+    static ExecutorService executor(){
+        if(executor == null) executor = Threads.executor("World Data Encoder", Math.max(OS.cores - 1, 1));
+        return executor;
+    }
+
+    interface Part{
+        void write(DataOutputStream stream) throws IOException;
+    }
+
+    /** Raw deflate blocks of one part. Every part but the last ends with a sync flush, so parts can be appended. */
+    static class Segment{
+        final byte[] data;
+        final int adler, length;
+
+        Segment(byte[] data, int adler, int length){
+            this.data = data;
+            this.adler = adler;
+            this.length = length;
+        }
+
+        static Segment compress(byte[] bytes, boolean last){
+            long start = Time.nanos();
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            try{
+                deflater.setInput(bytes);
+                if(last) deflater.finish();
+                while(true){
+                    int written = deflater.deflate(buffer, 0, buffer.length, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, written);
+                    //a sync flush is done when it doesn't fill the buffer
+                    if(last ? deflater.finished() : written < buffer.length) break;
+                }
+            }finally{
+                deflater.end();
+            }
+
+            Adler32 adler = new Adler32();
+            adler.update(bytes);
+            compressNanos.addAndGet(Time.timeSinceNanos(start));
+            return new Segment(out.toByteArray(), (int)adler.getValue(), bytes.length);
+        }
+    }
+}
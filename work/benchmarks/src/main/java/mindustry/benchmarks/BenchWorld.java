@@ -0,0 +1,199 @@
+package mindustry.benchmarks;
+
+import arc.*;
+import arc.backend.headless.*;
+import arc.files.*;
+import arc.func.*;
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.Log.*;
+import mindustry.*;
+import mindustry.content.*;
+import mindustry.core.*;
+import mindustry.core.GameState.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+import mindustry.mod.*;
+import mindustry.net.*;
+import mindustry.world.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Boots a headless game once per JVM (the same way ApplicationTests does) and generates seeded worlds.
+ * The same seed and size always produce the same tiles, buildings and units.
+ */
+public class BenchWorld{
+    private static boolean initialized;
+
+    public static void boot(){
+        if(initialized) return;
+        initialized = true;
+
+        boolean[] begins = {false};
+        Throwable[] exceptionThrown = {null};
+        Log.useColors = false;
+        Log.level = LogLevel.warn;
+
+        ApplicationCore core = new ApplicationCore(){
+            @Override
+            public void setup(){
+                //core/assets
+                Core.settings.setDataDirectory(new Fi("../../benchmarks/build/bench_data"));
+                headless = true;
+                net = new Net(null);
+                tree = new FileTree();
+                Vars.init();
+                world = new World(){
+                    @Override
+                    public float getDarkness(int x, int y){
+                        return 0;
+                    }
+                };
+                content.createBaseContent();
+                mods.loadScripts();
+                content.createModContent();
+
+                add(logic = new Logic());
+                add(netServer = new NetServer());
+
+                content.init();
+
+                mods.eachClass(Mod::init);
+            }
+
+            @Override
+            public void init(){
+                super.init();
+                begins[0] = true;
+                //the loop is driven by the benchmarks
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        new HeadlessApplication(core, throwable -> exceptionThrown[0] = throwable);
+
+        try{
+            while(!begins[0]){
+                if(exceptionThrown[0] != null){
+                    throw new RuntimeException(exceptionThrown[0]);
+                }
+                Thread.sleep(10);
+            }
+        }catch(InterruptedException e){
+            throw new RuntimeException(e);
+        }
+
+        Time.setDeltaProvider(() -> 1f);
+        Time.update();
+    }
+
+    /**
+     * Generates a square world with walls, conveyor loops, power clusters and the cores of two teams, then spawns units.
+     * Items are put on every conveyor, so the loops are never idle.
+     */
+    public static void generate(long seed, int size, int units){
+        boot();
+        Rand rand = new Rand(seed);
+        Mathf.rand.setSeed(seed);
+
+        logic.reset();
+        state.rules.waveTeam = Team.crux;
+        state.rules.canGameOver = false;
+        state.rules.borderDarkness = false;
+
+        world.loadGenerator(size, size, tiles -> {
+            for(int x = 0; x < size; x++){
+                for(int y = 0; y < size; y++){
+                    tiles.set(x, y, new Tile(x, y, Blocks.stone, Blocks.air, Blocks.air));
+                }
+            }
+
+            tiles.getn(8, 8).setBlock(Blocks.coreShard, Team.sharded, 0);
+            tiles.getn(size - 9, size - 9).setBlock(Blocks.coreShard, Team.crux, 0);
+            int area = size * size;
+
+            for(int i = 0; i < area / 400; i++){
+                int w = rand.random(6, 20), h = rand.random(6, 20), x = rand.random(2, size - w - 2), y = rand.random(2, size - h - 2);
+                if(free(tiles, x - 1, y - 1, w + 2, h + 2)) conveyorLoop(tiles, x, y, w, h);
+            }
+
+            for(int i = 0; i < area / 600; i++){
+                int w = rand.random(4, 12), h = rand.random(4, 12), x = rand.random(2, size - w - 2), y = rand.random(2, size - h - 2);
+                if(free(tiles, x - 1, y - 1, w + 2, h + 2)) powerCluster(tiles, x, y, w, h);
+            }
+
+            //wall clusters to give the flowfields some shape
+            for(int i = 0; i < area / 300; i++){
+                int r = rand.random(1, 4), x = rand.random(r + 1, size - r - 2), y = rand.random(r + 1, size - r - 2);
+                if(!free(tiles, x - r - 1, y - r - 1, r * 2 + 3, r * 2 + 3)) continue;
+                for(int dx = -r; dx <= r; dx++){
+                    for(int dy = -r; dy <= r; dy++){
+                        if(dx * dx + dy * dy <= r * r) tiles.getn(x + dx, y + dy).setBlock(Blocks.stoneWall);
+                    }
+                }
+            }
+        });
+
+        for(Building build : allBuildings(b -> b.block == Blocks.conveyor)){
+            for(int i = 0; i < 3 && build.acceptItem(build, Items.copper); i++){
+                build.handleItem(build, Items.copper);
+            }
+        }
+
+        for(int i = 0; i < units; i++){
+            Team team = i % 2 == 0 ? Team.sharded : Team.crux;
+            Tile tile = world.tiles.getn(rand.random(1, size - 2), rand.random(1, size - 2));
+            if(tile.solid()) continue;
+            Unit unit = (i % 3 == 0 ? UnitTypes.flare : UnitTypes.dagger).spawn(team, tile.worldx(), tile.worldy(), rand.random(360f));
+            unit.updateLastPosition();
+        }
+
+        state.set(State.playing);
+        state.teams.updateTeamStats();
+    }
+
+    public static Seq<Building> allBuildings(Boolf<Building> pred){
+        Seq<Building> out = new Seq<>();
+        for(Tile tile : world.tiles){
+            if(tile.build != null && tile.isCenter() && pred.get(tile.build)){
+                out.add(tile.build);
+            }
+        }
+        return out;
+    }
+
+    static boolean free(Tiles tiles, int x, int y, int w, int h){
+        for(int cx = x; cx < x + w; cx++){
+            for(int cy = y; cy < y + h; cy++){
+                Tile tile = tiles.get(cx, cy);
+                if(tile == null || tile.block() != Blocks.air) return false;
+            }
+        }
+        return true;
+    }
+
+    /** A ring of conveyors running counter-clockwise. */
+    static void conveyorLoop(Tiles tiles, int x, int y, int w, int h){
+        int x2 = x + w - 1, y2 = y + h - 1;
+        for(int cx = x; cx < x2; cx++) tiles.getn(cx, y).setBlock(Blocks.conveyor, Team.sharded, 0);
+        for(int cy = y; cy < y2; cy++) tiles.getn(x2, cy).setBlock(Blocks.conveyor, Team.sharded, 1);
+        for(int cx = x2; cx > x; cx--) tiles.getn(cx, y2).setBlock(Blocks.conveyor, Team.sharded, 2);
+        for(int cy = y2; cy > y; cy--) tiles.getn(x, cy).setBlock(Blocks.conveyor, Team.sharded, 3);
+    }
+
+    /** Solar panels, batteries and menders in diagonal stripes, which form a single graph through adjacency. */
+    static void powerCluster(Tiles tiles, int x, int y, int w, int h){
+        for(int cx = x; cx < x + w; cx++){
+            for(int cy = y; cy < y + h; cy++){
+                Block block = switch((cx + cy) % 3){
+                    case 0 -> Blocks.solarPanel;
+                    case 1 -> Blocks.battery;
+                    default -> Blocks.mender;
+                };
+                tiles.getn(cx, cy).setBlock(block, Team.sharded, 0);
+            }
+        }
+    }
+}
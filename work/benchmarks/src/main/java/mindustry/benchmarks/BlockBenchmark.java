@@ -0,0 +1,52 @@
+package mindustry.benchmarks;
+
+import arc.struct.*;
+import mindustry.content.*;
+import mindustry.gen.*;
+import mindustry.world.blocks.power.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/** Block updates of a generated world: every conveyor and every power graph, once per invocation. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockBenchmark{
+    @Param({"1"})
+    public long seed;
+    @Param({"300"})
+    public int size;
+
+    Building[] conveyors;
+    PowerGraph[] graphs;
+
+    @Setup
+    public void setup(){
+        BenchWorld.generate(seed, size, 0);
+        conveyors = BenchWorld.allBuildings(b -> b.block == Blocks.conveyor).toArray(Building.class);
+
+        ObjectSet<PowerGraph> set = new ObjectSet<>();
+        for(Building build : BenchWorld.allBuildings(b -> b.power != null)){
+            set.add(build.power.graph);
+        }
+        graphs = set.toSeq().toArray(PowerGraph.class);
+    }
+
+    @Benchmark
+    public void conveyorUpdate(){
+        for(Building build : conveyors){
+            build.updateTile();
+        }
+    }
+
+    @Benchmark
+    public void powerGraphUpdate(){
+        for(PowerGraph graph : graphs){
+            graph.update();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package mindustry.benchmarks;
+
+import arc.math.geom.*;
+import arc.struct.*;
+import mindustry.ai.*;
+import mindustry.content.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+import mindustry.world.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Time from commanding a group of ground units across the map until all of them are moving, on a fresh {@link ControlPathfinder},
+ * so building the clusters is included. Compares the shared path cache and building the clusters on several threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControlPathBenchmark{
+    @Param({"1"})
+    public long seed;
+    @Param({"300"})
+    public int size;
+    @Param({"300"})
+    public int units;
+    @Param({"false", "true"})
+    public boolean cache;
+    @Param({"1", "4"})
+    public int threads;
+
+    Seq<Unit> group = new Seq<>();
+    Vec2 target = new Vec2();
+    ControlPathfinder path;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchWorld.generate(seed, size, 0);
+        //the benchmark drives its own pathfinders
+        controlPath.stop();
+
+        //a blob of daggers near the sharded core, commanded to the crux core
+        for(int x = 16; x < size / 2 && group.size < units; x++){
+            for(int y = 16; y <= x && group.size < units; y++){
+                Tile tile = world.tile(x, y);
+                if(tile.solid()) continue;
+                Unit unit = UnitTypes.dagger.spawn(Team.sharded, tile.worldx(), tile.worldy(), 0f);
+                unit.updateLastPosition();
+                group.add(unit);
+            }
+        }
+
+        Tile goal = world.tile(size - 16, size - 16);
+        while(goal.solid()) goal = world.tile(goal.x - 1, goal.y);
+        target.set(goal.worldx(), goal.worldy());
+    }
+
+    @Setup(Level.Invocation)
+    public void createPathfinder(){
+        path = new ControlPathfinder();
+        path.cachePaths = cache;
+        path.buildThreads = threads;
+    }
+
+    @Benchmark
+    public long command() throws InterruptedException{
+        return path.commandAll(group, target, 10_000);
+    }
+}
@@ -0,0 +1,92 @@
+package mindustry.benchmarks;
+
+import arc.math.*;
+import mindustry.content.*;
+import mindustry.entities.*;
+import mindustry.entities.bullet.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+import mindustry.net.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/** Entity hot paths on a generated world with units of two teams and stationary bullets. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityBenchmark{
+    static final int queries = 256;
+
+    @Param({"1"})
+    public long seed;
+    @Param({"200"})
+    public int size;
+    @Param({"500", "2000"})
+    public int units;
+
+    float[] queryX = new float[queries], queryY = new float[queries];
+    Player player;
+
+    @Setup
+    public void setup(){
+        BenchWorld.generate(seed, size, units);
+        Rand rand = new Rand(seed);
+
+        //bullets pierce and deal no damage, so every invocation sees the same entities
+        BulletType type = UnitTypes.dagger.weapons.first().bullet.copy();
+        type.pierce = true;
+        type.pierceBuilding = true;
+        type.damage = 0f;
+        type.speed = 0f;
+        type.lifetime = Float.MAX_VALUE;
+        for(int i = 0; i < units; i++){
+            Bullet bullet = type.create(null, i % 2 == 0 ? Team.sharded : Team.crux, rand.random(world.unitWidth()), rand.random(world.unitHeight()), rand.random(360f));
+            if(bullet != null) bullet.updateLastPosition();
+        }
+
+        for(int i = 0; i < queries; i++){
+            queryX[i] = rand.random(world.unitWidth());
+            queryY[i] = rand.random(world.unitHeight());
+        }
+
+        player = Player.create();
+        player.team(Team.sharded);
+        player.con = new NetConnection("127.0.0.1"){
+            @Override
+            public void send(Object object, boolean reliable){
+            }
+
+            @Override
+            public void close(){
+            }
+        };
+        player.add();
+    }
+
+    @Benchmark
+    public void collide(){
+        collisions.collide(Groups.bullet);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(queries)
+    public void closestTarget(Blackhole bh){
+        for(int i = 0; i < queries; i++){
+            bh.consume(Units.closestTarget(Team.sharded, queryX[i], queryY[i], 30f * tilesize));
+        }
+    }
+
+    /** Only the snapshot is assembled: without a provider, {@code net.server()} is false and the generated calls send nothing. */
+    @Benchmark
+    public void writeEntitySnapshot() throws IOException{
+        netServer.writeEntitySnapshot(player);
+    }
+}
@@ -0,0 +1,60 @@
+package mindustry.benchmarks;
+
+import arc.math.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import mindustry.ai.*;
+import mindustry.gen.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Closest flagged building with a linear scan and with {@link FlagIndex}, to find where the index starts to pay off
+ * ({@link BlockIndexer#minIndexedFlagged}). Does not need a game world.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlagIndexBenchmark{
+    static final int queries = 1024;
+    /** 500x500 tiles */
+    static final int mapSize = 500;
+
+    @Param({"8", "32", "128", "1024", "8192"})
+    public int buildings;
+    @Param({"scan", "index"})
+    public String method;
+
+    Seq<Building> list = new Seq<>();
+    FlagIndex index = new FlagIndex(mapSize, mapSize);
+    float[] queryX = new float[queries], queryY = new float[queries];
+
+    @Setup
+    public void setup(){
+        Rand rand = new Rand(1);
+        for(int i = 0; i < buildings; i++){
+            Building build = Building.create();
+            build.x = rand.random(mapSize * 8f);
+            build.y = rand.random(mapSize * 8f);
+            list.add(build);
+            index.add(build);
+        }
+        for(int i = 0; i < queries; i++){
+            queryX[i] = rand.random(mapSize * 8f);
+            queryY[i] = rand.random(mapSize * 8f);
+        }
+    }
+
+    @Benchmark
+    public void closest(Blackhole hole){
+        boolean scan = method.equals("scan");
+        for(int i = 0; i < queries; i++){
+            hole.consume(scan ? Geometry.findClosest(queryX[i], queryY[i], list) : index.findClosest(queryX[i], queryY[i]));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package mindustry.benchmarks;
+
+import mindustry.logic.*;
+import mindustryX.features.logic.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/** Logic processor instruction throughput, interpreted and with {@link LogicCompiler}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogicBenchmark{
+    static final int instructions = 1000;
+
+    @Param({"arithmetic", "branches"})
+    public String program;
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    LExecutor exec;
+
+    @Setup
+    public void setup(){
+        BenchWorld.boot();
+        LogicCompiler.enabled.set(compiled);
+        exec = new LExecutor();
+        exec.load(LAssembler.assemble(program.equals("arithmetic") ? """
+        op add i i 1
+        op mul x i 3
+        op mod y x 7
+        op idiv z x 4
+        op sub w z y
+        set v w
+        jump 0 lessThan i 100000
+        set i 0
+        """ : """
+        op add i i 1
+        jump 4 greaterThan i 10
+        op add a a 1
+        jump 0 always
+        op emod b i 3
+        jump 7 equal b 0
+        print b
+        select c lessThan a i a i
+        jump 0 lessThan i 1000
+        set i 0
+        """, false));
+    }
+
+    /** Always interpreted, {@link #compiled} only applies to {@link #runBudget()}. */
+    @Benchmark
+    @OperationsPerInvocation(instructions)
+    public void runOnce(){
+        for(int i = 0; i < instructions; i++){
+            exec.runOnce();
+        }
+        exec.textBuffer.setLength(0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(instructions)
+    public int runBudget(){
+        int ran = exec.runBudget(instructions);
+        exec.textBuffer.setLength(0);
+        return ran;
+    }
+}
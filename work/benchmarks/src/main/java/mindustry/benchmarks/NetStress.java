@@ -0,0 +1,153 @@
+package mindustry.benchmarks;
+
+import arc.net.*;
+import arc.util.*;
+import mindustry.net.ArcNetProvider.*;
+
+import java.nio.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Loopback stress test of the arcnet server, which compares {@link Server#setSelectorThreads(int) selector thread} counts.
+ * Every client keeps a few probes in flight, which the server echoes back; reports echoed packets per second and round trip percentiles.
+ * <p>
+ * Usage: {@code gradlew benchmarks:netStress [-PnetStressArgs="<clients> <seconds> <threads,threads...> [inFlight] [padding]"]}
+ */
+public class NetStress{
+    static final int port = 6590;
+    /** Latency histogram resolution in microseconds; the last bucket counts everything slower. */
+    static final int bucketMicros = 10, buckets = 100_000;
+
+    public static void main(String[] args) throws Exception{
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String[] modes = (args.length > 2 ? args[2] : "1,4").split(",");
+        int inFlight = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        int padding = args.length > 4 ? Integer.parseInt(args[4]) : 64;
+
+        System.out.println("clients: " + clients + ", seconds: " + seconds + ", in flight: " + inFlight + ", padding: " + padding + " bytes");
+        for(String mode : modes){
+            run(Integer.parseInt(mode.trim()), clients, seconds, inFlight, padding);
+        }
+        System.exit(0);
+    }
+
+    static void run(int threads, int clientCount, int seconds, int inFlight, int padding) throws Exception{
+        Server server = new Server(32768, 16384, new ProbeSerializer());
+        server.setSelectorThreads(threads);
+        server.addListener(new NetListener(){
+            @Override
+            public void received(Connection connection, Object object){
+                if(object instanceof Probe) connection.sendTCP(object);
+            }
+        });
+        server.bind(port);
+        Thread serverThread = new Thread(server, "Stress Server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        AtomicLongArray histogram = new AtomicLongArray(buckets);
+        AtomicLong echoed = new AtomicLong();
+        AtomicBoolean recording = new AtomicBoolean(), running = new AtomicBoolean(true);
+        Client[] clients = new Client[clientCount];
+
+        for(int i = 0; i < clientCount; i++){
+            Client client = new Client(8192, 16384, new ProbeSerializer());
+            client.addListener(new NetListener(){
+                @Override
+                public void received(Connection connection, Object object){
+                    if(!(object instanceof Probe probe)) return;
+                    if(recording.get()){
+                        long micros = (System.nanoTime() - probe.sent) / 1000;
+                        histogram.incrementAndGet((int)Math.min(micros / bucketMicros, buckets - 1));
+                        echoed.incrementAndGet();
+                    }
+                    if(running.get()){
+                        probe.sent = System.nanoTime();
+                        connection.sendTCP(probe);
+                    }
+                }
+            });
+            client.start();
+            client.connect(5000, "127.0.0.1", port);
+            clients[i] = client;
+        }
+
+        for(Client client : clients){
+            for(int i = 0; i < inFlight; i++){
+                client.sendTCP(new Probe(padding));
+            }
+        }
+
+        //warmup, then measure
+        Thread.sleep(2000);
+        recording.set(true);
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        recording.set(false);
+        double elapsed = (System.nanoTime() - start) / (double)Time.nanosPerMilli / 1000.0;
+        running.set(false);
+
+        long total = echoed.get();
+        System.out.println(Strings.format("selector threads: @ | @ packets/s | p50 @ms p99 @ms p999 @ms",
+        threads, Strings.fixed((float)(total / elapsed), 0), percentile(histogram, total, 0.5), percentile(histogram, total, 0.99), percentile(histogram, total, 0.999)));
+
+        for(Client client : clients){
+            client.close();
+            client.stop();
+        }
+        server.stop();
+        server.close();
+        serverThread.join(2000);
+    }
+
+    static String percentile(AtomicLongArray histogram, long total, double fraction){
+        long target = (long)Math.ceil(total * fraction), seen = 0;
+        for(int i = 0; i < buckets; i++){
+            seen += histogram.get(i);
+            if(seen >= target && target > 0){
+                return Strings.fixed((i + 1) * bucketMicros / 1000f, 2);
+            }
+        }
+        return "-";
+    }
+
+    static class Probe{
+        long sent = System.nanoTime();
+        final byte[] padding;
+
+        Probe(int padding){
+            this.padding = new byte[padding];
+        }
+    }
+
+    /** Framework messages are written like {@link PacketSerializer}; anything else is a {@link Probe}. */
+    static class ProbeSerializer implements NetSerializer{
+        final PacketSerializer framework = new PacketSerializer();
+
+        @Override
+        public void write(ByteBuffer buffer, Object o){
+            if(o instanceof FrameworkMessage msg){
+                buffer.put((byte)-2);
+                framework.writeFramework(buffer, msg);
+            }else if(o instanceof Probe probe){
+                buffer.put((byte)1);
+                buffer.putLong(probe.sent);
+                buffer.putShort((short)probe.padding.length);
+                buffer.put(probe.padding);
+            }
+        }
+
+        @Override
+        public Object read(ByteBuffer buffer){
+            if(buffer.get() == -2){
+                return framework.readFramework(buffer);
+            }
+            long sent = buffer.getLong();
+            Probe probe = new Probe(buffer.getShort());
+            buffer.get(probe.padding);
+            probe.sent = sent;
+            return probe;
+        }
+    }
+}
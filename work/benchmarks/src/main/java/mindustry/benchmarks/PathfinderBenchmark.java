@@ -0,0 +1,74 @@
+package mindustry.benchmarks;
+
+import arc.struct.*;
+import mindustry.content.*;
+import mindustry.game.*;
+import mindustry.world.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+import static mindustry.ai.Pathfinder.*;
+
+/**
+ * A full solve of the core flowfields of both teams, through {@code updateFrontier},
+ * and convergence after a burst of walls placed or removed through {@link Tile#setBlock}, which goes through {@code TileChangeEvent} like in game.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathfinderBenchmark{
+    @Param({"1"})
+    public long seed;
+    @Param({"300"})
+    public int size;
+    @Param({"1", "4"})
+    public int threads;
+    @Param({"10", "100"})
+    public int burst;
+
+    private final Seq<Tile> burstTiles = new Seq<>();
+    private boolean walls;
+
+    @Setup
+    public void setup(){
+        BenchWorld.generate(seed, size, 0);
+        for(Team team : new Team[]{Team.sharded, Team.crux}){
+            pathfinder.getField(team, costGround, fieldCore);
+            pathfinder.getField(team, costLegs, fieldCore);
+        }
+
+        //free tiles across the middle of the map, between both cores
+        burstTiles.clear();
+        for(int y = size / 2; y < size && burstTiles.size < burst; y++){
+            for(int x = 0; x < size && burstTiles.size < burst; x++){
+                Tile tile = world.tile(x, y);
+                if(tile.block() == Blocks.air && !tile.floor().solid) burstTiles.add(tile);
+            }
+        }
+        walls = false;
+    }
+
+    @Benchmark
+    public long solveAll() throws Exception{
+        return pathfinder.solveAll(threads);
+    }
+
+    /** Alternately places and removes the walls, then solves until the flowfields converge again. */
+    @Benchmark
+    public long wallBurst() throws Exception{
+        walls = !walls;
+        for(Tile tile : burstTiles){
+            if(walls){
+                tile.setBlock(Blocks.copperWall, Team.derelict, 0);
+            }else{
+                tile.setBlock(Blocks.air);
+            }
+        }
+        return pathfinder.converge(threads);
+    }
+}
@@ -0,0 +1,68 @@
+package mindustry.benchmarks;
+
+import arc.math.*;
+import arc.math.geom.*;
+import mindustry.async.*;
+import mindustry.async.PhysicsProcess.*;
+import mindustry.async.PhysicsProcess.PhysicsWorld.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * One step of unit physics with the quadtree and the sort-and-sweep broadphase. Does not need a game world.
+ * Bodies are reset to the same positions before each step, so the density stays the same.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhysicsBenchmark{
+    @Param({"500", "2000", "8000"})
+    public int units;
+    /** World units of area per body: dense is a packed blob, sparse is spread over the map. */
+    @Param({"dense", "sparse"})
+    public String density;
+    @Param({"quadtree", "sweep", "sweep4"})
+    public String broadphase;
+
+    PhysicsWorld world;
+    PhysicsBody[] bodies;
+    float[] startX, startY;
+
+    @Setup
+    public void setup(){
+        Rand rand = new Rand(1);
+        float size = (float)Math.sqrt(units * (density.equals("dense") ? 200f : 5000f));
+        world = new PhysicsWorld(new Rect(0, 0, size, size));
+        world.sweep = !broadphase.equals("quadtree");
+        world.threads = broadphase.equals("sweep4") ? 4 : 1;
+
+        bodies = new PhysicsBody[units];
+        startX = new float[units];
+        startY = new float[units];
+        for(int i = 0; i < units; i++){
+            PhysicsBody body = new PhysicsBody();
+            body.x = startX[i] = rand.random(size);
+            body.y = startY[i] = rand.random(size);
+            body.radius = rand.random(4f, 12f);
+            body.mass = body.radius * body.radius;
+            //a fifth are flying
+            body.layer = i % 5 == 0 ? PhysicsProcess.layerFlying : PhysicsProcess.layerGround;
+            bodies[i] = body;
+            world.add(body);
+        }
+    }
+
+    @Benchmark
+    public PhysicsWorld step(){
+        for(int i = 0; i < units; i++){
+            bodies[i].x = startX[i];
+            bodies[i].y = startY[i];
+        }
+        world.update();
+        return world;
+    }
+}
@@ -0,0 +1,49 @@
+package mindustry.benchmarks;
+
+import arc.util.io.*;
+import mindustry.io.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import static mindustry.Vars.*;
+
+/** Saving and loading a generated world, in memory and compressed like save files. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveBenchmark{
+    @Param({"1"})
+    public long seed;
+    @Param({"300"})
+    public int size;
+    @Param({"1000"})
+    public int units;
+
+    ReusableByteOutStream out = new ReusableByteOutStream();
+    byte[] save;
+
+    @Setup
+    public void setup(){
+        BenchWorld.generate(seed, size, units);
+        write();
+        save = out.toByteArray();
+    }
+
+    @Benchmark
+    public int write(){
+        out.reset();
+        SaveIO.write(new FastDeflaterOutputStream(out), null);
+        return out.size();
+    }
+
+    @Benchmark
+    public void load() throws Exception{
+        SaveIO.load(new InflaterInputStream(new ByteArrayInputStream(save)), world.context);
+    }
+}
@@ -0,0 +1,56 @@
+package mindustry.benchmarks;
+
+import arc.*;
+import arc.files.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Latency of saving the settings after changing one small key, like a keybind, with a full rewrite and with {@link Settings#setJournaled}.
+ * Every 100th key holds a larger binary value, like the JSON values stored by the game.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SettingsBenchmark{
+    @Param({"1000", "100000"})
+    public int keys;
+    @Param({"false", "true"})
+    public boolean journaled;
+
+    Settings settings;
+    Fi dir;
+    int counter;
+
+    @Setup
+    public void setup(){
+        dir = Fi.tempDirectory("settings-bench");
+        settings = new Settings();
+        settings.setDataDirectory(dir);
+        settings.setJournaled(journaled);
+        settings.load();
+        for(int i = 0; i < keys; i++){
+            if(i % 100 == 0){
+                settings.put("json-" + i, new byte[2048]);
+            }else{
+                settings.put("key-" + i, i);
+            }
+        }
+        settings.forceSave();
+    }
+
+    @TearDown
+    public void tearDown(){
+        dir.deleteDirectory();
+    }
+
+    @Benchmark
+    public void putAndSave(){
+        settings.put("keybind-" + (counter++ % 50), counter);
+        settings.forceSave();
+    }
+}
@@ -0,0 +1,107 @@
+package mindustry.benchmarks;
+
+import arc.func.*;
+import arc.math.*;
+import arc.math.geom.*;
+import arc.math.geom.QuadTree.*;
+import mindustry.entities.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Quadtree and uniform grid spatial indices with the same boxes. Does not need a game world.
+ * Most boxes are bullet sized, some are as big as large units.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialIndexBenchmark{
+    static final int queries = 1024;
+    /** 400x400 tiles */
+    static final float worldSize = 400 * 8f;
+
+    @Param({"1000", "10000", "50000"})
+    public int entities;
+    @Param({"quadtree", "grid"})
+    public String index;
+
+    SpatialIndex<Box> spatial;
+    Box[] boxes;
+    float[] queryX = new float[queries], queryY = new float[queries];
+    int found;
+    Cons<Box> counter = box -> found++;
+
+    @Setup
+    public void setup(){
+        Rand rand = new Rand(1);
+        spatial = index.equals("grid") ? new GridIndex<>(64f) : new QuadTreeIndex<>();
+        spatial.resize(0, 0, worldSize, worldSize);
+
+        boxes = new Box[entities];
+        for(int i = 0; i < entities; i++){
+            float size = i % 20 == 0 ? rand.random(8f, 60f) : rand.random(2f, 10f);
+            boxes[i] = new Box(rand.random(worldSize), rand.random(worldSize), size);
+        }
+        for(int i = 0; i < queries; i++){
+            queryX[i] = rand.random(worldSize);
+            queryY[i] = rand.random(worldSize);
+        }
+        rebuild();
+    }
+
+    /** Clears and fills the index, then runs one query so lazy structures are built too. */
+    @Benchmark
+    public boolean rebuild(){
+        spatial.clear();
+        for(Box box : boxes){
+            spatial.insert(box);
+        }
+        return spatial.any(0, 0, 1, 1);
+    }
+
+    /** Bullet collision sized queries. */
+    @Benchmark
+    public int querySmall(){
+        return query(16f);
+    }
+
+    /** Units.nearby sized queries. */
+    @Benchmark
+    public int queryLarge(){
+        return query(240f);
+    }
+
+    @Benchmark
+    public void frame(Blackhole hole){
+        hole.consume(rebuild());
+        hole.consume(query(16f));
+    }
+
+    int query(float size){
+        found = 0;
+        for(int i = 0; i < queries; i++){
+            spatial.intersect(queryX[i] - size / 2f, queryY[i] - size / 2f, size, size, counter);
+        }
+        return found;
+    }
+
+    static class Box implements QuadTreeObject{
+        final float x, y, size;
+
+        Box(float x, float y, float size){
+            this.x = x;
+            this.y = y;
+            this.size = size;
+        }
+
+        @Override
+        public void hitbox(Rect out){
+            out.setCentered(x, y, size);
+        }
+    }
+}
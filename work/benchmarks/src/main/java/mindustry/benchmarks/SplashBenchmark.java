@@ -0,0 +1,69 @@
+package mindustry.benchmarks;
+
+import arc.math.*;
+import mindustry.entities.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * One tick worth of overlapping splash damage, applied immediately and through {@link SplashBatch}.
+ * Explosions are packed into a part of the map, like flak fire over a defended area. Only the unit part is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplashBenchmark{
+    static final int mapSize = 200;
+
+    @Param({"500", "2000"})
+    public int units;
+    @Param({"100", "1000", "4000"})
+    public int explosions;
+    @Param({"false", "true"})
+    public boolean batch;
+
+    float[] x, y;
+
+    @Setup
+    public void setup(){
+        BenchWorld.generate(1, mapSize, units);
+        for(Unit unit : Groups.unit){
+            unit.maxHealth = Float.MAX_VALUE / 4f;
+            unit.heal();
+        }
+        state.teams.updateTeamStats();
+
+        Rand rand = new Rand(2);
+        x = new float[explosions];
+        y = new float[explosions];
+        float area = mapSize * tilesize / 3f;
+        for(int i = 0; i < explosions; i++){
+            x[i] = area + rand.random(area);
+            y[i] = area + rand.random(area);
+        }
+        SplashBatch.enabled.set(batch);
+    }
+
+    @TearDown
+    public void tearDown(){
+        SplashBatch.enabled.set(false);
+    }
+
+    @Benchmark
+    public void damage(){
+        SplashBatch.begin();
+        for(int i = 0; i < explosions; i++){
+            //ground is off, building damage is not batched
+            Damage.damage(i % 2 == 0 ? Team.sharded : Team.crux, x[i], y[i], 30f, 10f, false, true, false, false, null);
+        }
+        SplashBatch.end();
+    }
+}
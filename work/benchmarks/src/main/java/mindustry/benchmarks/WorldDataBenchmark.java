@@ -0,0 +1,76 @@
+package mindustry.benchmarks;
+
+import arc.util.io.*;
+import mindustry.gen.*;
+import mindustry.net.*;
+import mindustryX.features.net.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * A join storm: world data for every player after a map change, on a large map.
+ * {@code serial} is {@link mindustry.core.NetServer#sendWorldData} for each player on the main thread.
+ * {@code sharedMain} is the main thread part of {@link WorldDataEncoder}, {@code sharedTotal} also waits for all streams to be compressed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorldDataBenchmark{
+    @Param({"250", "500"})
+    public int size;
+    @Param({"1", "10", "30"})
+    public int players;
+
+    Player[] joining;
+    CompletableFuture<?>[] pending;
+
+    @Setup
+    public void setup(){
+        BenchWorld.generate(1, size, 500);
+        joining = new Player[players];
+        pending = new CompletableFuture[players];
+        for(int i = 0; i < players; i++){
+            joining[i] = Player.create();
+            joining[i].id = 1000 + i;
+            joining[i].name = "player" + i;
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void finish(){
+        for(var future : pending){
+            if(future != null) future.join();
+        }
+    }
+
+    @Benchmark
+    public int serial(){
+        int bytes = 0;
+        for(Player player : joining){
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            NetworkIO.writeWorld(player, new FastDeflaterOutputStream(stream));
+            bytes += stream.size();
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public void sharedMain(){
+        //every invocation is a new storm
+        WorldDataEncoder.invalidate();
+        for(int i = 0; i < players; i++){
+            pending[i] = WorldDataEncoder.encode(joining[i]);
+        }
+    }
+
+    @Benchmark
+    public void sharedTotal(){
+        sharedMain();
+        finish();
+    }
+}
@@ -0,0 +1,80 @@
+package mindustry.game;
+
+import arc.math.*;
+import arc.struct.*;
+import mindustry.benchmarks.*;
+import mindustry.game.FogControl.*;
+import mindustry.gen.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Dynamic fog redraws of two teams, full and incremental. Sources are unit-like circles, a part of them moves by one tile between updates.
+ * In the same package as {@link FogControl} to call the fog thread's update directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FogBenchmark{
+    @Param({"1"})
+    public long seed;
+    @Param({"300"})
+    public int size;
+    @Param({"500", "2000", "8000"})
+    public int units;
+    /** Percentage of units which cross a tile boundary between two updates. */
+    @Param({"10"})
+    public int moving;
+    @Param({"false", "true"})
+    public boolean incremental;
+
+    Rand rand;
+    int[] x, y, radius, team;
+    Bits cleared = new Bits(256);
+
+    @Setup
+    public void setup(){
+        BenchWorld.generate(seed, size, 0);
+        FogControl.incrementalFog.set(incremental);
+        rand = new Rand(seed);
+
+        fogControl.fog = new FogData[256];
+        fogControl.fog[Team.sharded.id] = new FogData();
+        fogControl.fog[Team.crux.id] = new FogData();
+
+        x = new int[units];
+        y = new int[units];
+        radius = new int[units];
+        team = new int[units];
+        for(int i = 0; i < units; i++){
+            x[i] = rand.random(size - 1);
+            y[i] = rand.random(size - 1);
+            radius[i] = rand.random(4, 20);
+            team[i] = i % 2 == 0 ? Team.sharded.id : Team.crux.id;
+        }
+    }
+
+    @Benchmark
+    public void updateDynamic(){
+        int moved = units * moving / 100;
+        for(int i = 0; i < moved; i++){
+            int index = rand.random(units - 1);
+            x[index] = Mathf.clamp(x[index] + rand.range(1), 0, size - 1);
+            y[index] = Mathf.clamp(y[index] + rand.range(1), 0, size - 1);
+        }
+
+        LongSeq events = fogControl.dynamicEvents;
+        synchronized(events){
+            for(int i = 0; i < units; i++){
+                events.add(FogEvent.get(x[i], y[i], radius[i], team[i]));
+            }
+        }
+        fogControl.updateDynamic(cleared);
+    }
+}
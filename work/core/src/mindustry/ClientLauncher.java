@@ -259,6 +259,7 @@ public abstract class ClientLauncher extends ApplicationCore implements Platform
                 }))));
             }
         }else{
+            net.update();//MDTX
             asyncCore.begin();
 
             super.update();
@@ -482,6 +482,7 @@ public class Vars implements Loadable{
         settings.defaults("locale", "default", "blocksync", true);
         settings.setAutosave(false);
         settings.load();
+        settings.setJournaled(mindustry.net.Administration.Config.settingsJournal.bool());//MDTX
 
         //this should not be necessary, but in case Binding is initialized before Settings#load(), do that here
         for(KeyBind bind : KeyBind.all){
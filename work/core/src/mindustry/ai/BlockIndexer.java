@@ -43,6 +43,10 @@ public class BlockIndexer{
     private Seq<Team> activeTeams = new Seq<>(Team.class);
     /** Maps teams to a map of flagged tiles by flag. */
     private Seq<Building>[][] flagMap = new Seq[Team.all.length][BlockFlag.all.length];
+    /** MDTX: spatial index of each list in {@link #flagMap}, created with the first building. */
+    private FlagIndex[][] flagIndex = new FlagIndex[Team.all.length][BlockFlag.all.length];
+    /** MDTX: below this many flagged buildings, a linear scan is faster than {@link FlagIndex}. */
+    public static int minIndexedFlagged = 32;
     /** Counts whether a certain floor is present in the world upon load. */
     private boolean[] blocksPresent;
     /** Array used for returning and reusing. */
@@ -69,6 +73,7 @@ public class BlockIndexer{
         Events.on(WorldLoadEvent.class, event -> {
             damagedTiles = new Seq[Team.all.length];
             flagMap = new Seq[Team.all.length][BlockFlag.all.length];
+            flagIndex = new FlagIndex[Team.all.length][BlockFlag.all.length];
             floorMap = new Seq[BlockFlag.all.length];
             activeTeams = new Seq<>(Team.class);
 
@@ -173,6 +178,9 @@ public class BlockIndexer{
             if(flags.size > 0){
                 for(BlockFlag flag : flags.array){
                     getFlagged(team)[flag.ordinal()].remove(build);
+                    //MDTX
+                    var index = flagIndex[team.id][flag.ordinal()];
+                    if(index != null) index.remove(build);
                 }
             }
 
@@ -289,9 +297,51 @@ public class BlockIndexer{
 
     @Nullable
     public Building findClosestFlag(float x, float y, Team team, BlockFlag flag){
+        //MDTX: use the grid when there are enough buildings; same result
+        var index = flagIndex[team.id][flag.ordinal()];
+        if(index != null && getFlagged(team, flag).size >= minIndexedFlagged){
+            return index.findClosest(x, y);
+        }
         return Geometry.findClosest(x, y, getFlagged(team, flag));
     }
 
+    /** MDTX: Same result as {@code Geometry.findClosest(x, y, getEnemy(team, flag))}, with the grid of each enemy team. */
+    @Nullable
+    public Building findClosestEnemyFlag(float x, float y, Team team, BlockFlag flag){
+        Building closest = null;
+        float cdist = 0f;
+        Seq<TeamData> data = state.teams.present;
+        //the same teams in the same order as getEnemy, so ties are decided the same way
+        for(int i = 0; i < (data.isEmpty() ? Team.all.length : data.size); i++){
+            Team enemy = data.isEmpty() ? Team.all[i] : data.items[i].team;
+            if(enemy == team || (enemy == Team.derelict && !state.rules.coreCapture)) continue;
+
+            Building build = findClosestFlag(x, y, enemy, flag);
+            if(build != null){
+                float dst = build.dst2(x, y);
+                if(closest == null || dst < cdist){
+                    closest = build;
+                    cdist = dst;
+                }
+            }
+        }
+        return closest;
+    }
+
+    /** MDTX: Calls {@code cons} for every building of a team with a flag within range, in no particular order. */
+    public void eachFlagged(Team team, BlockFlag flag, float x, float y, float range, Cons<Building> cons){
+        var index = flagIndex[team.id][flag.ordinal()];
+        if(index != null && getFlagged(team, flag).size >= minIndexedFlagged){
+            index.eachWithin(x, y, range, cons);
+            return;
+        }
+        for(Building build : getFlagged(team, flag)){
+            if(build.within(x, y, range)){
+                cons.get(build);
+            }
+        }
+    }
+
     public boolean eachBlock(Teamc team, float range, Boolf<Building> pred, Cons<Building> cons){
         return eachBlock(team.team(), team.getX(), team.getY(), range, pred, cons);
     }
@@ -488,55 +538,59 @@ public class BlockIndexer{
 
     /** Find the closest ore block relative to a position. */
     public Tile findClosestOre(float xp, float yp, Item item){
-        if(ores[item.id] != null){
-            float minDst = 0f;
-            Tile closest = null;
-            for(int qx = 0; qx < quadWidth; qx++){
-                for(int qy = 0; qy < quadHeight; qy++){
-                    var arr = ores[item.id][qx][qy];
-                    if(arr != null && arr.size > 0){
-                        Tile tile = world.tile(arr.first());
-                        if(tile.block() == Blocks.air){
-                            float dst = Mathf.dst2(xp, yp, tile.worldx(), tile.worldy());
-                            if(closest == null || dst < minDst){
-                                closest = tile;
-                                minDst = dst;
-                            }
-                        }
-                    }
-                }
-            }
-            return closest;
-        }
-
-        return null;
+        return ores[item.id] == null ? null : findClosestOre(ores[item.id], xp, yp, false);
     }
 
     /** Find the closest ore wall relative to a position. */
     public Tile findClosestWallOre(float xp, float yp, Item item){
         //(stolen from foo's client :))))
-        if(wallOres[item.id] != null){
-            float minDst = 0f;
-            Tile closest = null;
-            for(int qx = 0; qx < quadWidth; qx++){
-                for(int qy = 0; qy < quadHeight; qy++){
-                    var arr = wallOres[item.id][qx][qy];
+        return wallOres[item.id] == null ? null : findClosestOre(wallOres[item.id], xp, yp, true);
+    }
+
+    /**
+     * MDTX: Checks the first tile of each quadrant, like scanning all of them did, but in rings around the position,
+     * and stops when the next ring can't be closer. Ties go to the quadrant the scan would have found first.
+     */
+    private @Nullable Tile findClosestOre(IntSeq[][] quads, float xp, float yp, boolean wall){
+        float quadWorld = quadrantSize * tilesize;
+        int qx = Mathf.clamp((int)(xp / quadWorld), 0, quadWidth - 1), qy = Mathf.clamp((int)(yp / quadWorld), 0, quadHeight - 1);
+        int maxRing = Math.max(Math.max(qx, quadWidth - 1 - qx), Math.max(qy, quadHeight - 1 - qy));
+        float minDst = 0f;
+        Tile closest = null;
+        int closestQuad = 0;
+
+        for(int r = 0; r <= maxRing; r++){
+            if(closest != null && r > 0){
+                //tiles in this ring are outside the box of the previous rings; tile positions are their centers
+                float bound = Math.min(
+                    Math.min(xp - ((qx - r + 1) * quadrantSize - 1) * tilesize, (qx + r) * quadWorld - xp),
+                    Math.min(yp - ((qy - r + 1) * quadrantSize - 1) * tilesize, (qy + r) * quadWorld - yp)
+                ) - 0.01f;
+                if(bound > 0f && bound * bound > minDst) break;
+            }
+
+            for(int cx = qx - r; cx <= qx + r; cx++){
+                if(cx < 0 || cx >= quadWidth) continue;
+                int step = cx == qx - r || cx == qx + r ? 1 : Math.max(r * 2, 1);
+                for(int cy = qy - r; cy <= qy + r; cy += step){
+                    if(cy < 0 || cy >= quadHeight) continue;
+                    var arr = quads[cx][cy];
                     if(arr != null && arr.size > 0){
                         Tile tile = world.tile(arr.first());
-                        if(tile.block() != Blocks.air){
+                        if((tile.block() == Blocks.air) != wall){
                             float dst = Mathf.dst2(xp, yp, tile.worldx(), tile.worldy());
-                            if(closest == null || dst < minDst){
+                            int quad = cx * quadHeight + cy;
+                            if(closest == null || dst < minDst || (dst == minDst && quad < closestQuad)){
                                 closest = tile;
                                 minDst = dst;
+                                closestQuad = quad;
                             }
                         }
                     }
                 }
             }
-            return closest;
         }
-
-        return null;
+        return closest;
     }
 
     /** Find the closest ore block relative to a position. */
@@ -560,6 +614,10 @@ public class BlockIndexer{
 
                 for(BlockFlag flag : tile.block().flags.array){
                     map[flag.ordinal()].add(tile.build);
+                    //MDTX
+                    var index = flagIndex[team.id][flag.ordinal()];
+                    if(index == null) index = flagIndex[team.id][flag.ordinal()] = new FlagIndex(world.width(), world.height());
+                    index.add(tile.build);
                 }
             }
 
@@ -16,6 +16,9 @@ import mindustry.gen.*;
 import mindustry.graphics.*;
 import mindustry.world.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 import static mindustry.Vars.*;
 import static mindustry.ai.Pathfinder.*;
 
@@ -28,6 +31,15 @@ public class ControlPathfinder implements Runnable{
 
     public static boolean showDebug;
 
+    /** MDTX: see {@link #cachedClusterAstar} */
+    public static final mindustry.net.Administration.Config pathCache = new mindustry.net.Administration.Config("controlPathCache", "Share cluster paths of RTS unit commands between units that start and end at the same cluster nodes.", false);
+    /** MDTX: see {@link #buildClusters} */
+    public static final mindustry.net.Administration.Config buildThreadsConfig = new mindustry.net.Administration.Config("controlPathThreads", "Threads used to build all clusters of a team at once, when its units are first commanded. 1 builds them lazily on the pathfinding thread.", 1);
+    /** MDTX: cached paths per team and cost type, above which the cache is cleared. */
+    public static int maxCachedPaths = 4096;
+    private static @Nullable ExecutorService buildPool;
+    private static int buildPoolSize;
+
     public static final PathCost
 
     costGround = (team, tile) ->
@@ -147,6 +159,17 @@ public class ControlPathfinder implements Runnable{
     /** If true, this pathfinder is no longer relevant (stopped) and its errors can be ignored. */
     volatile boolean invalidated;
 
+    long lastInvalidCheck = Time.millis() + invalidateCheckInterval;
+
+    /** MDTX: settings of the pathfinding thread, read from the configs on every update. */
+    public boolean cachePaths;
+    public int buildThreads = 1;
+    //MDTX: PATHFINDING THREAD ONLY. maps team | costId << 8 -> start node << 32 | end node -> result of clusterAstar
+    final IntMap<LongMap<CachedPath>> cachedPaths = new IntMap<>();
+    public volatile long cacheHits, cacheMisses, cacheInvalidations;
+    /** MDTX: nanoseconds spent in the last {@link #buildClusters} call. */
+    public volatile long lastBuildTime;
+
     //path requests are per-unit
     static class PathRequest{
         final Unit unit;
@@ -215,6 +238,18 @@ public class ControlPathfinder implements Runnable{
         LongSeq[][] portalConnections = new LongSeq[4][];
     }
 
+    /** MDTX: a shared result of {@link #clusterAstar}. */
+    static class CachedPath{
+        /** null if there is no path */
+        final @Nullable IntSeq path;
+        /** clusters on both sides of every node of the path, including the start node */
+        final IntSet clusters = new IntSet();
+
+        CachedPath(@Nullable IntSeq path){
+            this.path = path;
+        }
+    }
+
     //this method is not run in a static initializer because it must only happen after Pathfinder registers its events, which means it should happen in the ControlPathfinder constructor
     static void checkEvents(){
         if(initialized) return;
@@ -395,7 +430,7 @@ public class ControlPathfinder implements Runnable{
     }
 
     /** Stops the pathfinding thread. */
-    private void stop(){
+    public void stop(){ //MDTX: public for benchmarks
         if(thread != null){
             thread.interrupt();
             thread = null;
@@ -452,6 +487,11 @@ public class ControlPathfinder implements Runnable{
         Cluster[] dim2 = dim1[pathCost];
 
         if(dim2 == null){
+            //MDTX: the first cluster of this team and cost type builds all of them at once
+            if(buildThreads > 1){
+                dim2 = dim1[pathCost] = buildClusters(team, pathCost, buildThreads);
+                return dim2[cy * cwidth + cx];
+            }
             dim2 = dim1[pathCost] = new Cluster[cwidth * cheight];
         }
 
@@ -495,48 +535,127 @@ public class ControlPathfinder implements Runnable{
                 portals.clear();
             }
 
-            int addX = moveDirs[direction * 2], addY = moveDirs[direction * 2 + 1];
-            int
-            baseX = cx * clusterSize + offsets[direction * 2] * (clusterSize - 1),
-            baseY = cy * clusterSize + offsets[direction * 2 + 1] * (clusterSize - 1),
-            nextBaseX = baseX + Geometry.d4[direction].x,
-            nextBaseY = baseY + Geometry.d4[direction].y;
-
-            int lastPortal = -1;
-            boolean prevSolid = true;
-
-            for(int i = 0; i < clusterSize; i++){
-                int x = baseX + addX * i, y = baseY + addY * i;
-
-                //scan for portals
-                if(solid(team, cost, x, y) || solid(team, cost, nextBaseX + addX * i, nextBaseY + addY * i)){
-                    int previous = i - 1;
-                    //hit a wall, create portals between the two points
-                    if(!prevSolid && previous >= lastPortal){
-                        //portals are an inclusive range
-                        portals.add(Point2.pack(previous, lastPortal));
-                    }
-                    prevSolid = true;
-                }else{
-                    //empty area encountered, mark the location of portal start
-                    if(prevSolid){
-                        lastPortal = i;
-                    }
-                    prevSolid = false;
+            scanPortals(team, cost, cx, cy, direction, portals);
+        }
+
+        updateInnerEdges(team, cost, cx, cy, cluster);
+
+        return cluster;
+    }
+
+    /** MDTX: extracted from {@link #updateCluster}. Adds the portals between a cluster and its neighbor in a direction, which must be in bounds. */
+    void scanPortals(int team, PathCost cost, int cx, int cy, int direction, IntSeq portals){
+        int addX = moveDirs[direction * 2], addY = moveDirs[direction * 2 + 1];
+        int
+        baseX = cx * clusterSize + offsets[direction * 2] * (clusterSize - 1),
+        baseY = cy * clusterSize + offsets[direction * 2 + 1] * (clusterSize - 1),
+        nextBaseX = baseX + Geometry.d4[direction].x,
+        nextBaseY = baseY + Geometry.d4[direction].y;
+
+        int lastPortal = -1;
+        boolean prevSolid = true;
+
+        for(int i = 0; i < clusterSize; i++){
+            int x = baseX + addX * i, y = baseY + addY * i;
+
+            //scan for portals
+            if(solid(team, cost, x, y) || solid(team, cost, nextBaseX + addX * i, nextBaseY + addY * i)){
+                int previous = i - 1;
+                //hit a wall, create portals between the two points
+                if(!prevSolid && previous >= lastPortal){
+                    //portals are an inclusive range
+                    portals.add(Point2.pack(previous, lastPortal));
+                }
+                prevSolid = true;
+            }else{
+                //empty area encountered, mark the location of portal start
+                if(prevSolid){
+                    lastPortal = i;
                 }
+                prevSolid = false;
             }
+        }
+
+        //at the end of the loop, close any un-initialized portals; this is copy pasted code
+        int previous = clusterSize - 1;
+        if(!prevSolid && previous >= lastPortal){
+            //portals are an inclusive range
+            portals.add(Point2.pack(previous, lastPortal));
+        }
+    }
+
+    /**
+     * MDTX: Builds every cluster of a team and cost type on a pool, instead of lazily when a path search reaches them. Pathfinding thread only.
+     * The right and top portals of each cluster are scanned first, then shared with the neighbors on the other side; after that,
+     * inner edges only write their own cluster, so they're computed in parallel with separate A* buffers. The result is the same as building them one by one.
+     */
+    Cluster[] buildClusters(int team, int pathCost, int threads){
+        long start = Time.nanos();
+        PathCost cost = idToCost(pathCost);
+        Cluster[] result = new Cluster[cwidth * cheight];
+        for(int i = 0; i < result.length; i++){
+            result[i] = new Cluster();
+        }
 
-            //at the end of the loop, close any un-initialized portals; this is copy pasted code
-            int previous = clusterSize - 1;
-            if(!prevSolid && previous >= lastPortal){
-                //portals are an inclusive range
-                portals.add(Point2.pack(previous, lastPortal));
+        if(buildPool == null || buildPoolSize != threads){
+            if(buildPool != null) buildPool.shutdown();
+            buildPool = Threads.boundedExecutor("ControlPathfinder-Worker", threads);
+            buildPoolSize = threads;
+        }
+
+        ArrayList<Callable<Object>> tasks = new ArrayList<>(cheight);
+        for(int y = 0; y < cheight; y++){
+            int cy = y;
+            tasks.add(() -> {
+                for(int cx = 0; cx < cwidth; cx++){
+                    Cluster cluster = result[cx + cy * cwidth];
+                    for(int direction = 0; direction < 2; direction++){
+                        if(cx + Geometry.d4x(direction) < cwidth && cy + Geometry.d4y(direction) < cheight){
+                            scanPortals(team, cost, cx, cy, direction, cluster.portals[direction] = new IntSeq(4));
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        invokeAll(tasks);
+
+        for(int cy = 0; cy < cheight; cy++){
+            for(int cx = 0; cx < cwidth; cx++){
+                Cluster cluster = result[cx + cy * cwidth];
+                if(cx > 0) cluster.portals[2] = result[cx - 1 + cy * cwidth].portals[0];
+                if(cy > 0) cluster.portals[3] = result[cx + (cy - 1) * cwidth].portals[1];
             }
         }
 
-        updateInnerEdges(team, cost, cx, cy, cluster);
+        tasks.clear();
+        for(int y = 0; y < cheight; y++){
+            int cy = y;
+            tasks.add(() -> {
+                IntSet used = new IntSet();
+                IntFloatMap costs = new IntFloatMap();
+                PathfindQueue frontier = new PathfindQueue();
+                for(int cx = 0; cx < cwidth; cx++){
+                    updateInnerEdges(team, cost, cx, cy, result[cx + cy * cwidth], used, costs, frontier);
+                }
+                return null;
+            });
+        }
+        invokeAll(tasks);
 
-        return cluster;
+        lastBuildTime = Time.timeSinceNanos(start);
+        return result;
+    }
+
+    private static void invokeAll(ArrayList<Callable<Object>> tasks){
+        try{
+            for(Future<Object> future : buildPool.invokeAll(tasks)){
+                //rethrow errors of workers
+                future.get();
+            }
+        }catch(InterruptedException | ExecutionException e){
+            throw new RuntimeException(e);
+        }
     }
 
     void updateInnerEdges(int team, int cost, int cx, int cy, Cluster cluster){
@@ -544,6 +663,11 @@ public class ControlPathfinder implements Runnable{
     }
 
     void updateInnerEdges(int team, PathCost cost, int cx, int cy, Cluster cluster){
+        updateInnerEdges(team, cost, cx, cy, cluster, usedEdges, innerCosts, innerFrontier);
+    }
+
+    //MDTX: the buffers are passed in, so clusters can be built on several threads
+    void updateInnerEdges(int team, PathCost cost, int cx, int cy, Cluster cluster, IntSet usedEdges, IntFloatMap innerCosts, PathfindQueue innerFrontier){
         int minX = cx * clusterSize, minY = cy * clusterSize, maxX = Math.min(minX + clusterSize - 1, wwidth - 1), maxY = Math.min(minY + clusterSize - 1, wheight - 1);
 
         usedEdges.clear();
@@ -597,7 +721,8 @@ public class ControlPathfinder implements Runnable{
                                 (moveDirs[otherDir * 2] * otherFrom + ox),
                                 (moveDirs[otherDir * 2 + 1] * otherFrom + oy),
                                 (moveDirs[otherDir * 2] * otherTo + ox),
-                                (moveDirs[otherDir * 2 + 1] * otherTo + oy)
+                                (moveDirs[otherDir * 2 + 1] * otherTo + oy),
+                                innerCosts, innerFrontier
                             );
 
                             if(connectionCost != -1f){
@@ -634,8 +759,10 @@ public class ControlPathfinder implements Runnable{
 
     /** @return -1 if no path was found */
     float innerAstar(int team, PathCost cost, int minX, int minY, int maxX, int maxY, int startPos, int goalPos, int goalX1, int goalY1, int goalX2, int goalY2){
-        var frontier = innerFrontier;
-        var costs = innerCosts;
+        return innerAstar(team, cost, minX, minY, maxX, maxY, startPos, goalPos, goalX1, goalY1, goalX2, goalY2, innerCosts, innerFrontier);
+    }
+
+    float innerAstar(int team, PathCost cost, int minX, int minY, int maxX, int maxY, int startPos, int goalPos, int goalX1, int goalY1, int goalX2, int goalY2, IntFloatMap costs, PathfindQueue frontier){ //MDTX
 
         frontier.clear();
         costs.clear();
@@ -874,6 +1001,53 @@ public class ControlPathfinder implements Runnable{
         return null;
     }
 
+    /**
+     * MDTX: {@link #clusterAstar} with results shared by all requests with the same start and end node, so a group of units
+     * commanded to the same point only searches once per node they start at. The key includes the portal, not only the cluster,
+     * since a cluster can be split by walls. Entries are dropped in {@link #clusterChanged} when a cluster next to any of their nodes changes,
+     * which is also when the requests themselves are recalculated; failed searches are dropped on any change. Pathfinding thread only.
+     */
+    @Nullable IntSeq cachedClusterAstar(PathRequest request, int pathCost, int startNodeIndex, int endNodeIndex){
+        int cacheKey = request.team | pathCost << 8;
+        LongMap<CachedPath> paths = cachedPaths.get(cacheKey);
+        if(paths == null){
+            cachedPaths.put(cacheKey, paths = new LongMap<>());
+        }
+
+        long key = (long)startNodeIndex << 32 | (endNodeIndex & 0xffffffffL);
+        CachedPath cached = paths.get(key);
+        if(cached != null){
+            cacheHits++;
+            if(cached.path == null) return null;
+            request.resultPath.clear();
+            request.resultPath.addAll(cached.path);
+            return request.resultPath;
+        }
+
+        cacheMisses++;
+        IntSeq result = clusterAstar(request, pathCost, startNodeIndex, endNodeIndex);
+
+        if(paths.size >= maxCachedPaths) paths.clear();
+        cached = new CachedPath(result == null ? null : new IntSeq(result));
+        if(result != null){
+            addNodeClusters(cached.clusters, startNodeIndex);
+            for(int i = 0; i < result.size; i++){
+                addNodeClusters(cached.clusters, result.items[i]);
+            }
+        }
+        paths.put(key, cached);
+        return result;
+    }
+
+    //MDTX: a node is a portal, which lies between its cluster and the one in its direction
+    private void addNodeClusters(IntSet out, int node){
+        int cluster = NodeIndex.cluster(node), dir = NodeIndex.dir(node), ox = cluster % cwidth + Geometry.d4[dir].x, oy = cluster / cwidth + Geometry.d4[dir].y;
+        out.add(cluster);
+        if(ox >= 0 && oy >= 0 && ox < cwidth && oy < cheight){
+            out.add(ox + oy * cwidth);
+        }
+    }
+
     private void checkEdges(PathRequest request, int team, int pathCost, int current, int goal, int cx, int cy, LongSeq connections){
         for(int i = 0; i < connections.size; i++){
             long con = connections.items[i];
@@ -1026,7 +1200,7 @@ public class ControlPathfinder implements Runnable{
             return;
         }
 
-        var nodePath = clusterAstar(request, costId, node, dest);
+        var nodePath = cachePaths ? cachedClusterAstar(request, costId, node, dest) : clusterAstar(request, costId, node, dest); //MDTX
 
         //no result found, bail out.
         if(nodePath == null){
@@ -1462,6 +1636,18 @@ public class ControlPathfinder implements Runnable{
             }
         }
 
+        //MDTX: drop cached paths the same way
+        LongMap<CachedPath> paths = cachedPaths.get(team | pathCost << 8);
+        if(paths != null && paths.size > 0){
+            var it = paths.values().iterator();
+            while(it.hasNext()){
+                var cached = it.next();
+                if(cached.path == null || cached.clusters.contains(index)){
+                    it.remove();
+                    cacheInvalidations++;
+                }
+            }
+        }
     }
 
     private void updateClustersComplete(int clusterIndex){
@@ -1502,101 +1688,145 @@ public class ControlPathfinder implements Runnable{
 
     @Override
     public void run(){
-        long lastInvalidCheck = Time.millis() + invalidateCheckInterval;
-
         while(true){
             if(net.client() || invalidated) return;
             try{
                 if(state.isPlaying()){
-                    queue.run();
+                    //MDTX
+                    cachePaths = pathCache.bool();
+                    buildThreads = buildThreadsConfig.num();
+                    update(maxUpdate);
+                }
+
+                try{
+                    Thread.sleep(updateInterval);
+                }catch(InterruptedException e){
+                    //stop looping when interrupted externally
+                    return;
+                }
+            }catch(Throwable e){
+                if(!invalidated){
+                    Log.err(e);
+                }else{
+                    //This pathfinder is done, don't bother doing any tasks
+                    return;
+                }
+            }
+        }
+    }
 
-                    clustersToUpdate.each(cluster -> {
-                        updateClustersComplete(cluster);
+    /**
+     * MDTX: one update of the pathfinding thread, extracted from {@link #run()}.
+     * @param fieldNanos time each flowfield may be updated for, or -1 to complete them
+     */
+    void update(long fieldNanos){
+        queue.run();
 
-                        //just in case: don't redundantly update inner clusters after you've recalculated it entirely
-                        clustersToInnerUpdate.remove(cluster);
-                    });
+        clustersToUpdate.each(cluster -> {
+            updateClustersComplete(cluster);
 
-                    clustersToInnerUpdate.each(cluster -> {
-                        //only recompute the inner links
-                        updateClustersInner(cluster);
-                    });
+            //just in case: don't redundantly update inner clusters after you've recalculated it entirely
+            clustersToInnerUpdate.remove(cluster);
+        });
 
-                    clustersToInnerUpdate.clear();
-                    clustersToUpdate.clear();
+        clustersToInnerUpdate.each(cluster -> {
+            //only recompute the inner links
+            updateClustersInner(cluster);
+        });
 
-                    //periodically check for invalidated paths
-                    if(Time.timeSinceMillis(lastInvalidCheck) > invalidateCheckInterval){
-                        lastInvalidCheck = Time.millis();
+        clustersToInnerUpdate.clear();
+        clustersToUpdate.clear();
 
-                        var it = invalidRequests.iterator();
-                        while(it.hasNext()){
-                            var request = it.next();
+        //periodically check for invalidated paths
+        if(Time.timeSinceMillis(lastInvalidCheck) > invalidateCheckInterval){
+            lastInvalidCheck = Time.millis();
 
-                            //invalid request, ignore it
-                            if(request.invalidated){
-                                it.remove();
-                                continue;
-                            }
+            var it = invalidRequests.iterator();
+            while(it.hasNext()){
+                var request = it.next();
 
-                            long mapKey = FieldIndex.get(request.destination, request.costId, request.team);
+                //invalid request, ignore it
+                if(request.invalidated){
+                    it.remove();
+                    continue;
+                }
 
-                            var field = fields.get(mapKey);
+                long mapKey = FieldIndex.get(request.destination, request.costId, request.team);
 
-                            if(field != null){
-                                //it's only worth recalculating a path when the current frontier has finished; otherwise the unit will be following something incomplete.
-                                if(field.frontier.isEmpty()){
+                var field = fields.get(mapKey);
 
-                                    //remove the field, to be recalculated next update once recalculatePath is processed
-                                    fields.remove(field.mapKey);
-                                    Core.app.post(() -> fieldList.remove(field));
+                if(field != null){
+                    //it's only worth recalculating a path when the current frontier has finished; otherwise the unit will be following something incomplete.
+                    if(field.frontier.isEmpty()){
 
-                                    //once the field is invalidated, make sure that all the requests that have it stored in their 'old' field, so units don't stutter during recalculations
-                                    for(var otherRequest : threadPathRequests){
-                                        if(otherRequest.destination == request.destination){
-                                            otherRequest.oldCache = field;
+                        //remove the field, to be recalculated next update once recalculatePath is processed
+                        fields.remove(field.mapKey);
+                        Core.app.post(() -> fieldList.remove(field));
 
-                                            if(otherRequest != request){
-                                                queue.post(() -> recalculatePath(otherRequest));
-                                            }
-                                        }
-                                    }
+                        //once the field is invalidated, make sure that all the requests that have it stored in their 'old' field, so units don't stutter during recalculations
+                        for(var otherRequest : threadPathRequests){
+                            if(otherRequest.destination == request.destination){
+                                otherRequest.oldCache = field;
 
-                                    //the recalculation is done next update, so multiple path requests in the same batch don't end up removing and recalculating the field multiple times.
-                                    queue.post(() -> recalculatePath(request));
-                                    //it has been processed.
-                                    it.remove();
+                                if(otherRequest != request){
+                                    queue.post(() -> recalculatePath(otherRequest));
                                 }
-                            }else{ //there's no field, presumably because a previous request already invalidated it.
-                                queue.post(() -> recalculatePath(request));
-                                it.remove();
                             }
                         }
-                    }
 
-                    //each update time (not total!) no longer than maxUpdate
-                    fields.eachValue(cache -> {
-                        if(cache != null){
-                            updateFields(cache, maxUpdate);
-                        }
-                    });
+                        //the recalculation is done next update, so multiple path requests in the same batch don't end up removing and recalculating the field multiple times.
+                        queue.post(() -> recalculatePath(request));
+                        //it has been processed.
+                        it.remove();
+                    }
+                }else{ //there's no field, presumably because a previous request already invalidated it.
+                    queue.post(() -> recalculatePath(request));
+                    it.remove();
                 }
+            }
+        }
 
-                try{
-                    Thread.sleep(updateInterval);
-                }catch(InterruptedException e){
-                    //stop looping when interrupted externally
-                    return;
-                }
-            }catch(Throwable e){
-                if(!invalidated){
-                    Log.err(e);
-                }else{
-                    //This pathfinder is done, don't bother doing any tasks
-                    return;
-                }
+        //each update time (not total!) no longer than maxUpdate
+        fields.eachValue(cache -> {
+            if(cache != null){
+                updateFields(cache, fieldNanos);
             }
+        });
+    }
+
+    /**
+     * MDTX: Stops the pathfinding thread and commands the units to a position, doing the work of the thread on the calling thread without sleeping,
+     * until every unit has a position to move to or there is no path. Flowfields are completed on each update. For benchmarks.
+     * @return nanoseconds from the command until all units are moving
+     */
+    public long commandAll(Seq<Unit> units, Vec2 target, int maxUpdates) throws InterruptedException{
+        if(thread != null){
+            thread.interrupt();
+            thread.join();
+            thread = null;
         }
+
+        Seq<Unit> waiting = units.copy();
+        Vec2 out = new Vec2();
+        boolean[] noResult = {false};
+        long start = Time.nanos();
+
+        for(int i = 0; i < maxUpdates && waiting.any(); i++){
+            waiting.removeAll(unit -> getPathPosition(unit, target, out, noResult) || noResult[0]);
+            update(-1);
+        }
+
+        long time = Time.timeSinceNanos(start);
+        if(waiting.any()){
+            Log.warn("@ units are not moving after @ updates.", waiting.size, maxUpdates);
+        }
+        return time;
+    }
+
+    /** MDTX: for TickProfiler */
+    public String stats(){
+        return Strings.format("control path cache: @ hits, @ misses, @ invalidated; last cluster build @ms",
+        cacheHits, cacheMisses, cacheInvalidations, Strings.fixed(lastBuildTime / (float)Time.nanosPerMilli, 2));
     }
 
     @Struct
@@ -0,0 +1,130 @@
+package mindustry.ai;
+
+import arc.func.*;
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.gen.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * 建筑标记空间索引
+ * Uniform grid of the buildings of one team with one {@link mindustry.world.meta.BlockFlag}, kept up to date by {@link BlockIndexer}
+ * as buildings are added and removed. Nearest and within-range queries only visit the cells around the position.
+ * <p>
+ * Equal distances are decided by insertion order, which is also the order of {@link BlockIndexer#getFlagged}, so the result is the same
+ * as {@link arc.math.geom.Geometry#findClosest(float, float, Iterable)} over that list.
+ */
+public class FlagIndex{
+    /** Cell size in tiles. */
+    public static final int cellSize = 16;
+    static final float cellWorld = cellSize * tilesize;
+
+    final int cols, rows;
+    final Seq<Building>[] cells;
+    /** Insertion order by building id. */
+    final IntIntMap order = new IntIntMap();
+    int counter, size;
+
+    /** @param width in tiles */
+    @SuppressWarnings("unchecked")
+    public FlagIndex(int width, int height){
+        cols = Math.max(Mathf.ceil(width / (float)cellSize), 1);
+        rows = Math.max(Mathf.ceil(height / (float)cellSize), 1);
+        cells = new Seq[cols * rows];
+    }
+
+    public void add(Building build){
+        int cell = cellX(build.x) + cellY(build.y) * cols;
+        if(cells[cell] == null) cells[cell] = new Seq<>(Building.class);
+        cells[cell].add(build);
+        order.put(build.id, counter++);
+        size++;
+    }
+
+    public void remove(Building build){
+        var cell = cells[cellX(build.x) + cellY(build.y) * cols];
+        if(cell != null && cell.remove(build, true)){
+            order.remove(build.id);
+            size--;
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /** @return the closest building, searching rings of cells outwards until the next ring can't be closer. */
+    public @Nullable Building findClosest(float x, float y){
+        if(size == 0) return null;
+
+        int qx = cellX(x), qy = cellY(y);
+        int maxRing = Math.max(Math.max(qx, cols - 1 - qx), Math.max(qy, rows - 1 - qy));
+        Building closest = null;
+        float cdist = 0f;
+        int corder = 0;
+
+        for(int r = 0; r <= maxRing; r++){
+            if(closest != null && r > 0){
+                //everything in this ring is outside of the box covered by the previous rings
+                float bound = Math.min(
+                    Math.min(x - (qx - r + 1) * cellWorld, (qx + r) * cellWorld - x),
+                    Math.min(y - (qy - r + 1) * cellWorld, (qy + r) * cellWorld - y)
+                ) - 0.01f;
+                if(bound > 0f && bound * bound > cdist) break;
+            }
+
+            for(int cx = qx - r; cx <= qx + r; cx++){
+                if(cx < 0 || cx >= cols) continue;
+                //the whole column on the sides, only the top and bottom cell otherwise
+                int step = cx == qx - r || cx == qx + r ? 1 : Math.max(r * 2, 1);
+                for(int cy = qy - r; cy <= qy + r; cy += step){
+                    if(cy < 0 || cy >= rows) continue;
+                    var cell = cells[cx + cy * cols];
+                    if(cell == null) continue;
+
+                    for(int i = 0; i < cell.size; i++){
+                        Building build = cell.items[i];
+                        float dst = build.dst2(x, y);
+                        if(closest == null || dst < cdist || (dst == cdist && order.get(build.id) < corder)){
+                            closest = build;
+                            cdist = dst;
+                            corder = order.get(build.id);
+                        }
+                    }
+                }
+            }
+        }
+
+        return closest;
+    }
+
+    /** Calls {@code cons} for every building within range, in no particular order. */
+    public void eachWithin(float x, float y, float range, Cons<Building> cons){
+        if(size == 0) return;
+
+        int minX = cellX(x - range), maxX = cellX(x + range), minY = cellY(y - range), maxY = cellY(y + range);
+        for(int cy = minY; cy <= maxY; cy++){
+            for(int cx = minX; cx <= maxX; cx++){
+                var cell = cells[cx + cy * cols];
+                if(cell == null) continue;
+
+                for(int i = 0; i < cell.size; i++){
+                    Building build = cell.items[i];
+                    if(build.within(x, y, range)){
+                        cons.get(build);
+                    }
+                }
+            }
+        }
+    }
+
+    int cellX(float wx){
+        return Mathf.clamp((int)(wx / cellWorld), 0, cols - 1);
+    }
+
+    int cellY(float wy){
+        return Mathf.clamp((int)(wy / cellWorld), 0, rows - 1);
+    }
+}
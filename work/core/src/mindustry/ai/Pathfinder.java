@@ -18,6 +18,7 @@ import mindustry.world.blocks.storage.*;
 import mindustry.world.meta.*;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import static mindustry.Vars.*;
 import static mindustry.world.meta.BlockFlag.*;
@@ -27,6 +28,8 @@ public class Pathfinder implements Runnable{
     private static final int neverRefresh = Integer.MAX_VALUE;
     private static final int updateFPS = 60;
     private static final int updateInterval = 1000 / updateFPS;
+    //MDTX: solve independent flowfields concurrently
+    public static final mindustry.net.Administration.Config solverThreads = new mindustry.net.Administration.Config("pathfinderThreads", "Threads used to solve independent flowfields concurrently. 1 uses only the pathfinder thread.", 1);
 
     /** cached world size */
     static int wwidth, wheight;
@@ -107,6 +110,20 @@ public class Pathfinder implements Runnable{
 
     boolean needsRefresh;
 
+    /** MDTX: incremented on every change of {@link #tiles}, so the solver pool knows when to take a new snapshot. */
+    volatile int tilesVersion;
+    /** MDTX: copy of {@link #tiles} that is read-only during a parallel pass. Pathfinding thread only. */
+    int[] tilesSnapshot = {};
+    int snapshotVersion = -1;
+    @Nullable ExecutorService solverPool;
+    int solverPoolSize;
+    final ArrayList<Callable<Object>> solverTasks = new ArrayList<>();
+    long solveStart;
+    /** MDTX: nanoseconds between the flowfields getting dirty and all of them completing, for benchmarks. */
+    public volatile long lastSolveTime;
+    /** MDTX: total nanoseconds the solver thread spent working, for TickProfiler. Only written by the solver thread. */
+    public volatile long busyTime;
+
     public Pathfinder(){
         clearCache();
 
@@ -125,6 +142,7 @@ public class Pathfinder implements Runnable{
                 Tile tile = world.tiles.geti(i);
                 tiles[i] = packTile(tile);
             }
+            tilesVersion++;
 
             //don't bother setting up paths unless necessary
             if(state.rules.waveTeam.needsFlowField() && !net.client()){
@@ -174,6 +192,7 @@ public class Pathfinder implements Runnable{
                             //the other tile is no longer near solid, remove the solid bit
                             if(!otherNearSolid && tiles.length > arr){
                                 tiles[arr] &= ~(PathTile.bitMaskNearSolid);
+                                tilesVersion++;
                             }
                         }
                     }
@@ -186,24 +205,28 @@ public class Pathfinder implements Runnable{
             //TODO: is it worth switching to a timestamp based system instead that updates every X milliseconds?
             if(needsRefresh && Core.graphics.getFrameId() % 2 == 0){
                 needsRefresh = false;
+                refreshFields();
+            }
+        });
+    }
 
-                //can't iterate through array so use the map, which should not lead to problems
-                for(Flowfield path : mainList){
-                    //paths with a refresh rate should not be updated by tiles changing
-                    if(path != null && path.needsRefresh()){
-                        synchronized(path.targets){
-                            //TODO: this is super slow and forces a refresh for every tile changed!
-                            path.updateTargetPositions();
-                        }
-                    }
+    /** MDTX: Updates targets and marks every flowfield dirty after tiles changed. Main thread only. */
+    private void refreshFields(){
+        //can't iterate through array so use the map, which should not lead to problems
+        for(Flowfield path : mainList){
+            //paths with a refresh rate should not be updated by tiles changing
+            if(path != null && path.needsRefresh()){
+                synchronized(path.targets){
+                    //TODO: this is super slow and forces a refresh for every tile changed!
+                    path.updateTargetPositions();
                 }
+            }
+        }
 
-                //mark every flow field as dirty, so it updates when it's done
-                queue.post(() -> {
-                    for(Flowfield data : threadList){
-                        data.dirty = true;
-                    }
-                });
+        //mark every flow field as dirty, so it updates when it's done
+        queue.post(() -> {
+            for(Flowfield data : threadList){
+                data.dirty = true;
             }
         });
     }
@@ -307,6 +330,8 @@ public class Pathfinder implements Runnable{
             }
         });
 
+        tilesVersion++;
+
         controlPath.updateTile(tile);
 
         //queue a refresh sometime in the future
@@ -321,19 +346,27 @@ public class Pathfinder implements Runnable{
             try{
 
                 if(state.isPlaying()){
+                    long busyStart = Time.nanos();
                     queue.run();
 
-                    //each update time (not total!) no longer than maxUpdate
-                    for(Flowfield data : threadList){
-
-                        //if it's dirty and there is nothing to update, begin updating once more
-                        if(data.dirty && data.frontier.size == 0){
-                            updateTargets(data);
-                            data.dirty = false;
+                    int threads = Math.min(solverThreads.num(), threadList.size);
+                    if(threads > 1){
+                        updateParallel(threads);
+                    }else{
+                        //each update time (not total!) no longer than maxUpdate
+                        for(Flowfield data : threadList){
+                            updateField(data, tiles);
                         }
+                    }
 
-                        updateFrontier(data, maxUpdate);
+                    boolean busy = threadList.contains(f -> f.dirty || f.frontier.size > 0);
+                    if(busy && solveStart == 0){
+                        solveStart = Time.nanos();
+                    }else if(!busy && solveStart != 0){
+                        lastSolveTime = Time.timeSinceNanos(solveStart);
+                        solveStart = 0;
                     }
+                    busyTime += Time.timeSinceNanos(busyStart);
                 }
 
                 try{
@@ -342,12 +375,108 @@ public class Pathfinder implements Runnable{
                     //stop looping when interrupted externally
                     return;
                 }
+            }catch(InterruptedException e){
+                return;
             }catch(Throwable e){
                 e.printStackTrace();
             }
         }
     }
 
+    private void updateField(Flowfield data, int[] tiles){
+        //if it's dirty and there is nothing to update, begin updating once more
+        if(data.dirty && data.frontier.size == 0){
+            updateTargets(data);
+            data.dirty = false;
+        }
+
+        updateFrontier(data, maxUpdate, tiles);
+    }
+
+    /**
+     * MDTX: Flowfields only write their own arrays, so different team/cost/field types are solved on a pool.
+     * All of them read the same snapshot of {@link #tiles} during one pass. Pathfinding thread only.
+     */
+    private void updateParallel(int threads) throws InterruptedException, ExecutionException{
+        if(solverPool == null || solverPoolSize != threads){
+            if(solverPool != null) solverPool.shutdown();
+            solverPool = Threads.boundedExecutor("Pathfinder-Worker", threads);
+            solverPoolSize = threads;
+        }
+
+        int version = tilesVersion;
+        if(version != snapshotVersion || tilesSnapshot.length != tiles.length){
+            if(tilesSnapshot.length != tiles.length) tilesSnapshot = new int[tiles.length];
+            System.arraycopy(tiles, 0, tilesSnapshot, 0, tiles.length);
+            snapshotVersion = version;
+        }
+
+        int[] snapshot = tilesSnapshot;
+        solverTasks.clear();
+        for(Flowfield data : threadList){
+            if(data.frontier.size == 0 && !data.dirty) continue;
+            solverTasks.add(() -> {
+                updateField(data, snapshot);
+                return null;
+            });
+        }
+        if(solverTasks.isEmpty()) return;
+
+        for(Future<Object> future : solverPool.invokeAll(solverTasks)){
+            //rethrow errors of workers
+            future.get();
+        }
+    }
+
+    /**
+     * MDTX: stops the pathfinding thread and solves every registered flowfield from scratch on the calling thread. For benchmarks.
+     * @return nanoseconds spent solving, also stored in {@link #lastSolveTime}
+     */
+    public long solveAll(int threads) throws InterruptedException, ExecutionException{
+        return solve(threads, true);
+    }
+
+    /**
+     * MDTX: stops the pathfinding thread, then refreshes after the tiles changed since the last refresh and solves until all flowfields converge,
+     * on the calling thread. For benchmarks of tile change bursts.
+     * @return nanoseconds from the refresh to convergence, also stored in {@link #lastSolveTime}
+     */
+    public long converge(int threads) throws InterruptedException, ExecutionException{
+        return solve(threads, false);
+    }
+
+    private long solve(int threads, boolean all) throws InterruptedException, ExecutionException{
+        if(thread != null){
+            thread.interrupt();
+            thread.join();
+            thread = null;
+        }
+        //register fields requested with getField
+        queue.run();
+
+        long start = Time.nanos();
+        if(needsRefresh){
+            needsRefresh = false;
+            refreshFields();
+            queue.run();
+        }
+        if(all){
+            for(Flowfield data : threadList){
+                data.dirty = true;
+            }
+        }
+        while(threadList.contains(f -> f.dirty || f.frontier.size > 0)){
+            if(threads > 1 && threadList.size > 1){
+                updateParallel(Math.min(threads, threadList.size));
+            }else{
+                for(Flowfield data : threadList){
+                    updateField(data, tiles);
+                }
+            }
+        }
+        return lastSolveTime = Time.timeSinceNanos(start);
+    }
+
     public Flowfield getField(Team team, int costType, int fieldType){
         if(cache[team.id][costType][fieldType] == null){
             Flowfield field = fieldTypes.get(fieldType).get();
@@ -460,7 +589,7 @@ public class Pathfinder implements Runnable{
     private void preloadPath(Flowfield path){
         path.updateTargetPositions();
         registerPath(path);
-        updateFrontier(path, -1);
+        updateFrontier(path, -1, tiles);
     }
 
     /**
@@ -488,8 +617,8 @@ public class Pathfinder implements Runnable{
         }
     }
 
-    /** Update the frontier for a path. Pathfinding thread only. */
-    private void updateFrontier(Flowfield path, long nsToRun){
+    /** Update the frontier for a path. Pathfinding thread (or a solver worker of it) only. */
+    private void updateFrontier(Flowfield path, long nsToRun, int[] tiles){
         boolean hadAny = path.frontier.size > 0;
         long start = Time.nanos();
 
@@ -4,6 +4,7 @@ import arc.*;
 import arc.struct.*;
 import arc.util.*;
 import mindustry.game.EventType.*;
+import mindustryX.features.*;
 
 import java.util.concurrent.*;
 
@@ -18,6 +19,8 @@ public class AsyncCore{
 
     //futures to be awaited
     private final Seq<Future<?>> futures = new Seq<>();
+    //MDTX: nanoseconds spent in each process, written by its thread. Read by TickProfiler after awaiting the futures.
+    private long[] processTimes = {};
 
     private ExecutorService executor;
 
@@ -56,10 +59,19 @@ public class AsyncCore{
                 });
             }
 
+            if(processTimes.length != processes.size) processTimes = new long[processes.size];
+
             //submit all tasks
-            for(AsyncProcess p : processes){
+            for(int i = 0; i < processes.size; i++){
+                AsyncProcess p = processes.get(i);
+                processTimes[i] = 0;
                 if(p.shouldProcess()){
-                    futures.add(executor.submit(p::process));
+                    int index = i;
+                    futures.add(executor.submit(() -> {
+                        long start = Time.nanos();
+                        p.process();
+                        processTimes[index] = Time.timeSinceNanos(start);
+                    }));
                 }
             }
         }
@@ -67,7 +79,14 @@ public class AsyncCore{
 
     public void end(){
         if(state.isPlaying()){
+            long waitStart = TickProfiler.begin();//MDTX
             complete();
+            TickProfiler.end(TickProfiler.asyncWait, waitStart);
+            if(TickProfiler.active){
+                for(int i = 0; i < processTimes.length; i++){
+                    if(processTimes[i] != 0) TickProfiler.asyncProcess(processes.get(i), processTimes[i]);
+                }
+            }
 
             //sync end (flush data)
             for(AsyncProcess p : processes){
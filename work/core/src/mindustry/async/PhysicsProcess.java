@@ -5,12 +5,20 @@ import arc.math.*;
 import arc.math.geom.*;
 import arc.math.geom.QuadTree.*;
 import arc.struct.*;
+import arc.util.*;
 import mindustry.*;
 import mindustry.async.PhysicsProcess.PhysicsWorld.*;
 import mindustry.entities.*;
 import mindustry.gen.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 public class PhysicsProcess implements AsyncProcess{
+    /** MDTX: see {@link PhysicsWorld#updateSweep()} */
+    public static final mindustry.net.Administration.Config sweepBroadphase = new mindustry.net.Administration.Config("physicsSweep", "Use a sort-and-sweep broadphase for unit physics instead of quadtrees.", false);
+    public static final mindustry.net.Administration.Config sweepThreads = new mindustry.net.Administration.Config("physicsThreads", "Threads used by the sort-and-sweep unit physics.", 1);
+
     public static final int
     layers = 4,
     layerGround = 0,
@@ -27,6 +35,9 @@ public class PhysicsProcess implements AsyncProcess{
     public void begin(){
         if(physics == null) return;
         boolean local = !Vars.net.client();
+        //MDTX: read here, on the main thread
+        physics.sweep = sweepBroadphase.bool();
+        physics.threads = sweepThreads.num();
 
         //remove stale entities
         refs.removeAll(ref -> {
@@ -134,6 +145,19 @@ public class PhysicsProcess implements AsyncProcess{
         private final Vec2 vec = new Vec2();
         private final Rand rand = new Rand();
 
+        /** MDTX: Use {@link #updateSweep()}, with this many threads. */
+        public boolean sweep;
+        public int threads = 1;
+        /** Bodies sorted by layer, then by the left edge of their hitbox; the order of the last frame is sorted again. */
+        private PhysicsBody[] sorted = new PhysicsBody[16];
+        private float[] minX = new float[16], maxX = new float[16];
+        private int[] layerOf = new int[16];
+        private int sortedSize;
+        private final Sort sort = new Sort();
+        private static final Comparator<PhysicsBody> sweepOrder = (a, b) -> a.layer != b.layer ? Integer.compare(a.layer, b.layer) : Float.compare(a.sweepMin, b.sweepMin);
+        private static @Nullable ForkJoinPool pool;
+        private final ArrayList<SweepChunk> chunks = new ArrayList<>();
+
         public PhysicsWorld(Rect bounds){
             for(int i = 0; i < layers; i++){
                 trees[i] = new QuadTree<>(new Rect(bounds));
@@ -146,9 +170,15 @@ public class PhysicsProcess implements AsyncProcess{
 
         public void remove(PhysicsBody body){
             bodies.remove(body);
+            body.removed = true;
         }
 
         public void update(){
+            if(sweep){
+                updateSweep();
+                return;
+            }
+
             for(int i = 0; i < layers; i++){
                 trees[i].clear();
             }
@@ -180,32 +210,154 @@ public class PhysicsProcess implements AsyncProcess{
 
                     if(other == body || other.collided) continue;
 
-                    float rs = body.radius + other.radius;
-                    float dst = Mathf.dst(body.x, body.y, other.x, other.y);
+                    collide(body, other, vec, rand);
+                }
+                body.collided = true;
+            }
+        }
+
+        /** Pushes two overlapping bodies apart. {@code body} must be local. */
+        static void collide(PhysicsBody body, PhysicsBody other, Vec2 vec, Rand rand){
+            float rs = body.radius + other.radius;
+            float dst = Mathf.dst(body.x, body.y, other.x, other.y);
 
-                    if(dst < rs){
-                        vec.set(body.x - other.x, body.y - other.y);
+            if(dst < rs){
+                vec.set(body.x - other.x, body.y - other.y);
 
-                        if(vec.isZero()){ //exact stacked bodies will move in random directions away from each other
-                            vec.trns(rand.random(360f), rs - dst);
-                        }else{
-                            vec.setLength(rs - dst);
-                        }
+                if(vec.isZero()){ //exact stacked bodies will move in random directions away from each other
+                    vec.trns(rand.random(360f), rs - dst);
+                }else{
+                    vec.setLength(rs - dst);
+                }
 
-                        float ms = body.mass + other.mass;
-                        float m1 = other.mass / ms, m2 = body.mass / ms;
+                float ms = body.mass + other.mass;
+                float m1 = other.mass / ms, m2 = body.mass / ms;
 
-                        //first body is always local due to guard check above
-                        body.x += vec.x * m1 / scl;
-                        body.y += vec.y * m1 / scl;
+                //first body is always local, see the callers
+                body.x += vec.x * m1 / scl;
+                body.y += vec.y * m1 / scl;
 
-                        if(other.local){
-                            other.x -= vec.x * m2 / scl;
-                            other.y -= vec.y * m2 / scl;
-                        }
-                    }
+                if(other.local){
+                    other.x -= vec.x * m2 / scl;
+                    other.y -= vec.y * m2 / scl;
                 }
-                body.collided = true;
+            }
+        }
+
+        /**
+         * MDTX: Sort-and-sweep broadphase. Each pair of bodies whose hitboxes overlap on the x axis and share a layer is checked once,
+         * the same pairs the quadtrees find. Since bodies barely move between frames, sorting the last order again is close to linear.
+         * <p>
+         * With several threads, the sorted bodies are split into contiguous chunks, and pairs within a chunk are resolved in parallel,
+         * as no body is in two chunks. Pairs spanning chunks are resolved afterwards on this thread.
+         */
+        public void updateSweep(){
+            //keep the order of the last frame, without removed bodies, then add new ones
+            int size = 0;
+            for(int i = 0; i < sortedSize; i++){
+                PhysicsBody body = sorted[i];
+                if(body.removed || body.layer < 0){
+                    body.inSweep = false;
+                    continue;
+                }
+                sorted[size++] = body;
+            }
+            var bodyItems = bodies.items;
+            for(int i = 0; i < bodies.size; i++){
+                PhysicsBody body = bodyItems[i];
+                if(!body.inSweep && body.layer >= 0){
+                    if(size == sorted.length) sorted = Arrays.copyOf(sorted, size * 2);
+                    body.inSweep = true;
+                    sorted[size++] = body;
+                }
+            }
+            if(size < sortedSize) Arrays.fill(sorted, size, sortedSize, null);
+            sortedSize = size;
+
+            if(minX.length < size){
+                int cap = sorted.length;
+                minX = new float[cap];
+                maxX = new float[cap];
+                layerOf = new int[cap];
+            }
+
+            for(int i = 0; i < size; i++){
+                PhysicsBody body = sorted[i];
+                body.sweepMin = body.x - body.radius;
+            }
+            //TimSort; close to linear for nearly sorted input
+            sort.sort(sorted, sweepOrder, 0, size);
+
+            for(int i = 0; i < size; i++){
+                PhysicsBody body = sorted[i];
+                minX[i] = body.sweepMin;
+                maxX[i] = body.x + body.radius;
+                layerOf[i] = body.layer;
+            }
+
+            int chunkCount = Math.min(threads, size / 1024);
+            if(chunkCount <= 1){
+                sweep(0, size, size, vec, rand);
+                return;
+            }
+
+            if(pool == null) pool = new ForkJoinPool(Math.max(OS.cores - 1, 1));
+            while(chunks.size() < chunkCount) chunks.add(new SweepChunk());
+            int per = size / chunkCount;
+            for(int i = 0; i < chunkCount; i++){
+                SweepChunk chunk = chunks.get(i);
+                chunk.from = i * per;
+                chunk.to = i == chunkCount - 1 ? size : (i + 1) * per;
+            }
+            try{
+                for(Future<Object> result : pool.invokeAll(chunks.subList(0, chunkCount))){
+                    result.get();
+                }
+            }catch(InterruptedException | ExecutionException e){
+                throw new RuntimeException(e);
+            }
+
+            //pairs spanning chunks
+            for(int c = 0; c < chunkCount - 1; c++){
+                SweepChunk chunk = chunks.get(c);
+                for(int i = chunk.from; i < chunk.to; i++){
+                    sweepFrom(i, chunk.to, size, vec, rand);
+                }
+            }
+        }
+
+        /** Resolves pairs of bodies in [from, to) where the second body is before {@code end}. */
+        void sweep(int from, int to, int end, Vec2 vec, Rand rand){
+            for(int i = from; i < to; i++){
+                sweepFrom(i, i + 1, end, vec, rand);
+            }
+        }
+
+        /** Resolves pairs of body {@code i} with bodies from {@code start}, until {@code end}, another layer, or a gap on the x axis. */
+        void sweepFrom(int i, int start, int end, Vec2 vec, Rand rand){
+            PhysicsBody a = sorted[i];
+            float right = maxX[i];
+            int layer = layerOf[i];
+            for(int j = start; j < end && minX[j] <= right && layerOf[j] == layer; j++){
+                PhysicsBody b = sorted[j];
+                //for clients, the only body that collides is the local one
+                if(a.local){
+                    collide(a, b, vec, rand);
+                }else if(b.local){
+                    collide(b, a, vec, rand);
+                }
+            }
+        }
+
+        class SweepChunk implements Callable<Object>{
+            final Vec2 vec = new Vec2();
+            final Rand rand = new Rand();
+            int from, to;
+
+            @Override
+            public Object call(){
+                sweep(from, to, to, vec, rand);
+                return null;
             }
         }
 
@@ -213,6 +365,9 @@ public class PhysicsProcess implements AsyncProcess{
             public float x, y, radius, mass;
             public int layer = 0;
             public boolean collided = false, local = true;
+            /** MDTX: Sort-and-sweep state. */
+            boolean removed, inSweep;
+            float sweepMin;
 
             @Override
             public void hitbox(Rect out){
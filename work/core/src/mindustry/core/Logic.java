@@ -402,6 +402,7 @@ public class Logic implements ApplicationListener{
         PerfCounter.frame.begin();
 
         var start = Time.nanos();
+        TickProfiler.beginTick();//MDTX
         Events.fire(Trigger.update);
         universe.updateGlobal();
 
@@ -427,7 +428,9 @@ public class Logic implements ApplicationListener{
                 MapPreviewLoader.checkPreviews();
 
                 if(state.rules.fog){
+                    long fogStart = TickProfiler.begin();
                     fogControl.update();
+                    TickProfiler.end(TickProfiler.fog, fogStart);
                 }
 
                 if(state.isCampaign()){
@@ -502,7 +505,20 @@ public class Logic implements ApplicationListener{
                 Groups.weather.each(w -> state.envAttrs.add(w.weather.attrs, w.opacity));
 
                 PerfCounter.entityUpdate.begin();
+                long entitiesStart = TickProfiler.begin();
+                long powerStart = TickProfiler.begin();
+                mindustry.world.blocks.power.PowerGraph.updateParallel();//MDTX
+                TickProfiler.end(TickProfiler.power, powerStart);
+                mindustryX.features.logic.ParallelLogic.begin();//MDTX
+                mindustry.entities.SplashBatch.begin();//MDTX
                 Groups.update();
+                long splashStart = TickProfiler.begin();
+                mindustry.entities.SplashBatch.end();//MDTX
+                TickProfiler.end(TickProfiler.splash, splashStart);
+                long processorsStart = TickProfiler.begin();
+                mindustryX.features.logic.ParallelLogic.end();//MDTX
+                TickProfiler.end(TickProfiler.processors, processorsStart);
+                TickProfiler.end(TickProfiler.entities, entitiesStart);
                 PerfCounter.entityUpdate.end();
 
                 Events.fire(Trigger.afterGameUpdate);
@@ -514,6 +530,7 @@ public class Logic implements ApplicationListener{
         }else if(netServer.isWaitingForPlayers() && runStateCheck){
             checkGameState();
         }
+        TickProfiler.endTick();//MDTX
         DebugUtil.logicTime = Time.timeSinceNanos(start);
     }
 
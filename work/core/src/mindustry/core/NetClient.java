@@ -64,6 +64,9 @@ public class NetClient implements ApplicationListener{
     private ReusableByteInStream byteStream = new ReusableByteInStream();
     private DataInputStream dataStream = new DataInputStream(byteStream);
     private Reads dataStreamReads = new Reads(dataStream);
+    /** MDTX: Entity snapshot reader, unlike a ByteArrayInputStream it does not lock for every byte. */
+    private ByteBufferInput snapshotInput = new ByteBufferInput();
+    private Reads snapshotReads = new Reads(snapshotInput);
     /** Packet handlers for custom types of messages. */
     private ObjectMap<String, Seq<Cons<String>>> customPacketHandlers = new ObjectMap<>();
     /** Packet handlers for custom types of messages, in binary. */
@@ -460,6 +463,11 @@ public class NetClient implements ApplicationListener{
         int id = input.readInt();
         byte typeID = input.readByte();
 
+        readSyncEntity(id, typeID & 0xFF, read);
+    }
+
+    /** MDTX: Reads the sync state of an entity whose id and type were already read, creating the entity if needed. */
+    public static Syncc readSyncEntity(int id, int typeID, Reads read){
         Syncc entity = Groups.sync.getByID(id);
         boolean add = false, created = false;
 
@@ -470,7 +478,7 @@ public class NetClient implements ApplicationListener{
 
         //entity must not be added yet, so create it
         if(entity == null){
-            entity = (Syncc)EntityMapping.map(typeID & 0xFF).get();
+            entity = (Syncc)EntityMapping.map(typeID).get();
             entity.id(id);
             if(!netClient.isEntityUsed(entity.id())){
                 add = true;
@@ -490,19 +498,21 @@ public class NetClient implements ApplicationListener{
             entity.add();
             netClient.addRemovedEntity(entity.id());
         }
+        return entity;
     }
 
     @Remote(variants = Variant.one, priority = PacketPriority.low, unreliable = true)
     public static void entitySnapshot(short amount, byte[] data){
         try{
             netClient.lastSnapshotTimestamp = Time.millis();
-            netClient.byteStream.setBytes(data);
-            DataInputStream input = netClient.dataStream;
-            Reads reads = netClient.dataStreamReads;
+            long start = Time.nanos();
+            netClient.snapshotInput.setBuffer(java.nio.ByteBuffer.wrap(data));
+            Reads reads = netClient.snapshotReads;
 
             for(int j = 0; j < amount; j++){
-                readSyncEntity(input, reads);
+                readSyncEntity(reads.i(), reads.b() & 0xFF, reads);
             }
+            mindustryX.features.net.SnapshotStaging.applied(start, amount);
         }catch(Exception e){
             //don't disconnect, just log it
             Log.err("Error reading entity snapshot", e);
@@ -117,6 +117,16 @@ public class NetServer implements ApplicationListener{
     /** Data stream for writing player sync data to. */
     private DataOutputStream dataStream = new DataOutputStream(syncStream);
     private Writes dataStreamWrites = new Writes(dataStream);
+    /** MDTX: see {@link #writeBlockSnapshots()} */
+    public static final Config deltaBlockSync = new Config("deltaBlockSync", "Only send synced buildings whose state changed since they were last sent.", false);
+    public static final Config blockSyncFullInterval = new Config("blockSyncFullInterval", "With deltaBlockSync, every this many block syncs include all buildings, to correct clients.", 5);
+    /** MDTX: sync data of one building, and its hash when it was last sent by building id. */
+    private ReusableByteOutStream blockStream = new ReusableByteOutStream();
+    private Writes blockStreamWrites = new Writes(new DataOutputStream(blockStream));
+    private IntIntMap blockHashes = new IntIntMap();
+    private int blockSyncs;
+    /** MDTX: counters since server start, for measurements. */
+    public long blockSyncSent, blockSyncSkipped;
     /** Packet handlers for custom types of messages. */
     private ObjectMap<String, Seq<Cons2<Player, String>>> customPacketHandlers = new ObjectMap<>();
     /** Packet handlers for custom types of messages - binary version. */
@@ -125,6 +135,10 @@ public class NetServer implements ApplicationListener{
     private ObjectMap<String, Seq<Cons2<Player, Object>>> logicClientDataHandlers = new ObjectMap<>();
 
     public NetServer(){
+        Events.on(WorldLoadEvent.class, e -> {//MDTX
+            blockHashes.clear();
+            blockSyncs = 0;
+        });
 
         net.handleServer(Connect.class, (con, connect) -> {
             Events.fire(new ConnectionEvent(con));
@@ -503,6 +517,11 @@ public class NetServer implements ApplicationListener{
     }
 
     public void sendWorldData(Player player){
+        //MDTX: share the map part between players joining in the same tick, compress off the main thread
+        if(mindustryX.features.net.WorldDataEncoder.enabled.bool()){
+            mindustryX.features.net.WorldDataEncoder.send(player);
+            return;
+        }
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
         DeflaterOutputStream def = new FastDeflaterOutputStream(stream);
         NetworkIO.writeWorld(player, def);
@@ -901,7 +920,9 @@ public class NetServer implements ApplicationListener{
                 }
             }
 
+            long syncStart = mindustryX.features.TickProfiler.begin();//MDTX
             sync();
+            mindustryX.features.TickProfiler.end(mindustryX.features.TickProfiler.sync, syncStart);
         }
     }
 
@@ -931,18 +952,36 @@ public class NetServer implements ApplicationListener{
         }
     }
 
-    /** Sends a block snapshot to all players. */
+    /**
+     * Sends a block snapshot to all players.
+     * MDTX: With {@link #deltaBlockSync}, buildings whose sync data hashes the same as when they were last sent are skipped.
+     * Clients simulate buildings on their own and may drift without a change on the server, so all of them are sent every {@link #blockSyncFullInterval} syncs.
+     */
     public void writeBlockSnapshots() throws IOException{
         syncStream.reset();
 
+        boolean delta = deltaBlockSync.bool();
+        boolean full = !delta || blockSyncs++ % Math.max(blockSyncFullInterval.num(), 1) == 0;
+        //also drops the hashes of removed buildings
+        if(delta && full) blockHashes.clear();
+
         short sent = 0;
         for(var team : state.teams.present){
             for(var build : indexer.getFlagged(team.team, BlockFlag.synced)){
+                if(delta && !syncChanged(build, full)){
+                    blockSyncSkipped++;
+                    continue;
+                }
                 sent++;
+                blockSyncSent++;
 
                 dataStream.writeInt(build.pos());
                 dataStream.writeShort(build.block.id);
-                build.writeSync(dataStreamWrites);
+                if(delta){
+                    dataStream.write(blockStream.getBytes(), 0, blockStream.size());
+                }else{
+                    build.writeSync(dataStreamWrites);
+                }
 
                 if(syncStream.size() > maxSnapshotSize){
                     dataStream.close();
@@ -959,6 +998,28 @@ public class NetServer implements ApplicationListener{
         }
     }
 
+    /** MDTX: writes the sync data of this building to {@link #blockStream}. @return whether it has to be sent. */
+    private boolean syncChanged(Building build, boolean full){
+        blockStream.reset();
+        build.writeSync(blockStreamWrites);
+
+        byte[] bytes = blockStream.getBytes();
+        int hash = build.block.id * 0x9E3779B9;
+        for(int i = 0, n = blockStream.size(); i < n; i++){
+            hash = (hash ^ bytes[i]) * 0x01000193;
+        }
+
+        boolean changed = full || !blockHashes.containsKey(build.id) || blockHashes.get(build.id) != hash;
+        blockHashes.put(build.id, hash);
+        return changed;
+    }
+
+    /** MDTX */
+    public String blockSyncStats(){
+        long total = blockSyncSent + blockSyncSkipped;
+        return Strings.format("block sync: @ sent, @ skipped (@%)", blockSyncSent, blockSyncSkipped, total == 0 ? 0 : blockSyncSkipped * 100 / total);
+    }
+
     public void writeEntitySnapshot(Player player) throws IOException{
         byte tps = (byte)Math.min(Core.graphics.getFramesPerSecond(), 255);
         syncStream.reset();
@@ -983,6 +1044,14 @@ public class NetServer implements ApplicationListener{
 
         syncStream.reset();
 
+        //MDTX: area of interest
+        mindustryX.features.net.InterestFilter.begin(player);
+        //MDTX: delta entity snapshots for MindustryX clients
+        if(mindustryX.features.net.DeltaSnapshot.writeEntities(player)){
+            player.con.snapshotsSent++;
+            return;
+        }
+
         hiddenIds.clear();
         int sent = 0;
 
@@ -992,6 +1061,7 @@ public class NetServer implements ApplicationListener{
                 hiddenIds.add(entity.id());
                 continue;
             }
+            if(!mindustryX.features.net.InterestFilter.shouldSync(entity)) continue;
 
             //write all entities now
             dataStream.writeInt(entity.id()); //write id
@@ -231,6 +231,7 @@ public class World{
 
         addDarkness(tiles);
 
+        mindustry.entities.GridIndex.apply();//MDTX: spatial index selection
         Groups.resize(-finalWorldBounds, -finalWorldBounds, tiles.width * tilesize + finalWorldBounds * 2, tiles.height * tilesize + finalWorldBounds * 2);
 
         generating = false;
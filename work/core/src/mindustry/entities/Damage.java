@@ -499,40 +499,43 @@ public class Damage{
 
     /** Damages all entities and blocks in a radius that are enemies of the team. */
     public static void damage(Team team, float x, float y, float radius, float damage, boolean complete, boolean air, boolean ground, boolean scaled, @Nullable Bullet source){
-        Cons<Unit> cons = unit -> {
-            if(unit.team == team  || !unit.checkTarget(air, ground) || !unit.hittable() || !unit.within(x, y, radius + (scaled ? unit.hitSize / 2f : 0f))){
-                return;
-            }
+        //MDTX: units are damaged with the other splash damage of this tick, see SplashBatch
+        if(complete || !SplashBatch.add(team, x, y, radius, damage, air, ground, scaled, source)){
+            Cons<Unit> cons = unit -> {
+                if(unit.team == team  || !unit.checkTarget(air, ground) || !unit.hittable() || !unit.within(x, y, radius + (scaled ? unit.hitSize / 2f : 0f))){
+                    return;
+                }
 
-            boolean dead = unit.dead;
+                boolean dead = unit.dead;
 
-            float amount = calculateDamage(scaled ? Math.max(0, unit.dst(x, y) - unit.type.hitSize/2) : unit.dst(x, y), radius, damage);
+                float amount = calculateDamage(scaled ? Math.max(0, unit.dst(x, y) - unit.type.hitSize/2) : unit.dst(x, y), radius, damage);
 
-            HealthChangedEvent.INSTANCE.source = source;
-            unit.damage(amount);
+                HealthChangedEvent.INSTANCE.source = source;
+                unit.damage(amount);
 
-            if(source != null){
-                Events.fire(bulletDamageEvent.set(unit, source));
-                unit.controller().hit(source);
+                if(source != null){
+                    Events.fire(bulletDamageEvent.set(unit, source));
+                    unit.controller().hit(source);
 
-                if(!dead && unit.dead){
-                    Events.fire(new UnitBulletDestroyEvent(unit, source));
+                    if(!dead && unit.dead){
+                        Events.fire(new UnitBulletDestroyEvent(unit, source));
+                    }
                 }
-            }
-            //TODO better velocity displacement
-            float dst = vec.set(unit.x - x, unit.y - y).len();
-            unit.vel.add(vec.setLength((radius > 0f ? 1f - dst / radius : 1f) * 2f / unit.mass()));
+                //TODO better velocity displacement
+                float dst = vec.set(unit.x - x, unit.y - y).len();
+                unit.vel.add(vec.setLength((radius > 0f ? 1f - dst / radius : 1f) * 2f / unit.mass()));
 
-            if(complete && damage >= 9999999f && unit.isPlayer()){
-                Events.fire(Trigger.exclusionDeath);
-            }
-        };
+                if(complete && damage >= 9999999f && unit.isPlayer()){
+                    Events.fire(Trigger.exclusionDeath);
+                }
+            };
 
-        rect.setSize(radius * 2).setCenter(x, y);
-        if(team != null){
-            Units.nearbyEnemies(team, rect, cons);
-        }else{
-            Units.nearby(rect, cons);
+            rect.setSize(radius * 2).setCenter(x, y);
+            if(team != null){
+                Units.nearbyEnemies(team, rect, cons);
+            }else{
+                Units.nearby(rect, cons);
+            }
         }
 
         if(ground){
@@ -645,7 +648,8 @@ public class Damage{
         }
     }
 
-    private static float calculateDamage(float dist, float radius, float damage){
+    //MDTX: used by SplashBatch
+    static float calculateDamage(float dist, float radius, float damage){
         float falloff = 0.4f;
         float scaled = radius <= 0.00001f ? 1f : Mathf.lerp(1f - dist / radius, 1f, falloff);
         return damage * scaled;
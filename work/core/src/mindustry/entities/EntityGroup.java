@@ -20,10 +20,13 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
     private final Seq<T> array;
     private final Seq<T> intersectArray = new Seq<>();
     private final Rect viewport = new Rect();
-    private final Rect intersectRect = new Rect();
     private final EntityIndexer indexer;
     private IntMap<T> map;
-    private QuadTree tree;
+    private SpatialIndex index;
+    private final Rect bounds = new Rect();
+    /** MDTX: quadtree built on demand by {@link #tree()} while the group uses another index, null until it is asked for. */
+    private @Nullable QuadTree fallbackTree;
+    private boolean fallbackBuilt;
     private boolean clearing;
 
     private int index;
@@ -46,7 +49,7 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
         array = new Seq<>(false, 32, type);
 
         if(spatial){
-            tree = new QuadTree<>(new Rect(0, 0, 0, 0));
+            index = new QuadTreeIndex<>();
         }
 
         if(mapping){
@@ -73,11 +76,16 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
     }
 
     public void collide(){
+        long start = TickProfiler.begin();//MDTX
         collisions.collide((EntityGroup<? extends Hitboxc>)this);
+        TickProfiler.end(TickProfiler.collide, start);
     }
 
     public void updatePhysics(){
+        long start = TickProfiler.begin();//MDTX
         collisions.updatePhysics((EntityGroup<? extends Hitboxc>)this);
+        fallbackBuilt = false;//MDTX
+        TickProfiler.end(TickProfiler.physics, start);
     }
 
     public void update(){
@@ -92,6 +100,16 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
             }
             return;
         }
+        //MDTX: time each entity in measured ticks
+        if(TickProfiler.active){
+            for(index = 0; index < array.size; index++){
+                T entity = array.items[index];
+                long start = Time.nanos();
+                entity.update();
+                TickProfiler.entity(entity, Time.timeSinceNanos(start));
+            }
+            return;
+        }
         for(index = 0; index < array.size; index++){
             array.items[index].update();
         }
@@ -131,7 +149,7 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
     }
 
     public boolean useTree(){
-        return tree != null;
+        return index != null;
     }
 
     public boolean mappingEnabled(){
@@ -155,32 +173,65 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
     public void intersect(float x, float y, float width, float height, Cons<? super T> out){
         //don't waste time for empty groups
         if(isEmpty()) return;
-        tree.intersect(x, y, width, height, out);
+        index.intersect(x, y, width, height, out);
     }
 
     public boolean intersect(float x, float y, float width, float height, Boolf<? super T> out){
         //don't waste time for empty groups
         if(isEmpty()) return false;
-        return tree.intersect(x, y, width, height, out);
+        return index.intersect(x, y, width, height, out);
     }
 
     public Seq<T> intersect(float x, float y, float width, float height){
         intersectArray.clear();
         //don't waste time for empty groups
         if(isEmpty()) return intersectArray;
-        tree.intersect(intersectRect.set(x, y, width, height), intersectArray);
+        index.intersect(x, y, width, height, intersectArray);
         return intersectArray;
     }
 
+    /**
+     * @return the quadtree of this group.
+     * MDTX: if the group uses another {@link SpatialIndex}, a quadtree of the same entities is built on the first call after each {@link #updatePhysics()},
+     * so callers which need a quadtree keep working, at the cost of filling it. Prefer {@link #index()}.
+     */
     public QuadTree tree(){
-        if(tree == null) throw new RuntimeException("This group does not support quadtrees! Enable quadtrees when creating it.");
-        return tree;
+        if(index == null) throw new RuntimeException("This group does not support quadtrees! Enable quadtrees when creating it.");
+        if(index instanceof QuadTreeIndex q) return q.tree;
+
+        if(fallbackTree == null){
+            fallbackTree = new QuadTree<>(new Rect(bounds));
+            fallbackBuilt = false;
+        }
+        if(!fallbackBuilt){
+            fallbackTree.clear();
+            for(int i = 0; i < array.size; i++){
+                fallbackTree.insert((Hitboxc)array.items[i]);
+            }
+            fallbackBuilt = true;
+        }
+        return fallbackTree;
+    }
+
+    public SpatialIndex index(){
+        if(index == null) throw new RuntimeException("This group is not spatial! Enable spatial indexing when creating it.");
+        return index;
+    }
+
+    /** MDTX: replaces the spatial index of this group. It is empty until the next {@link #updatePhysics()}. */
+    public void setSpatialIndex(SpatialIndex index){
+        if(this.index == null) throw new RuntimeException("This group is not spatial! Enable spatial indexing when creating it.");
+        index.resize(bounds.x, bounds.y, bounds.width, bounds.height);
+        this.index = index;
+        fallbackTree = null;
     }
 
-    /** Resizes the internal quadtree, if it is enabled.*/
+    /** Resizes the internal spatial index, if it is enabled.*/
     public void resize(float x, float y, float w, float h){
-        if(tree != null){
-            tree = new QuadTree<>(new Rect(x, y, w, h));
+        bounds.set(x, y, w, h);
+        fallbackTree = null;//MDTX
+        if(index != null){
+            index.resize(x, y, w, h);
         }
     }
 
@@ -0,0 +1,211 @@
+package mindustry.entities;
+
+import arc.func.*;
+import arc.math.*;
+import arc.math.geom.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.gen.*;
+import mindustry.net.Administration.*;
+
+import java.util.*;
+
+/**
+ * 均匀网格空间索引
+ * Uniform grid {@link SpatialIndex}. Each object is put into the cell containing the center of its hitbox, so it is stored once,
+ * and queries are grown by half a cell. Objects bigger than a cell are kept in a separate list which every query checks.
+ * <p>
+ * Inserting only appends to flat arrays. The first query after inserting sorts the objects by cell (counting sort),
+ * so each row of cells touched by a query is one contiguous range. There are no per-cell or per-node objects.
+ * <p>
+ * Only the group indexes are replaced, which serve {@link EntityGroup#intersect} and {@link EntityGroup#index()}, e.g. {@code Groups.unit.intersect}
+ * and {@code Units.nearby(Rect)}. The per-team unit quadtrees of {@code TeamData.tree()}, used by {@code Units.nearby(team)}, {@code nearbyEnemies},
+ * {@code Damage} and bullet collisions, stay quadtrees. {@link EntityGroup#tree()} still works, but builds a quadtree on demand.
+ */
+@SuppressWarnings("unchecked")
+public class GridIndex<T extends QuadTreeObject> implements SpatialIndex<T>{
+    public static final Config groups = new Config("spatialGrid", "Spatial entity groups which use a uniform grid instead of a quadtree, comma separated (bullet, unit).", "");
+    public static final Config cellSize = new Config("spatialGridCell", "Cell size of the uniform grid spatial index, in world units.", 64);
+    /** Cells are made bigger on huge maps, so the cell table stays small. */
+    static final int maxCells = 1 << 18;
+
+    private final Rect tmp = new Rect();
+    private final float baseCell;
+    private float x, y, width, height, cell, halfCell;
+    private int cols = 1, rows = 1;
+
+    private Object[] items = new Object[64], sorted = new Object[64];
+    private int[] itemCell = new int[64];
+    private int size;
+    /** Index in {@link #sorted} of the first object of each cell. Has one more entry, which is {@link #size}. */
+    private int[] cellStart = new int[2], cellFill = new int[1];
+    private boolean built = true;
+    private final Seq<T> large = new Seq<>(false);
+
+    public GridIndex(float cellSize){
+        baseCell = Math.max(cellSize, 1f);
+        resize(0, 0, 0, 0);
+    }
+
+    /** Sets the index of the spatial groups according to {@link #groups}. */
+    public static void apply(){
+        String[] names = groups.string().split(",");
+        applyTo(Groups.bullet, Structs.contains(names, s -> s.trim().equals("bullet")));
+        applyTo(Groups.unit, Structs.contains(names, s -> s.trim().equals("unit")));
+    }
+
+    private static void applyTo(EntityGroup<?> group, boolean grid){
+        if(grid != (group.index() instanceof GridIndex)){
+            group.setSpatialIndex(grid ? new GridIndex<>(cellSize.num()) : new QuadTreeIndex<>());
+        }
+    }
+
+    @Override
+    public void resize(float x, float y, float width, float height){
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+
+        cell = baseCell;
+        while(Math.ceil(width / cell) * Math.ceil(height / cell) > maxCells){
+            cell *= 2f;
+        }
+        halfCell = cell / 2f;
+        cols = Math.max((int)Math.ceil(width / cell), 1);
+        rows = Math.max((int)Math.ceil(height / cell), 1);
+
+        int cells = cols * rows;
+        if(cellStart.length < cells + 1){
+            cellStart = new int[cells + 1];
+            cellFill = new int[cells];
+        }
+
+        //don't keep entities of the last world alive
+        Arrays.fill(items, 0, size, null);
+        Arrays.fill(sorted, 0, size, null);
+        clear();
+    }
+
+    @Override
+    public void clear(){
+        size = 0;
+        large.clear();
+        built = false;
+    }
+
+    @Override
+    public void insert(T obj){
+        obj.hitbox(tmp);
+        if(!tmp.overlaps(x, y, width, height)) return;
+
+        if(tmp.width > cell || tmp.height > cell){
+            large.add(obj);
+            return;
+        }
+
+        if(size == items.length){
+            int capacity = size * 2;
+            items = Arrays.copyOf(items, capacity);
+            sorted = new Object[capacity];
+            itemCell = Arrays.copyOf(itemCell, capacity);
+        }
+
+        items[size] = obj;
+        itemCell[size] = cellY(tmp.y + tmp.height / 2f) * cols + cellX(tmp.x + tmp.width / 2f);
+        size++;
+        built = false;
+    }
+
+    @Override
+    public void intersect(float x, float y, float width, float height, Cons<? super T> out){
+        if(!built) build();
+
+        int minX = cellX(x - halfCell), maxX = cellX(x + width + halfCell), maxY = cellY(y + height + halfCell);
+        for(int cy = cellY(y - halfCell); cy <= maxY; cy++){
+            int row = cy * cols;
+            for(int i = cellStart[row + minX], end = cellStart[row + maxX + 1]; i < end; i++){
+                T item = (T)sorted[i];
+                item.hitbox(tmp);
+                if(tmp.overlaps(x, y, width, height)){
+                    out.get(item);
+                }
+            }
+        }
+
+        Object[] large = this.large.items;
+        for(int i = 0; i < this.large.size; i++){
+            T item = (T)large[i];
+            item.hitbox(tmp);
+            if(tmp.overlaps(x, y, width, height)){
+                out.get(item);
+            }
+        }
+    }
+
+    @Override
+    public boolean intersect(float x, float y, float width, float height, Boolf<? super T> out){
+        if(!built) build();
+
+        int minX = cellX(x - halfCell), maxX = cellX(x + width + halfCell), maxY = cellY(y + height + halfCell);
+        for(int cy = cellY(y - halfCell); cy <= maxY; cy++){
+            int row = cy * cols;
+            for(int i = cellStart[row + minX], end = cellStart[row + maxX + 1]; i < end; i++){
+                T item = (T)sorted[i];
+                item.hitbox(tmp);
+                if(tmp.overlaps(x, y, width, height) && out.get(item)){
+                    return true;
+                }
+            }
+        }
+
+        Object[] large = this.large.items;
+        for(int i = 0; i < this.large.size; i++){
+            T item = (T)large[i];
+            item.hitbox(tmp);
+            if(tmp.overlaps(x, y, width, height) && out.get(item)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void intersect(float x, float y, float width, float height, Seq<T> out){
+        intersect(x, y, width, height, (Cons<T>)out::add);
+    }
+
+    @Override
+    public boolean any(float x, float y, float width, float height){
+        return intersect(x, y, width, height, (Boolf<T>)item -> true);
+    }
+
+    /** Sorts the inserted objects by cell. */
+    private void build(){
+        int cells = cols * rows;
+        int[] start = cellStart, fill = cellFill, cellOf = itemCell;
+
+        Arrays.fill(start, 0, cells + 1, 0);
+        for(int i = 0; i < size; i++){
+            start[cellOf[i] + 1]++;
+        }
+        for(int c = 1; c <= cells; c++){
+            start[c] += start[c - 1];
+        }
+
+        System.arraycopy(start, 0, fill, 0, cells);
+        for(int i = 0; i < size; i++){
+            sorted[fill[cellOf[i]]++] = items[i];
+        }
+        built = true;
+    }
+
+    private int cellX(float wx){
+        return Mathf.clamp((int)((wx - x) / cell), 0, cols - 1);
+    }
+
+    private int cellY(float wy){
+        return Mathf.clamp((int)((wy - y) / cell), 0, rows - 1);
+    }
+}
@@ -0,0 +1,47 @@
+package mindustry.entities;
+
+import arc.func.*;
+import arc.math.geom.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+
+/** The default {@link SpatialIndex}, backed by a {@link QuadTree}. */
+@SuppressWarnings("unchecked")
+public class QuadTreeIndex<T extends QuadTreeObject> implements SpatialIndex<T>{
+    public QuadTree<T> tree = new QuadTree<>(new Rect(0, 0, 0, 0));
+
+    @Override
+    public void resize(float x, float y, float width, float height){
+        tree = new QuadTree<>(new Rect(x, y, width, height));
+    }
+
+    @Override
+    public void clear(){
+        tree.clear();
+    }
+
+    @Override
+    public void insert(T obj){
+        tree.insert(obj);
+    }
+
+    @Override
+    public void intersect(float x, float y, float width, float height, Cons<? super T> out){
+        tree.intersect(x, y, width, height, (Cons<T>)out);
+    }
+
+    @Override
+    public boolean intersect(float x, float y, float width, float height, Boolf<? super T> out){
+        return tree.intersect(x, y, width, height, (Boolf<T>)out);
+    }
+
+    @Override
+    public void intersect(float x, float y, float width, float height, Seq<T> out){
+        tree.intersect(x, y, width, height, out);
+    }
+
+    @Override
+    public boolean any(float x, float y, float width, float height){
+        return tree.any(x, y, width, height);
+    }
+}
@@ -0,0 +1,28 @@
+package mindustry.entities;
+
+import arc.func.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+
+/**
+ * 实体空间索引
+ * Spatial index of a spatial {@link EntityGroup}. It is cleared and refilled every frame in {@link EntityCollisions#updatePhysics},
+ * queries test the current hitbox of each object, like {@link arc.math.geom.QuadTree} does.
+ */
+public interface SpatialIndex<T extends QuadTreeObject>{
+    /** Sets the bounds of the world. Objects which are entirely outside are ignored. Also clears the index. */
+    void resize(float x, float y, float width, float height);
+
+    void clear();
+
+    void insert(T obj);
+
+    void intersect(float x, float y, float width, float height, Cons<? super T> out);
+
+    /** @return whether {@code out} returned true for any object, which stops the query. */
+    boolean intersect(float x, float y, float width, float height, Boolf<? super T> out);
+
+    void intersect(float x, float y, float width, float height, Seq<T> out);
+
+    boolean any(float x, float y, float width, float height);
+}
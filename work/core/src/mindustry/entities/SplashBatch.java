@@ -0,0 +1,211 @@
+package mindustry.entities;
+
+import arc.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.pooling.*;
+import mindustry.game.EventType.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+import mindustryX.events.*;
+
+import java.util.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * 范围伤害批处理
+ * Collects the unit part of {@link Damage#damage} calls made while entities update, and resolves them after {@link Groups#update()}.
+ * Events of one team around one grid cell share a single unit query, and every unit takes the sum of its damage at once,
+ * so it fires one {@link HealthChangedEvent} per tick instead of one per explosion.
+ * <p>
+ * Falloff and armor are still computed per event, and shields and health multipliers are linear, so the damage dealt is the same.
+ * Units killed while resolving queue their death explosions again, which are resolved in the next wave.
+ * Buildings are not batched: {@link Damage#tileDamage} already runs after the tick, and block damage handlers are not linear.
+ */
+public class SplashBatch{
+    public static final mindustry.net.Administration.Config enabled = new mindustry.net.Administration.Config("batchSplash", "Resolve splash damage against units once per tick, with one unit query per area.", false);
+    /** Grid cell size in world units. Events are grouped by the cell of their center. */
+    public static float cellSize = 8 * tilesize;
+
+    private static boolean active;
+    private static Seq<Splash> queue = new Seq<>(Splash.class), resolving = new Seq<>(Splash.class);
+    private static final Pool<Splash> pool = Pools.get(Splash.class, Splash::new);
+    private static final Comparator<Splash> byKey = (a, b) -> Long.compare(a.key, b.key);
+
+    //targets of the current wave, by unit id
+    private static final IntIntMap targetIndex = new IntIntMap();
+    private static final Seq<Unit> targets = new Seq<>(Unit.class);
+    private static final FloatSeq totals = new FloatSeq();
+    private static final Seq<Bullet> lastSources = new Seq<>(Bullet.class);
+    private static final BoolSeq splash = new BoolSeq(), wasDead = new BoolSeq();
+    //bullet hits in event order
+    private static final Seq<Unit> hitUnits = new Seq<>(Unit.class);
+    private static final Seq<Bullet> hitSources = new Seq<>(Bullet.class);
+
+    private static final UnitDamageEvent bulletDamageEvent = new UnitDamageEvent();
+    private static final Rect rect = new Rect(), hitrect = new Rect();
+    private static final Vec2 vec = new Vec2();
+    private static int groupFrom, groupTo;
+    private static final arc.func.Cons<Unit> groupCons = unit -> {
+        for(int i = groupFrom; i < groupTo; i++){
+            hit(resolving.items[i], unit);
+        }
+    };
+
+    private static long events, queries, damaged;
+
+    /** Starts collecting. Called before entities are updated. */
+    public static void begin(){
+        active = enabled.bool();
+    }
+
+    /** Resolves everything collected since {@link #begin()}. Called after entities are updated. */
+    public static void end(){
+        if(!active) return;
+
+        while(queue.size > 0){
+            Seq<Splash> swap = resolving;
+            resolving = queue;
+            queue = swap;
+
+            resolve();
+
+            pool.freeAll(resolving);
+            resolving.clear();
+        }
+        active = false;
+    }
+
+    /** @return whether the event was queued; if not, it must be applied immediately. */
+    public static boolean add(Team team, float x, float y, float radius, float damage, boolean air, boolean ground, boolean scaled, @Nullable Bullet source){
+        if(!active) return false;
+
+        Splash e = pool.obtain();
+        e.team = team;
+        e.x = x;
+        e.y = y;
+        e.radius = radius;
+        e.damage = damage;
+        e.air = air;
+        e.ground = ground;
+        e.scaled = scaled;
+        e.source = source;
+        e.splash = HealthChangedEvent.INSTANCE.isSplash;
+        e.key = ((long)(team == null ? 0 : team.id + 1) << 48) | ((long)((int)(x / cellSize) & 0xffffff) << 24) | ((int)(y / cellSize) & 0xffffff);
+        queue.add(e);
+        events++;
+        return true;
+    }
+
+    public static String stats(){
+        return Strings.format("splash batch: @ events, @ unit queries, @ units damaged", events, queries, damaged);
+    }
+
+    static void resolve(){
+        //stable, so events keep their order inside of a group
+        resolving.sort(byKey);
+
+        for(int start = 0; start < resolving.size; ){
+            Splash first = resolving.items[start];
+            rect.setSize(first.radius * 2).setCenter(first.x, first.y);
+
+            int end = start + 1;
+            while(end < resolving.size && resolving.items[end].key == first.key){
+                Splash e = resolving.items[end++];
+                rect.merge(e.x - e.radius, e.y - e.radius).merge(e.x + e.radius, e.y + e.radius);
+            }
+
+            groupFrom = start;
+            groupTo = end;
+            if(first.team != null){
+                Units.nearbyEnemies(first.team, rect, groupCons);
+            }else{
+                Units.nearby(rect, groupCons);
+            }
+            queries++;
+            start = end;
+        }
+
+        for(int i = 0; i < targets.size; i++){
+            Unit unit = targets.items[i];
+            wasDead.add(unit.dead);
+
+            HealthChangedEvent.INSTANCE.source = lastSources.items[i];
+            HealthChangedEvent.INSTANCE.isSplash = splash.items[i];
+            unit.damagePierce(totals.items[i]);
+            HealthChangedEvent.INSTANCE.isSplash = false;
+            HealthChangedEvent.INSTANCE.source = null;
+        }
+        damaged += targets.size;
+
+        for(int i = 0; i < hitUnits.size; i++){
+            Unit unit = hitUnits.items[i];
+            Events.fire(bulletDamageEvent.set(unit, hitSources.items[i]));
+            unit.controller().hit(hitSources.items[i]);
+        }
+
+        for(int i = 0; i < targets.size; i++){
+            Unit unit = targets.items[i];
+            if(!wasDead.items[i] && unit.dead && lastSources.items[i] != null){
+                Events.fire(new UnitBulletDestroyEvent(unit, lastSources.items[i]));
+            }
+        }
+
+        targetIndex.clear();
+        targets.clear();
+        totals.clear();
+        lastSources.clear();
+        splash.clear();
+        wasDead.clear();
+        hitUnits.clear();
+        hitSources.clear();
+    }
+
+    /** Same checks and math as the unit part of {@link Damage#damage}, but only records the damage. */
+    static void hit(Splash e, Unit unit){
+        if(unit.team == e.team || !unit.checkTarget(e.air, e.ground) || !unit.hittable() || !unit.within(e.x, e.y, e.radius + (e.scaled ? unit.hitSize / 2f : 0f))){
+            return;
+        }
+        //the group query covers more than this event's area
+        unit.hitbox(hitrect);
+        if(!hitrect.overlaps(e.x - e.radius, e.y - e.radius, e.radius * 2, e.radius * 2)) return;
+
+        float amount = Damage.calculateDamage(e.scaled ? Math.max(0, unit.dst(e.x, e.y) - unit.type.hitSize / 2) : unit.dst(e.x, e.y), e.radius, e.damage);
+
+        int index = targetIndex.get(unit.id, -1);
+        if(index == -1){
+            index = targets.size;
+            targetIndex.put(unit.id, index);
+            targets.add(unit);
+            totals.add(0f);
+            lastSources.add((Bullet)null);
+            splash.add(false);
+        }
+        totals.items[index] += Damage.applyArmor(amount, unit.armorOverride >= 0f ? unit.armorOverride : unit.armor);
+        if(e.splash) splash.items[index] = true;
+        if(e.source != null){
+            lastSources.items[index] = e.source;
+            hitUnits.add(unit);
+            hitSources.add(e.source);
+        }
+
+        float dst = vec.set(unit.x - e.x, unit.y - e.y).len();
+        unit.vel.add(vec.setLength((e.radius > 0f ? 1f - dst / e.radius : 1f) * 2f / unit.mass()));
+    }
+
+    static class Splash implements Pool.Poolable{
+        Team team;
+        float x, y, radius, damage;
+        boolean air, ground, scaled, splash;
+        @Nullable Bullet source;
+        long key;
+
+        @Override
+        public void reset(){
+            team = null;
+            source = null;
+        }
+    }
+}
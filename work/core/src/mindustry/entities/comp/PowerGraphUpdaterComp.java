@@ -11,6 +11,6 @@ abstract class PowerGraphUpdaterComp implements Entityc{
 
     @Override
     public void update(){
-        graph.update();
+        if(!PowerGraph.updatedInParallel) graph.update();//MDTX
     }
 }
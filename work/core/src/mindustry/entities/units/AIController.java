@@ -261,7 +261,7 @@ public class AIController implements UnitController{
 
     public Teamc targetFlag(float x, float y, BlockFlag flag, boolean enemy){
         if(unit.team == Team.derelict) return null;
-        return Geometry.findClosest(x, y, enemy ? indexer.getEnemy(unit.team, flag) : indexer.getFlagged(unit.team, flag));
+        return enemy ? indexer.findClosestEnemyFlag(x, y, unit.team, flag) : indexer.findClosestFlag(x, y, unit.team, flag); //MDTX
     }
 
     public Teamc target(float x, float y, float range, boolean air, boolean ground){
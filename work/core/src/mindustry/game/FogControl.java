@@ -15,6 +15,7 @@ import mindustry.io.*;
 import mindustry.world.meta.*;
 
 import java.io.*;
+import java.util.*;
 
 import static mindustry.Vars.*;
 
@@ -22,14 +23,18 @@ public final class FogControl implements CustomChunk{
     private static volatile int ww, wh;
     private static final int dynamicUpdateInterval = 1000 / 25; //25 FPS
     private static final Object notifyStatic = new Object(), notifyDynamic = new Object();
+    /** MDTX: see {@link #updateIncremental} */
+    public static final mindustry.net.Administration.Config incrementalFog = new mindustry.net.Administration.Config("incrementalFog", "Only redraw dynamic fog circles of units and buildings which moved or changed radius.", false);
+    /** MDTX: half width of each row of a circle, indexed by radius then row offset. Copy on write. */
+    private static volatile int[][] circleSpans = new int[0][];
 
     /** indexed by team */
-    private volatile @Nullable FogData[] fog;
+    volatile @Nullable FogData[] fog;
 
     private final LongSeq staticEvents = new LongSeq();
     private final LongSeq dynamicEventQueue = new LongSeq(), unitEventQueue = new LongSeq();
     /** access must be synchronized; accessed from both threads */
-    private final LongSeq dynamicEvents = new LongSeq(100);
+    final LongSeq dynamicEvents = new LongSeq(100);
 
     private @Nullable Thread staticFogThread;
     private @Nullable Thread dynamicFogThread;
@@ -396,30 +401,48 @@ public final class FogControl implements CustomChunk{
 
     void updateDynamic(Bits cleared){
         cleared.clear();
+        boolean incremental = incrementalFog.bool();
 
         //ugly sync
         synchronized(dynamicEvents){
             int size = dynamicEvents.size;
 
-            //draw step
-            for(int i = 0; i < size; i++){
-                long event = dynamicEvents.items[i];
-                int x = FogEvent.x(event), y = FogEvent.y(event), rad = FogEvent.radius(event), team = FogEvent.team(event);
+            if(incremental){
+                //team is stored in the highest bits, so sorting groups events by team
+                dynamicEvents.sort();
+                long[] events = dynamicEvents.items;
+                for(int start = 0, end; start < size; start = end){
+                    int team = FogEvent.team(events[start]);
+                    end = start + 1;
+                    while(end < size && FogEvent.team(events[end]) == team) end++;
+
+                    var data = fog[team];
+                    if(data != null && updateIncremental(data, events, start, end)){
+                        cleared.set(team);
+                    }
+                }
+            }else{
+                //draw step
+                for(int i = 0; i < size; i++){
+                    long event = dynamicEvents.items[i];
+                    int x = FogEvent.x(event), y = FogEvent.y(event), rad = FogEvent.radius(event), team = FogEvent.team(event);
 
-                if(rad <= 0) continue;
+                    if(rad <= 0) continue;
 
-                var data = fog[team];
-                if(data != null){
+                    var data = fog[team];
+                    if(data != null){
 
-                    //clear the buffer, since it is being re-drawn
-                    if(!cleared.get(team)){
-                        cleared.set(team);
+                        //clear the buffer, since it is being re-drawn
+                        if(!cleared.get(team)){
+                            cleared.set(team);
 
-                        data.write.clear();
-                    }
+                            data.write.clear();
+                            data.coverage = null;
+                        }
 
-                    //radius is always +1 to keep up with visuals
-                    circle(data.write, x, y, rad + 1);
+                        //radius is always +1 to keep up with visuals
+                        circle(data.write, x, y, rad + 1);
+                    }
                 }
             }
             dynamicEvents.clear();
@@ -438,6 +461,56 @@ public final class FogControl implements CustomChunk{
         }
     }
 
+    /**
+     * MDTX: Applies the difference between the last drawn and the current events of a team, which must be sorted.
+     * Each tile counts the circles covering it, so removing a circle only hides tiles no other circle covers.
+     * Circles are added before old ones are removed, so tiles which stay covered never flicker.
+     * @return whether the fog was rebuilt in the write buffer, which must be swapped in. Otherwise the read buffer was changed in place.
+     */
+    boolean updateIncremental(FogData data, long[] events, int start, int end){
+        int len = ww * wh;
+        boolean rebuild = data.coverage == null || data.coverage.length != len;
+        if(rebuild){
+            data.coverage = new int[len];
+            data.stamped.clear();
+            data.write.clear();
+        }
+
+        Bits target = rebuild ? data.write : data.read;
+        int[] coverage = data.coverage;
+        LongSeq stamped = data.stamped;
+        long[] old = stamped.items;
+        int oldSize = stamped.size;
+
+        //added: in events, but not (or less often) in stamped
+        for(int i = 0, j = start; j < end; ){
+            if(i < oldSize && old[i] < events[j]){
+                i++;
+            }else if(i < oldSize && old[i] == events[j]){
+                i++;
+                j++;
+            }else{
+                stamp(target, coverage, events[j++], 1);
+            }
+        }
+
+        //removed: in stamped, but not in events
+        for(int i = 0, j = start; i < oldSize; ){
+            if(j < end && events[j] < old[i]){
+                j++;
+            }else if(j < end && events[j] == old[i]){
+                i++;
+                j++;
+            }else{
+                stamp(target, coverage, old[i++], -1);
+            }
+        }
+
+        stamped.clear();
+        stamped.addAll(events, start, end - start);
+        return rebuild;
+    }
+
     @Override
     public void write(DataOutput stream) throws IOException{
         int used = 0;
@@ -514,27 +587,72 @@ public final class FogControl implements CustomChunk{
     }
 
     static void circle(Bits arr, int x, int y, int radius){
-        int f = 1 - radius;
-        int ddFx = 1, ddFy = -2 * radius;
-        int px = 0, py = radius;
-
-        hline(arr, x, x, y + radius);
-        hline(arr, x, x, y - radius);
-        hline(arr, x - radius, x + radius, y);
-
-        while(px < py){
-            if(f >= 0){
-                py--;
-                ddFy += 2;
-                f += ddFy;
+        //MDTX: one span per row from the precomputed table, instead of redrawing rows for every step of the midpoint algorithm
+        int[] spans = circleSpans(radius);
+        for(int dy = -radius; dy <= radius; dy++){
+            int half = spans[Math.abs(dy)];
+            if(half >= 0) hline(arr, x - half, x + half, y + dy);
+        }
+    }
+
+    /** MDTX: adds ({@code delta} 1) or removes (-1) the circle of a dynamic event, same shape as {@link #circle}. */
+    static void stamp(Bits arr, int[] coverage, long event, int delta){
+        int x = FogEvent.x(event), y = FogEvent.y(event), radius = FogEvent.radius(event);
+        if(radius <= 0) return;
+        //radius is always +1 to keep up with visuals
+        radius++;
+
+        int[] spans = circleSpans(radius);
+        for(int dy = -radius; dy <= radius; dy++){
+            int half = spans[Math.abs(dy)], row = y + dy;
+            if(half < 0 || row < 0 || row >= wh) continue;
+
+            int x1 = Math.max(x - half, 0), x2 = Math.min(x + half, ww - 1), off = row * ww;
+            for(int i = off + x1, last = off + x2; i <= last; i++){
+                if(delta > 0){
+                    if(coverage[i]++ == 0) arr.set(i);
+                }else{
+                    if(--coverage[i] == 0) arr.clear(i);
+                }
+            }
+        }
+    }
+
+    /** MDTX: @return the half width of each row offset of a circle drawn by the midpoint algorithm, -1 for rows it doesn't draw. */
+    static int[] circleSpans(int radius){
+        int[][] table = circleSpans;
+        if(radius < table.length && table[radius] != null) return table[radius];
+
+        synchronized(FogControl.class){
+            table = circleSpans;
+            if(radius < table.length && table[radius] != null) return table[radius];
+
+            int[] spans = new int[radius + 1];
+            Arrays.fill(spans, -1);
+            int f = 1 - radius;
+            int ddFx = 1, ddFy = -2 * radius;
+            int px = 0, py = radius;
+
+            spans[radius] = 0;
+            spans[0] = radius;
+
+            while(px < py){
+                if(f >= 0){
+                    py--;
+                    ddFy += 2;
+                    f += ddFy;
+                }
+                px++;
+                ddFx += 2;
+                f += ddFx;
+                spans[py] = Math.max(spans[py], px);
+                spans[px] = Math.max(spans[px], py);
             }
-            px++;
-            ddFx += 2;
-            f += ddFx;
-            hline(arr, x - px, x + px, y + py);
-            hline(arr, x - px, x + px, y - py);
-            hline(arr, x - py, x + py, y + px);
-            hline(arr, x - py, x + py, y - px);
+
+            int[][] copy = Arrays.copyOf(table, Math.max(table.length, radius + 1));
+            copy[radius] = spans;
+            circleSpans = copy;
+            return spans;
         }
     }
 
@@ -569,6 +687,9 @@ public final class FogControl implements CustomChunk{
         long lastDynamicMs = 0;
         /** if true, a dynamic fog update must be scheduled. */
         boolean dynamicUpdated = true;
+        /** MDTX: incremental mode only, amount of circles covering each tile, and the sorted events they were drawn from. */
+        @Nullable int[] coverage;
+        final LongSeq stamped = new LongSeq();
 
         FogData(){
             int len = ww * wh;
@@ -198,7 +198,12 @@ public class Saves{
                 saving = true;
 
                 try{
-                    current.save();
+                    //MDTX: compress and write on a background thread
+                    if(SaveIO.asyncSave.bool()){
+                        current.saveAsync();
+                    }else{
+                        current.save();
+                    }
                 }catch(Throwable t){
                     Log.err(t);
                 }
@@ -318,6 +323,25 @@ public class Saves{
             savePreview();
         }
 
+        /** MDTX: see {@link SaveIO#saveAsync(Fi, arc.func.Cons)}. The meta and preview are updated once the file is written. */
+        public void saveAsync(){
+            long prev = totalPlaytime;
+
+            SaveIO.saveAsync(file, error -> {
+                if(error != null){
+                    Log.err("Failed to write save " + file.name(), error);
+                    return;
+                }
+                meta = SaveIO.getMeta(file);
+                savePreview();
+            });
+            if(state.isGame()){
+                current = this;
+            }
+
+            totalPlaytime = prev;
+        }
+
         private void savePreview(){
             if(Core.assets.isLoaded(loadPreviewFile().path())){
                 Core.assets.unload(loadPreviewFile().path());
@@ -2,6 +2,7 @@ package mindustry.io;
 
 import arc.*;
 import arc.files.*;
+import arc.func.*;
 import arc.struct.*;
 import arc.util.*;
 import arc.util.io.*;
@@ -12,6 +13,7 @@ import mindustry.world.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.*;
 
 import static mindustry.Vars.*;
@@ -20,6 +22,8 @@ public class SaveIO{
     /** Save format header. */
     public static final byte[] header = {'M', 'S', 'A', 'V'};
     public static final IntMap<SaveVersion> versions = new IntMap<>();
+    /** MDTX: see {@link #saveAsync(Fi, Cons)} */
+    public static final mindustry.net.Administration.Config asyncSave = new mindustry.net.Administration.Config("asyncSave", "Compress and write autosaves on a background thread.", false);
     public static final Seq<SaveVersion> versionArray = Seq.with(new Save1(), new Save2(), new Save3(), new Save4(), new Save5(), new Save6(), new Save7(), new Save8(), new Save9(), new Save10(), new Save11());
     static{
         for(SaveVersion version : versionArray){
@@ -27,6 +31,12 @@ public class SaveIO{
         }
     }
 
+    private static final ExecutorService saveExecutor = Threads.executor("Save Writer", 1);
+    /** Uncompressed bytes of the save being written. Only reused after the previous write finished. */
+    private static final ReusableByteOutStream saveBuffer = new ReusableByteOutStream(1024 * 1024);
+    private static @Nullable Future<?> pendingSave;
+    private static boolean disposeHooked;
+
     public static SaveVersion getSaveWriter(){
         return versionArray.peek();
     }
@@ -36,6 +46,7 @@ public class SaveIO{
     }
 
     public static void save(Fi file){
+        waitForSave();
         boolean exists = file.exists();
         if(exists) file.moveTo(backupFileFor(file));
         try{
@@ -46,6 +57,87 @@ public class SaveIO{
         }
     }
 
+    /**
+     * MDTX: Writes the save like {@link #save(Fi)}, but only the serialization runs on this thread.
+     * The world is serialized through the regular chunk writers into a memory buffer, which is a consistent snapshot;
+     * compression and disk I/O happen on a background thread.
+     * <p>
+     * The data goes to a temporary file first, which then replaces the save. The old save is kept as backup, like {@link #save(Fi)} does.
+     * @param done called on the main thread, with null on success or the error.
+     */
+    public static void saveAsync(Fi file, @Nullable Cons<Throwable> done){
+        waitForSave();
+        if(!disposeHooked){
+            disposeHooked = true;
+            Core.app.addListener(new ApplicationListener(){
+                @Override
+                public void dispose(){
+                    waitForSave();
+                }
+            });
+        }
+
+        try{
+            saveBuffer.reset();
+            write(saveBuffer, null);
+        }catch(Throwable e){
+            if(done != null) done.get(e);
+            return;
+        }
+
+        pendingSave = saveExecutor.submit(() -> {
+            Throwable error = null;
+            try{
+                writeCompressed(file, saveBuffer.getBytes(), saveBuffer.size());
+            }catch(Throwable e){
+                error = e;
+            }
+            if(done != null){
+                Throwable result = error;
+                Core.app.post(() -> done.get(result));
+            }else if(error != null){
+                Log.err("Failed to write save " + file.name(), error);
+            }
+        });
+    }
+
+    /** Blocks until the last {@link #saveAsync(Fi, Cons)} is written. */
+    public static void waitForSave(){
+        if(pendingSave != null){
+            try{
+                pendingSave.get();
+            }catch(Exception e){
+                Log.err(e);
+            }
+            pendingSave = null;
+        }
+    }
+
+    private static void writeCompressed(Fi file, byte[] bytes, int length) throws IOException{
+        Fi temp = file.sibling(file.name() + ".tmp");
+        try(FileOutputStream out = new FileOutputStream(temp.file());
+            FastDeflaterOutputStream deflate = new FastDeflaterOutputStream(new BufferedOutputStream(out, bufferSize))){
+            deflate.write(bytes, 0, length);
+            deflate.finish();
+            deflate.flush();
+            //the data must be on disk before it replaces the save
+            out.getFD().sync();
+        }catch(Throwable e){
+            temp.delete();
+            throw e;
+        }
+
+        boolean exists = file.exists();
+        if(exists) file.moveTo(backupFileFor(file));
+        try{
+            temp.moveTo(file);
+        }catch(Throwable e){
+            if(exists) backupFileFor(file).moveTo(file);
+            temp.delete();
+            throw e;
+        }
+    }
+
     public static DataInputStream getStream(Fi file){
         return new DataInputStream(new InflaterInputStream(file.read(bufferSize)));
     }
@@ -144,6 +236,7 @@ public class SaveIO{
     }
 
     public static void load(Fi file, WorldContext context) throws SaveException{
+        waitForSave();
         try{
             //try and load; if any exception at all occurs
             load(new InflaterInputStream(file.read(bufferSize)), context);
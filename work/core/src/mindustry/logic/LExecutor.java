@@ -53,6 +53,15 @@ public class LExecutor{
 
     public int[] binds;
     public boolean yield;
+    /** MDTX: compiled form of {@link #instructions}, null to interpret them. */
+    public @Nullable mindustryX.features.logic.LogicCompiler.Program compiled;
+    /** MDTX: whether the program can run off the main thread, see {@link mindustryX.features.logic.ParallelLogic}. */
+    public boolean isolated;
+    /** MDTX: constant buildings used by read, write and flush instructions of an isolated program. */
+    public LVar[] isolatedTargets = {};
+    /** MDTX: set for this tick by {@link mindustryX.features.logic.ParallelLogic#begin()}; the budget is left in {@link #pendingBudget}. */
+    public boolean deferred;
+    public int pendingBudget;
 
     public LongSeq graphicsBuffer = new LongSeq();
     public StringBuilder textBuffer = new StringBuilder();
@@ -96,6 +105,21 @@ public class LExecutor{
         }
     }
 
+    /**
+     * MDTX: Runs up to {@code budget} instructions, stopping after an instruction that yields.
+     * @return the amount of instructions run.
+     */
+    public int runBudget(int budget){
+        if(compiled != null && compiled.source == instructions){
+            return compiled.run(this, budget);
+        }
+        for(int i = 0; i < budget; i++){
+            runOnce();
+            if(yield) return i + 1;
+        }
+        return budget;
+    }
+
     /** Loads with a specified assembler. Resets all variables. */
     public void load(LAssembler builder){
         nameMap = null;
@@ -110,6 +134,11 @@ public class LExecutor{
         unit = builder.getVar("@unit");
         thisv = builder.getVar("@this");
         ipt = builder.putConst("@ipt", build != null ? build.ipt : 0);
+        compiled = mindustryX.features.logic.LogicCompiler.compile(this);
+        //MDTX
+        Seq<LVar> targets = new Seq<>(LVar.class);
+        isolated = mindustryX.features.logic.ParallelLogic.isolated(instructions, targets);
+        isolatedTargets = targets.toArray();
     }
 
     //region utility
@@ -221,7 +250,7 @@ public class LExecutor{
                             }
                         }
                         case building -> {
-                            Building b = Geometry.findClosest(unit.x, unit.y, enemy.bool() ? indexer.getEnemy(unit.team, flag) : indexer.getFlagged(unit.team, flag));
+                            Building b = enemy.bool() ? indexer.findClosestEnemyFlag(unit.x, unit.y, unit.team, flag) : indexer.findClosestFlag(unit.x, unit.y, unit.team, flag); //MDTX
                             res = b == null ? null : b.tile;
                             build = true;
                         }
@@ -1244,11 +1273,12 @@ public class LExecutor{
 
         @Override
         public void run(LExecutor exec){
-            var color = Tmp.c1.fromDouble(value.num());
-            r.setnum(color.r);
-            g.setnum(color.g);
-            b.setnum(color.b);
-            a.setnum(color.a);
+            //MDTX: same as Color.fromDouble, without the shared Tmp.c1, processors may run this on several threads (ParallelLogic)
+            int color = (int)(Double.doubleToRawLongBits(value.num()));
+            r.setnum(((color & 0xff000000) >>> 24) / 255f);
+            g.setnum(((color & 0x00ff0000) >>> 16) / 255f);
+            b.setnum(((color & 0x0000ff00) >>> 8) / 255f);
+            a.setnum(((color & 0x000000ff)) / 255f);
         }
     }
 
@@ -1,6 +1,7 @@
 package mindustry.net;
 
 import arc.*;
+import arc.files.*;
 import arc.func.*;
 import arc.struct.*;
 import arc.util.*;
@@ -28,6 +29,8 @@ public class Administration{
     private boolean modified, loaded;
     /** All player info. Maps UUIDs to info. This persists throughout restarts. Do not modify directly. */
     public ObjectMap<String, PlayerInfo> playerInfo = new ObjectMap<>();
+    /** MDTX: Player info database, if enabled. {@link #playerInfo} then only holds the entries used since start. */
+    public @Nullable PlayerStore store;
 
     public Administration(){
         load();
@@ -201,6 +204,7 @@ public class Administration{
         info.timesJoined++;
         if(!info.names.contains(name, false)) info.names.add(name);
         if(!info.ips.contains(ip, false)) info.ips.add(ip);
+        if(store != null) store.indexIP(ip, id);//MDTX
     }
 
     public boolean banPlayer(String uuid){
@@ -215,10 +219,8 @@ public class Administration{
         if(bannedIPs.contains(ip, false))
             return false;
 
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.ips.contains(ip, false)){
-                info.banned = true;
-            }
+        for(PlayerInfo info : findByIPs(ip)){//MDTX: use the IP index of the store
+            info.banned = true;
         }
 
         bannedIPs.add(ip);
@@ -229,7 +231,8 @@ public class Administration{
 
     /** Bans a player by UUID; returns whether this player was already banned. */
     public boolean banPlayerID(String id){
-        if(playerInfo.containsKey(id) && playerInfo.get(id).banned)
+        PlayerInfo existing = getInfoOptional(id);//MDTX
+        if(existing != null && existing.banned)
             return false;
 
         getCreateInfo(id).banned = true;
@@ -246,11 +249,9 @@ public class Administration{
     public boolean unbanPlayerIP(String ip){
         boolean found = bannedIPs.contains(ip, false);
 
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.ips.contains(ip, false)){
-                info.banned = false;
-                found = true;
-            }
+        for(PlayerInfo info : findByIPs(ip)){//MDTX: use the IP index of the store
+            info.banned = false;
+            found = true;
         }
 
         bannedIPs.remove(ip, false);
@@ -283,6 +284,7 @@ public class Administration{
      */
     public Seq<PlayerInfo> getAdmins(){
         Seq<PlayerInfo> result = new Seq<>();
+        if(store != null) store.loadIf(e -> e.admin);//MDTX
         for(PlayerInfo info : playerInfo.values()){
             if(info.admin){
                 result.add(info);
@@ -296,6 +298,7 @@ public class Administration{
      */
     public Seq<PlayerInfo> getBanned(){
         Seq<PlayerInfo> result = new Seq<>();
+        if(store != null) store.loadIf(e -> e.banned);//MDTX
         for(PlayerInfo info : playerInfo.values()){
             if(info.banned){
                 result.add(info);
@@ -385,13 +388,10 @@ public class Administration{
     public ObjectSet<PlayerInfo> findByName(String name){
         ObjectSet<PlayerInfo> result = new ObjectSet<>();
 
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.lastName.equalsIgnoreCase(name) || info.names.contains(name, false)
+        //MDTX: through selectInfo
+        result.addAll(selectInfo(info -> info.lastName.equalsIgnoreCase(name) || info.names.contains(name, false)
             || Strings.stripColors(Strings.stripColors(info.lastName)).equals(name)
-            || info.ips.contains(name, false) || info.id.equals(name)){
-                result.add(info);
-            }
-        }
+            || info.ips.contains(name, false) || info.id.equals(name)));
 
         return result;
     }
@@ -400,16 +400,14 @@ public class Administration{
     public ObjectSet<PlayerInfo> searchNames(String name){
         ObjectSet<PlayerInfo> result = new ObjectSet<>();
 
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.names.contains(n -> n.toLowerCase().contains(name.toLowerCase()) || Strings.stripColors(n).trim().toLowerCase().contains(name))){
-                result.add(info);
-            }
-        }
+        //MDTX: through selectInfo
+        result.addAll(selectInfo(info -> info.names.contains(n -> n.toLowerCase().contains(name.toLowerCase()) || Strings.stripColors(n).trim().toLowerCase().contains(name))));
 
         return result;
     }
 
     public Seq<PlayerInfo> findByIPs(String ip){
+        if(store != null) return store.findByIP(ip);//MDTX
         Seq<PlayerInfo> result = new Seq<>();
 
         for(PlayerInfo info : playerInfo.values()){
@@ -426,10 +424,12 @@ public class Administration{
     }
 
     public PlayerInfo getInfoOptional(String id){
+        if(store != null) return store.get(id);//MDTX
         return playerInfo.get(id);
     }
 
     public PlayerInfo findByIP(String ip){
+        if(store != null) return store.findByIP(ip).firstOpt();//MDTX
         for(PlayerInfo info : playerInfo.values()){
             if(info.ips.contains(ip, false)){
                 return info;
@@ -439,15 +439,23 @@ public class Administration{
     }
 
     public Seq<PlayerInfo> getWhitelisted(){
-        return playerInfo.values().toSeq().select(p -> isWhitelisted(p.id, p.adminUsid));
+        return selectInfo(p -> isWhitelisted(p.id, p.adminUsid));//MDTX
+    }
+
+    /** MDTX: All player entries which match. The store only keeps the entries it had to read for this if they match. */
+    private Seq<PlayerInfo> selectInfo(Boolf<PlayerInfo> pred){
+        if(store != null) return store.select(pred);
+        return playerInfo.values().toSeq().select(pred);
     }
 
     private PlayerInfo getCreateInfo(String id){
-        if(playerInfo.containsKey(id)){
-            return playerInfo.get(id);
+        PlayerInfo info = getInfoOptional(id);//MDTX
+        if(info != null){
+            return info;
         }else{
-            PlayerInfo info = new PlayerInfo(id);
-            playerInfo.put(id, info);
+            info = new PlayerInfo(id);
+            if(store != null) store.put(info);
+            else playerInfo.put(id, info);
             save();
             return info;
         }
@@ -459,7 +467,9 @@ public class Administration{
 
     public void forceSave(){
         if(modified && loaded){
-            Core.settings.putJson("player-data", playerInfo);
+            //MDTX: only changed entries are written to the store
+            if(store != null) store.flush();
+            else Core.settings.putJson("player-data", playerInfo);
             Core.settings.putJson("ip-kicks", kickedIPs);
             Core.settings.putJson("ip-bans", String.class, bannedIPs);
             Core.settings.putJson("whitelist-ids", String.class, whitelist);
@@ -472,13 +482,38 @@ public class Administration{
     private void load(){
         loaded = true;
         //load default data
-        playerInfo = Core.settings.getJson("player-data", ObjectMap.class, ObjectMap::new);
+        loadPlayerInfo();
         kickedIPs = Core.settings.getJson("ip-kicks", ObjectMap.class, ObjectMap::new);
         bannedIPs = Core.settings.getJson("ip-bans", Seq.class, Seq::new);
         whitelist = Core.settings.getJson("whitelist-ids", Seq.class, Seq::new);
         subnetBans = Core.settings.getJson("banned-subnets", Seq.class, Seq::new);
     }
 
+    /** MDTX: Opens the player store if enabled, and moves entries between the settings and the store once it's enabled or disabled. */
+    @SuppressWarnings("unchecked")
+    private void loadPlayerInfo(){
+        Fi file = Core.settings.getDataDirectory().child("player-data.bin");
+        if(PlayerStore.enabled.bool()){
+            store = new PlayerStore(file);
+            if(Core.settings.has("player-data")){
+                store.migrate(Core.settings.getJson("player-data", ObjectMap.class, ObjectMap::new));
+                Core.settings.remove("player-data");
+            }
+            playerInfo = store.loaded;
+        }else{
+            playerInfo = Core.settings.getJson("player-data", ObjectMap.class, ObjectMap::new);
+            if(file.exists() && !Core.settings.has("player-data")){
+                PlayerStore old = new PlayerStore(file);
+                old.loadAll();
+                old.close();
+                playerInfo = old.loaded;
+                Core.settings.putJson("player-data", playerInfo);
+                file.moveTo(file.sibling(file.name() + ".old"));
+                Log.info("Moved @ player entries from @ back to the settings.", playerInfo.size, file.name());
+            }
+        }
+    }
+
     /**
      * Server configuration definition. Each config value can be a string, boolean or number.
      * Creating a new Config instance implicitly adds it to the list of server configs. This can be used for custom plugin configuration.
@@ -520,7 +555,9 @@ public class Administration{
         autoPause = new Config("autoPause", "Whether the game should pause when nobody is online.", false),
         roundExtraTime = new Config("roundExtraTime", "Time before loading a new map after the gameover, in seconds.", 12),
         maxLogLength = new Config("maxLogLength", "The Maximum log file size, in bytes.", 1024 * 1024 * 5),
-        logCommands = new Config("logCommands", "Whether player commands should be logged.", true);
+        logCommands = new Config("logCommands", "Whether player commands should be logged.", true),
+        //MDTX: applied by Vars.loadSettings
+        settingsJournal = new Config("settingsJournal", "Append changed settings to a journal file on save, instead of rewriting all of them.", false, () -> Core.settings.setJournaled(Config.settingsJournal.bool()));
 
         public final Object defaultValue;
         public final String name, key, description;
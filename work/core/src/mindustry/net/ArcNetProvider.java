@@ -40,6 +40,19 @@ public class ArcNetProvider implements NetProvider{
 
     private volatile int playerLimitCache, packetSpamLimit;
 
+    /** MDTX: Received packets and connection events, handled in {@link #update()}. */
+    final PacketQueue inbound = new PacketQueue(8192);
+    public static final Config packetDrainLimit = new Config("packetDrainLimit", "The most received packets handled per frame, 0 for no limit. The rest are handled in later frames.", 0);
+    /** MDTX: see {@link Server#setSelectorThreads(int)} */
+    public static final Config selectorThreads = new Config("selectorThreads", "Amount of threads reading and writing client connections. Applies when the server is started.", 1);
+    /** MDTX: see {@link #broadcast} */
+    public static final Config sharedBroadcast = new Config("sharedBroadcast", "Encode and compress packets sent to all clients once, instead of once per client.", false);
+    /** Bytes of broadcast frames encoded, and bytes of those frames sent to clients. */
+    public static long broadcastEncoded, broadcastSent, broadcastFrames;
+    private final PacketSerializer broadcastSerializer = new PacketSerializer();
+    //same size as the object buffer of the server, which limits UDP packets
+    private final ThreadLocal<ByteBuffer> broadcastBuffer = Threads.local(() -> ByteBuffer.allocate(16384));
+
     public ArcNetProvider(){
         ArcNet.errorHandler = e -> {
             if(Log.level == LogLevel.debug){
@@ -67,7 +80,7 @@ public class ArcNetProvider implements NetProvider{
                 c.addressTCP = connection.getRemoteAddressTCP().getAddress().getHostAddress();
                 if(connection.getRemoteAddressTCP() != null) c.addressTCP = connection.getRemoteAddressTCP().toString();
 
-                Core.app.post(() -> net.handleClientReceived(c));
+                inbound.put(null, c);
             }
 
             @Override
@@ -78,20 +91,14 @@ public class ArcNetProvider implements NetProvider{
 
                 Disconnect c = new Disconnect();
                 c.reason = reason.toString();
-                Core.app.post(() -> net.handleClientReceived(c));
+                inbound.put(null, c);
             }
 
             @Override
             public void received(Connection connection, Object object){
                 if(!(object instanceof Packet p)) return;
 
-                Core.app.post(() -> {
-                    try{
-                        net.handleClientReceived(p);
-                    }catch(Throwable e){
-                        net.handleException(e);
-                    }
-                });
+                inbound.put(null, p);
 
             }
         });
@@ -129,7 +136,7 @@ public class ArcNetProvider implements NetProvider{
 
                 connection.setArbitraryData(kn);
                 connections.add(kn);
-                Core.app.post(() -> net.handleServerReceived(kn, c));
+                inbound.put(kn, c);
             }
 
             @Override
@@ -139,10 +146,8 @@ public class ArcNetProvider implements NetProvider{
                 Disconnect c = new Disconnect();
                 c.reason = reason.toString();
 
-                Core.app.post(() -> {
-                    net.handleServerReceived(k, c);
-                    connections.remove(k);
-                });
+                //removed from connections when handled
+                inbound.put(k, c);
             }
 
             @Override
@@ -158,17 +163,39 @@ public class ArcNetProvider implements NetProvider{
 
                 if(!(object instanceof Packet pack)) return;
 
-                Core.app.post(() -> {
-                    try{
-                        net.handleServerReceived(k, pack);
-                    }catch(Throwable e){
-                        Log.err(e);
-                    }
-                });
+                inbound.put(k, pack);
             }
         });
     }
 
+    /** MDTX: Handles queued packets, in the order they were received. Connections are null for packets received by the client. */
+    @Override
+    public void update(){
+        inbound.drain(this::handleReceived, packetDrainLimit.num());
+    }
+
+    @Override
+    public PacketQueue inboundQueue(){
+        return inbound;
+    }
+
+    void handleReceived(@Nullable NetConnection connection, Packet packet){
+        if(connection == null){
+            try{
+                net.handleClientReceived(packet);
+            }catch(Throwable e){
+                net.handleException(e);
+            }
+        }else{
+            try{
+                net.handleServerReceived(connection, packet);
+            }catch(Throwable e){
+                Log.err(e);
+            }
+            if(packet instanceof Disconnect) connections.remove(connection);
+        }
+    }
+
     @Override
     public void setConnectFilter(Server.ServerConnectFilter connectFilter){
         server.setConnectFilter(connectFilter);
@@ -311,6 +338,7 @@ public class ArcNetProvider implements NetProvider{
     @Override
     public void hostServer(int port) throws IOException{
         connections.clear();
+        server.setSelectorThreads(selectorThreads.num());//MDTX
         server.bind(port, port);
 
         serverThread = new Thread(() -> {
@@ -372,6 +400,11 @@ public class ArcNetProvider implements NetProvider{
         @Override
         public void send(Object object, boolean reliable){
             if(SendPacketEvent.emit(this, null, object)) return;
+            sendDirect(object, reliable);
+        }
+
+        /** MDTX: sends without firing {@link SendPacketEvent}. */
+        void sendDirect(Object object, boolean reliable){
             try{
                 if(connection.isConnected()){
                     if(reliable){
@@ -397,6 +430,59 @@ public class ArcNetProvider implements NetProvider{
         }
     }
 
+    /**
+     * MDTX: With {@link #sharedBroadcast}, the packet is written and compressed once into a frame.
+     * Connections copy that frame into their write buffer; {@link PacketSerializer#write} passes raw buffers through.
+     */
+    @Override
+    public void broadcast(Object object, boolean reliable, @Nullable NetConnection except){
+        if(!sharedBroadcast.bool() || !(object instanceof Packet) || object instanceof StreamChunk){
+            NetProvider.super.broadcast(object, reliable, except);
+            return;
+        }
+
+        ByteBuffer frame = null;
+        boolean encoded = false;
+        for(ArcConnection con : connections){
+            if(con == except || !con.hasBegunConnecting) continue;
+            //per connection event, like ArcConnection.send
+            if(SendPacketEvent.emit(con, null, object)) continue;
+
+            if(!encoded){
+                encoded = true;
+                frame = encodeFrame(object);
+            }
+
+            if(frame == null){
+                con.sendDirect(object, reliable);
+            }else{
+                frame.position(0);
+                con.sendDirect(frame, reliable);
+                broadcastSent += frame.limit();
+            }
+        }
+    }
+
+    /** @return the packet as it would be written by {@link PacketSerializer#write}, or null if it is too big to share. */
+    private @Nullable ByteBuffer encodeFrame(Object object){
+        ByteBuffer frame = broadcastBuffer.get();
+        frame.clear();
+        try{
+            broadcastSerializer.write(frame, object);
+        }catch(BufferOverflowException | LZ4Exception e){
+            //each connection reports it like an unshared packet
+            return null;
+        }
+        frame.flip();
+        broadcastFrames++;
+        broadcastEncoded += frame.limit();
+        return frame;
+    }
+
+    public static String broadcastStats(){
+        return Strings.format("shared broadcast: @ frames, @ KiB encoded, @ KiB sent", broadcastFrames, broadcastEncoded / 1024, broadcastSent / 1024);
+    }
+
     public static class PacketSerializer implements NetSerializer{
         //for debugging total read/write speeds
         private static final boolean debug = false;
@@ -450,6 +536,7 @@ public class ArcNetProvider implements NetProvider{
                     //move buffer forward based on bytes read by decompressor
                     byteBuffer.position(byteBuffer.position() + read);
                 }
+                mindustryX.features.net.SnapshotStaging.stage(packet);//MDTX: frame delta snapshots on the network thread
 
                 return packet;
             }
@@ -244,10 +244,7 @@ public class Net{
     public void send(Object object, boolean reliable){
         if(SendPacketEvent.emit(null, null, object)) return;
         if(server){
-            for(NetConnection con : provider.getConnections()){
-                if(!con.hasBegunConnecting) continue;
-                con.send(object, reliable);
-            }
+            provider.broadcast(object, reliable, null);//MDTX
         }else{
             reliable |= LogicExt.reliableSync.get();
             provider.sendClient(object, reliable);
@@ -257,11 +254,7 @@ public class Net{
     /** Send an object to everyone EXCEPT a certain client. Server-side only.*/
     public void sendExcept(NetConnection except, Object object, boolean reliable){
         if(SendPacketEvent.emit(null, except, object)) return;
-        for(NetConnection con : getConnections()){
-            if(con != except && con.hasBegunConnecting){
-                con.send(object, reliable);
-            }
-        }
+        provider.broadcast(object, reliable, except);//MDTX
     }
 
     public @Nullable StreamBuilder getCurrentStream(){
@@ -383,6 +376,19 @@ public class Net{
         return active;
     }
 
+    /**
+     * MDTX: Handles packets received since the last frame. Called by the launchers at the start of a frame, where posted runnables used to
+     * handle them, before async processes begin.
+     */
+    public void update(){
+        if(provider != null) provider.update();
+    }
+
+    /** MDTX */
+    public @Nullable PacketQueue inboundQueue(){
+        return provider == null ? null : provider.inboundQueue();
+    }
+
     /**
      * Whether this is a server or not.
      */
@@ -433,6 +439,23 @@ public class Net{
         /** Return all connected users. */
         Iterable<? extends NetConnection> getConnections();
 
+        /** MDTX: Sends an object to every connection which has begun connecting, except {@code except}. Providers may encode it only once. */
+        default void broadcast(Object object, boolean reliable, @Nullable NetConnection except){
+            for(NetConnection con : getConnections()){
+                if(con != except && con.hasBegunConnecting){
+                    con.send(object, reliable);
+                }
+            }
+        }
+
+        /** MDTX: Called once per frame on the main thread. Providers which queue received packets handle them here. */
+        default void update(){}
+
+        /** MDTX: @return the queue of received packets, if this provider has one. */
+        default @Nullable PacketQueue inboundQueue(){
+            return null;
+        }
+
         /** Close the server connection. */
         void closeServer();
 
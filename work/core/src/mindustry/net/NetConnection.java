@@ -7,6 +7,7 @@ import mindustry.gen.*;
 import mindustry.net.Packets.*;
 
 import java.io.*;
+import java.util.concurrent.atomic.*;
 
 import static mindustry.Vars.*;
 
@@ -32,6 +33,8 @@ public abstract class NetConnection{
     public Ratekeeper chatRate = new Ratekeeper();
     /** Handles packet spam rate limits. */
     public Ratekeeper packetRate = new Ratekeeper();
+    /** MDTX: Packets received but not handled yet. See {@link PacketQueue}. */
+    public final AtomicInteger queuedPackets = new AtomicInteger();
 
     public boolean hasConnected, hasBegunConnecting, hasDisconnected;
     public float viewWidth, viewHeight, viewX, viewY;
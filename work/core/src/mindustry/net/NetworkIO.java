@@ -27,40 +27,49 @@ public class NetworkIO{
     public static void writeWorld(Player player, OutputStream os){
 
         try(DataOutputStream stream = new DataOutputStream(os)){
-            //write all researched content to rules if hosting
-            if(state.isCampaign()){
-                state.rules.researched.clear();
-                for(ContentType type : ContentType.all){
-                    for(Content c : content.getBy(type)){
-                        if(c instanceof UnlockableContent u && u.unlocked() && u.techNode != null){
-                            state.rules.researched.add(u);
-                        }
+            writeWorldHead(player, stream);
+            writeWorldMap(stream);
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** MDTX: the part of {@link #writeWorld} that depends on the player and changes every tick. */
+    public static void writeWorldHead(Player player, DataOutputStream stream) throws IOException{
+        //write all researched content to rules if hosting
+        if(state.isCampaign()){
+            state.rules.researched.clear();
+            for(ContentType type : ContentType.all){
+                for(Content c : content.getBy(type)){
+                    if(c instanceof UnlockableContent u && u.unlocked() && u.techNode != null){
+                        state.rules.researched.add(u);
                     }
                 }
             }
-
-            stream.writeUTF(JsonIO.write(state.rules));
-            stream.writeUTF(JsonIO.write(state.mapLocales));
-            SaveIO.getSaveWriter().writeStringMap(stream, state.map.tags);
-
-            stream.writeInt(state.wave);
-            stream.writeFloat(state.wavetime);
-            stream.writeDouble(state.tick);
-            stream.writeLong(GlobalVars.rand.seed0);
-            stream.writeLong(GlobalVars.rand.seed1);
-
-            stream.writeInt(player.id);
-            player.write(new Writes(stream));
-
-            SaveIO.getSaveWriter().writeContentHeader(stream);
-            SaveIO.getSaveWriter().writeContentPatches(stream);
-            SaveIO.getSaveWriter().writeMap(stream);
-            SaveIO.getSaveWriter().writeTeamBlocks(stream);
-            SaveIO.getSaveWriter().writeMarkers(stream);
-            SaveIO.getSaveWriter().writeCustomChunks(stream, true);
-        }catch(IOException e){
-            throw new RuntimeException(e);
         }
+
+        stream.writeUTF(JsonIO.write(state.rules));
+        stream.writeUTF(JsonIO.write(state.mapLocales));
+        SaveIO.getSaveWriter().writeStringMap(stream, state.map.tags);
+
+        stream.writeInt(state.wave);
+        stream.writeFloat(state.wavetime);
+        stream.writeDouble(state.tick);
+        stream.writeLong(GlobalVars.rand.seed0);
+        stream.writeLong(GlobalVars.rand.seed1);
+
+        stream.writeInt(player.id);
+        player.write(new Writes(stream));
+    }
+
+    /** MDTX: the part of {@link #writeWorld} that is the same for every player, see {@link mindustryX.features.net.WorldDataEncoder}. */
+    public static void writeWorldMap(DataOutputStream stream) throws IOException{
+        SaveIO.getSaveWriter().writeContentHeader(stream);
+        SaveIO.getSaveWriter().writeContentPatches(stream);
+        SaveIO.getSaveWriter().writeMap(stream);
+        SaveIO.getSaveWriter().writeTeamBlocks(stream);
+        SaveIO.getSaveWriter().writeMarkers(stream);
+        SaveIO.getSaveWriter().writeCustomChunks(stream, true);
     }
 
     @SuppressWarnings("deprecation")
@@ -0,0 +1,179 @@
+package mindustry.net;
+
+import arc.func.*;
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Bounded queue of received packets, filled by any amount of network threads and drained by the main thread.
+ * Replaces posting a runnable per packet. When the queue is full, the receiving thread waits, which stops it from reading
+ * more data, so a flooding client fills its own socket buffers instead of the heap.
+ * The main thread never waits, since it is the one emptying the queue: packets it adds itself while the queue is full,
+ * e.g. the disconnect of a connection closed while handling a packet, go to an unbounded overflow list instead and are handled in order.
+ * <p>
+ * A ring buffer where each slot has a sequence number, which tells whether the slot is free for the producer claiming position {@code p}
+ * ({@code sequence == p}) or filled for the consumer at position {@code p} ({@code sequence == p + 1}).
+ */
+public class PacketQueue{
+    /** Queued packets of one connection, above which it's logged as flooding. */
+    public static final int floodThreshold = 1024;
+
+    final int capacity, mask;
+    final AtomicLongArray sequence;
+    final NetConnection[] connections;
+    final Packet[] packets;
+    final AtomicLong tail = new AtomicLong();
+    /** Only written by the consumer. */
+    volatile long head;
+    /** The thread calling {@link #drain}. */
+    volatile @Nullable Thread consumer;
+    /** Packets added by the consumer while the queue was full. Consumer only. */
+    final Queue<Overflow> overflow = new Queue<>();
+
+    /** Totals since creation. */
+    public final AtomicLong enqueued = new AtomicLong(), waits = new AtomicLong();
+    public long drained;
+    /** Highest depth and most packets drained in one call, since the last {@link #stats()}. */
+    public volatile int peakDepth;
+    public int peakDrain;
+    private volatile long lastWarning;
+
+    /** @param capacity rounded up to a power of two. */
+    public PacketQueue(int capacity){
+        this.capacity = Mathf.nextPowerOfTwo(Math.max(capacity, 2));
+        mask = this.capacity - 1;
+        sequence = new AtomicLongArray(this.capacity);
+        connections = new NetConnection[this.capacity];
+        packets = new Packet[this.capacity];
+        for(int i = 0; i < this.capacity; i++){
+            sequence.set(i, i);
+        }
+    }
+
+    /**
+     * Adds a packet, waiting while the queue is full. Any thread; the consumer adds to the overflow list instead of waiting.
+     * @param connection the sender on the server, or null for packets received by the client.
+     */
+    public void put(@Nullable NetConnection connection, Packet packet){
+        if(connection != null && connection.queuedPackets.incrementAndGet() == floodThreshold){
+            warn("Connection @ has @ unhandled packets queued.", connection.address, floodThreshold);
+        }
+
+        while(!offer(connection, packet)){
+            if(Thread.currentThread() == consumer){
+                //waiting would never end, handled once everything added before it was
+                overflow.addLast(new Overflow(tail.get(), connection, packet));
+                warn("Inbound packet queue is full (@ packets), @ packets added by the main thread wait in overflow.", capacity, overflow.size);
+                break;
+            }
+            waits.incrementAndGet();
+            warn("Inbound packet queue is full (@ packets), waiting. Last sender: @", capacity, connection == null ? "server" : connection.address);
+            LockSupport.parkNanos(Time.nanosPerMilli);
+        }
+
+        enqueued.incrementAndGet();
+        int depth = depth();
+        if(depth > peakDepth) peakDepth = depth;
+    }
+
+    boolean offer(@Nullable NetConnection connection, Packet packet){
+        long pos = tail.get();
+        while(true){
+            int index = (int)(pos & mask);
+            long diff = sequence.get(index) - pos;
+            if(diff == 0){
+                if(tail.compareAndSet(pos, pos + 1)){
+                    connections[index] = connection;
+                    packets[index] = packet;
+                    //publishes the slot to the consumer
+                    sequence.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            }else if(diff < 0){
+                //slot not consumed yet; full
+                return false;
+            }else{
+                //another producer claimed this position
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Handles queued packets in the order they were added. Main thread only.
+     * @param max the most packets to handle, or 0 for all of them.
+     * @return amount of packets handled
+     */
+    public int drain(Cons2<NetConnection, Packet> handler, int max){
+        consumer = Thread.currentThread();
+        int count = 0;
+        while(max <= 0 || count < max){
+            if(overflow.size > 0 && overflow.first().pos <= head){
+                Overflow next = overflow.removeFirst();
+                count++;
+                handle(handler, next.connection, next.packet);
+                continue;
+            }
+
+            int index = (int)(head & mask);
+            if(sequence.get(index) != head + 1) break;
+
+            NetConnection connection = connections[index];
+            Packet packet = packets[index];
+            connections[index] = null;
+            packets[index] = null;
+            //frees the slot for the producer one lap ahead
+            sequence.set(index, head + capacity);
+            head++;
+            count++;
+
+            handle(handler, connection, packet);
+        }
+        drained += count;
+        if(count > peakDrain) peakDrain = count;
+        return count;
+    }
+
+    private void handle(Cons2<NetConnection, Packet> handler, @Nullable NetConnection connection, Packet packet){
+        if(connection != null) connection.queuedPackets.decrementAndGet();
+        handler.get(connection, packet);
+    }
+
+    /** Approximate amount of queued packets, including overflow. */
+    public int depth(){
+        return (int)Mathf.clamp(tail.get() - head, 0, capacity) + overflow.size;
+    }
+
+    private void warn(String text, Object... args){
+        long now = Time.millis();
+        if(now - lastWarning >= 1000){
+            lastWarning = now;
+            Log.warn(text, args);
+        }
+    }
+
+    public String stats(){
+        String out = Strings.format("inbound queue: @/@ queued, @ peak, @ enqueued, @ handled, @ most per frame, @ waits",
+        depth(), capacity, peakDepth, enqueued.get(), drained, peakDrain, waits.get());
+        peakDepth = peakDrain = 0;
+        return out;
+    }
+
+    static class Overflow{
+        /** Tail position when it was added, it is handled before the packet at this position. */
+        final long pos;
+        final @Nullable NetConnection connection;
+        final Packet packet;
+
+        Overflow(long pos, @Nullable NetConnection connection, Packet packet){
+            this.pos = pos;
+            this.connection = connection;
+            this.packet = packet;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package mindustry.net;
+
+import arc.files.*;
+import arc.func.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.net.Administration.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.zip.*;
+
+/**
+ * Player info database in its own file, replacing the single "player-data" JSON value in the settings, which is rewritten on every save.
+ * <p>
+ * The file is an append-only log of records, each the full state of one {@link PlayerInfo}. Only entries which changed since
+ * they were last written are appended. Opening the store reads the log once to build an index by UUID and IP. Entries are only
+ * read into {@link #loaded} when used, searches through all entries only keep the ones they found. Once most of the log is outdated,
+ * the latest records are copied into a new file.
+ * <p>
+ * Administration gets an entry from the store every time it changes one, so only entries retrieved since the last {@link #flush()} can have changed.
+ * Those are compared with their last record, the other loaded entries are not serialized again.
+ * <p>
+ * A record is {@code int length, int crc32, payload}. A torn record at the end of the log, from a crash while appending, is cut off when opening.
+ */
+public class PlayerStore{
+    public static final Config enabled = new Config("playerStore", "Keep player info in its own indexed file instead of the settings. Applied on restart.", false);
+
+    /** Log size below which it's never compacted. */
+    static final long minCompactSize = 1024 * 1024;
+    static final int headerSize = 8;
+
+    final Fi file;
+    /** All entries read from the log or created, by UUID. Entries are never removed. */
+    public final ObjectMap<String, PlayerInfo> loaded = new ObjectMap<>();
+    final ObjectMap<String, Entry> index = new ObjectMap<>();
+    /** IP -> UUIDs of every entry which used it. */
+    final ObjectMap<String, Seq<String>> ipIndex = new ObjectMap<>();
+    /** Entries retrieved or added since the last flush, which may have changed. */
+    final ObjectSet<String> touched = new ObjectSet<>();
+
+    private RandomAccessFile log;
+    private long liveBytes;
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+    private final DataOutputStream scratchData = new DataOutputStream(scratch);
+    private final CRC32 crc = new CRC32();
+
+    /** Counters since server start, for measurements. */
+    public long appended, skipped, reads, compactions, lastFlushNanos;
+
+    public PlayerStore(Fi file){
+        this.file = file;
+        open();
+    }
+
+    /** Amount of entries in the store, read or not. */
+    public int size(){
+        return index.size;
+    }
+
+    public boolean has(String id){
+        return loaded.containsKey(id) || index.containsKey(id);
+    }
+
+    /** @return the entry, read from the log if it isn't loaded yet, or null if there is none. */
+    public @Nullable PlayerInfo get(String id){
+        PlayerInfo info = loaded.get(id);
+        if(info != null){
+            touched.add(id);
+            return info;
+        }
+
+        Entry entry = index.get(id);
+        if(entry == null) return null;
+        info = read(id, entry);
+        if(info == null) return null;
+        loaded.put(id, info);
+        touched.add(id);
+        return info;
+    }
+
+    /** Adds a new entry, written on the next {@link #flush()}. */
+    public void put(PlayerInfo info){
+        loaded.put(info.id, info);
+        touched.add(info.id);
+        for(String ip : info.ips){
+            indexIP(ip, info.id);
+        }
+    }
+
+    /** Records that an entry used this IP, so it's found by {@link #findByIP} before the entry is written. */
+    public void indexIP(String ip, String id){
+        Seq<String> ids = ipIndex.get(ip, Seq::new);
+        if(!ids.contains(id, false)) ids.add(id);
+    }
+
+    /** All entries which used this IP, read from the log if needed. */
+    public Seq<PlayerInfo> findByIP(String ip){
+        Seq<PlayerInfo> result = new Seq<>();
+        Seq<String> ids = ipIndex.get(ip);
+        if(ids == null) return result;
+        for(String id : ids){
+            PlayerInfo info = get(id);
+            if(info != null && info.ips.contains(ip, false)) result.add(info);
+        }
+        return result;
+    }
+
+    /** Reads entries whose last written state matches, e.g. all banned players, without reading the others. */
+    public void loadIf(Boolf<Entry> pred){
+        for(var e : index){
+            if(!loaded.containsKey(e.key) && pred.get(e.value)) get(e.key);
+        }
+    }
+
+    /** Reads every entry. Only used to move all entries back to the settings. */
+    public void loadAll(){
+        loadIf(e -> true);
+    }
+
+    /**
+     * Searches through all entries, like by name. Entries which aren't loaded are read in log order and only kept if they match.
+     * @return the matching entries, which are loaded now
+     */
+    public Seq<PlayerInfo> select(Boolf<PlayerInfo> pred){
+        Seq<PlayerInfo> result = new Seq<>();
+        for(PlayerInfo info : loaded.values()){
+            if(pred.get(info)) result.add(info);
+        }
+
+        Seq<String> ids = new Seq<>();
+        for(var e : index){
+            if(!loaded.containsKey(e.key)) ids.add(e.key);
+        }
+        ids.sort(Structs.comparingLong((String id) -> index.get(id).offset));
+        for(String id : ids){
+            PlayerInfo info = read(id, index.get(id));
+            if(info != null && pred.get(info)){
+                loaded.put(id, info);
+                touched.add(id);
+                result.add(info);
+            }
+        }
+        return result;
+    }
+
+    /** Appends the entries retrieved since the last flush which changed since they were written, and compacts the log if most of it is outdated. */
+    public void flush(){
+        long start = Time.nanos();
+        try{
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long end = log.length();
+            for(String id : touched){
+                PlayerInfo info = loaded.get(id);
+                if(info == null) continue;
+                byte[] payload = serialize(info);
+                Entry entry = index.get(info.id);
+                if(entry != null && entry.crc == (int)crc.getValue()){
+                    skipped++;
+                    continue;
+                }
+                if(entry == null){
+                    index.put(info.id, entry = new Entry());
+                }else{
+                    liveBytes -= entry.length;
+                }
+                entry.set(info, end + out.size(), headerSize + payload.length, (int)crc.getValue());
+                liveBytes += entry.length;
+                for(String ip : info.ips){
+                    indexIP(ip, info.id);
+                }
+
+                writeRecord(out, payload, entry.crc);
+                appended++;
+            }
+
+            if(out.size() > 0){
+                log.seek(end);
+                log.write(out.toByteArray());
+            }
+            touched.clear();
+            if(log.length() > minCompactSize && log.length() > liveBytes * 2){
+                compact();
+            }
+        }catch(IOException e){
+            Log.err("Failed to save player info", e);
+        }
+        lastFlushNanos = Time.timeSinceNanos(start);
+    }
+
+    /** One-time import of entries from the settings JSON, which must be done before anything is loaded. Entries already in the store are kept. */
+    public void migrate(ObjectMap<String, PlayerInfo> infos){
+        for(var e : infos){
+            if(!has(e.key)) put(e.value);
+        }
+        flush();
+        //nothing references them yet, read them again when used
+        loaded.clear();
+        touched.clear();
+        Log.info("Moved @ player entries from the settings to @.", infos.size, file.name());
+    }
+
+    /** Copies the latest record of every entry into a new log, which replaces the old one. */
+    public void compact() throws IOException{
+        Fi temp = file.sibling(file.name() + ".tmp");
+        //in log order, so the old log is read sequentially
+        Seq<Entry> entries = index.values().toSeq().sort(Structs.comparingLong((Entry e) -> e.offset));
+        //offsets only change once the new log replaced the old one, a failed compaction keeps using the old one
+        long[] offsets = new long[entries.size];
+        long size = 0;
+        FileOutputStream stream = new FileOutputStream(temp.file());
+        try(OutputStream out = new BufferedOutputStream(stream, 65536)){
+            byte[] buffer = new byte[4096];
+            for(int i = 0; i < entries.size; i++){
+                Entry entry = entries.get(i);
+                if(buffer.length < entry.length) buffer = new byte[entry.length];
+                log.seek(entry.offset);
+                log.readFully(buffer, 0, entry.length);
+                out.write(buffer, 0, entry.length);
+                offsets[i] = size;
+                size += entry.length;
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+
+        log.close();
+        try{
+            Files.move(temp.file().toPath(), file.file().toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }finally{
+            log = new RandomAccessFile(file.file(), "rw");
+        }
+        for(int i = 0; i < entries.size; i++){
+            entries.get(i).offset = offsets[i];
+        }
+        liveBytes = size;
+        compactions++;
+    }
+
+    public void close(){
+        try{
+            log.close();
+        }catch(IOException ignored){
+        }
+    }
+
+    public String stats(){
+        return Strings.format("player store: @ entries, @ loaded, @ appended, @ unchanged, @ compactions, last flush @ms",
+        index.size, loaded.size, appended, skipped, compactions, Strings.fixed(lastFlushNanos / (float)Time.nanosPerMilli, 2));
+    }
+
+    private void open(){
+        try{
+            file.parent().mkdirs();
+            log = new RandomAccessFile(file.file(), "rw");
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.file())));
+            long offset = 0, length = log.length();
+            byte[] payload = new byte[256];
+
+            try{
+                while(offset + headerSize <= length){
+                    int size = in.readInt(), sum = in.readInt();
+                    if(size < 0 || offset + headerSize + size > length) break;
+                    if(payload.length < size) payload = new byte[size];
+                    in.readFully(payload, 0, size);
+                    crc.reset();
+                    crc.update(payload, 0, size);
+                    if((int)crc.getValue() != sum) break;
+
+                    PlayerInfo info = deserialize(new DataInputStream(new ByteArrayInputStream(payload, 0, size)));
+                    Entry entry = index.get(info.id);
+                    if(entry == null){
+                        index.put(info.id, entry = new Entry());
+                    }else{
+                        liveBytes -= entry.length;
+                    }
+                    entry.set(info, offset, headerSize + size, sum);
+                    liveBytes += entry.length;
+                    for(String ip : info.ips){
+                        indexIP(ip, info.id);
+                    }
+                    offset += headerSize + size;
+                }
+            }finally{
+                in.close();
+            }
+
+            if(offset != length){
+                Log.warn("Player info log @ has a damaged record at byte @, dropping the last @ bytes.", file.name(), offset, length - offset);
+                log.setLength(offset);
+            }
+        }catch(IOException e){
+            throw new RuntimeException("Failed to open player info log " + file, e);
+        }
+    }
+
+    private @Nullable PlayerInfo read(String id, Entry entry){
+        try{
+            byte[] record = new byte[entry.length];
+            log.seek(entry.offset);
+            log.readFully(record);
+            reads++;
+            return deserialize(new DataInputStream(new ByteArrayInputStream(record, headerSize, record.length - headerSize)));
+        }catch(IOException e){
+            Log.err("Failed to read player info of " + id, e);
+            return null;
+        }
+    }
+
+    private static void writeRecord(ByteArrayOutputStream out, byte[] payload, int sum){
+        int size = payload.length;
+        out.write(size >>> 24);
+        out.write(size >>> 16);
+        out.write(size >>> 8);
+        out.write(size);
+        out.write(sum >>> 24);
+        out.write(sum >>> 16);
+        out.write(sum >>> 8);
+        out.write(sum);
+        out.write(payload, 0, size);
+    }
+
+    /** Serializes persistent fields, transient fields are not written. Also computes {@link #crc} of the payload. */
+    private byte[] serialize(PlayerInfo info) throws IOException{
+        scratch.reset();
+        DataOutputStream out = scratchData;
+        out.writeUTF(info.id);
+        writeNullable(out, info.lastName);
+        writeNullable(out, info.lastIP);
+        writeStrings(out, info.ips);
+        writeStrings(out, info.names);
+        writeNullable(out, info.adminUsid);
+        out.writeInt(info.timesKicked);
+        out.writeInt(info.timesJoined);
+        out.writeByte((info.banned ? 1 : 0) | (info.admin ? 2 : 0));
+        out.writeLong(info.lastKicked);
+        out.flush();
+
+        byte[] bytes = scratch.toByteArray();
+        crc.reset();
+        crc.update(bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private static PlayerInfo deserialize(DataInputStream in) throws IOException{
+        PlayerInfo info = new PlayerInfo(in.readUTF());
+        info.lastName = readNullable(in);
+        info.lastIP = readNullable(in);
+        readStrings(in, info.ips);
+        readStrings(in, info.names);
+        info.adminUsid = readNullable(in);
+        info.timesKicked = in.readInt();
+        info.timesJoined = in.readInt();
+        int flags = in.readByte();
+        info.banned = (flags & 1) != 0;
+        info.admin = (flags & 2) != 0;
+        info.lastKicked = in.readLong();
+        return info;
+    }
+
+    private static void writeNullable(DataOutputStream out, @Nullable String s) throws IOException{
+        out.writeBoolean(s != null);
+        if(s != null) out.writeUTF(s);
+    }
+
+    private static @Nullable String readNullable(DataInputStream in) throws IOException{
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeStrings(DataOutputStream out, Seq<String> strings) throws IOException{
+        out.writeInt(strings.size);
+        for(String s : strings){
+            out.writeUTF(s);
+        }
+    }
+
+    private static void readStrings(DataInputStream in, Seq<String> out) throws IOException{
+        int size = in.readInt();
+        for(int i = 0; i < size; i++){
+            out.add(in.readUTF());
+        }
+    }
+
+    /** Index of the latest record of one entry. */
+    public static class Entry{
+        long offset;
+        int length, crc;
+        /** State of the latest record, for {@link #loadIf}. */
+        public boolean banned, admin;
+
+        void set(PlayerInfo info, long offset, int length, int crc){
+            this.offset = offset;
+            this.length = length;
+            this.crc = crc;
+            banned = info.banned;
+            admin = info.admin;
+        }
+    }
+}
@@ -534,6 +534,7 @@ public class LogicBlock extends Block{
 
             if(changed){
                 updateCode(code, true, null);
+                executor.deferred = false;//MDTX: targets may have changed
             }
 
             if(!privileged){
@@ -548,13 +549,13 @@ public class LogicBlock extends Block{
                 if(accumulator > maxInstructionScale * ipt) accumulator = maxInstructionScale * ipt;
 
                 running = true;
-                while(accumulator >= 1f){
-                    executor.runOnce();
-                    accumulator --;
-                    if(executor.yield){
-                        executor.yield = false;
-                        break;
-                    }
+                //MDTX: run the whole budget at once, see LExecutor.runBudget
+                if(executor.deferred){
+                    //MDTX: run later on a worker thread, see ParallelLogic
+                    executor.pendingBudget = accumulator >= 1f ? (int)accumulator : 0;
+                }else if(accumulator >= 1f){
+                    accumulator -= executor.runBudget((int)accumulator);
+                    executor.yield = false;
                 }
                 running = false;
             }
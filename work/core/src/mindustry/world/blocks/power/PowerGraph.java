@@ -5,7 +5,18 @@ import arc.struct.*;
 import arc.util.*;
 import mindustry.gen.*;
 
+import java.util.concurrent.*;
+
 public class PowerGraph{
+    /** MDTX: see {@link #updateParallel()} */
+    public static final mindustry.net.Administration.Config parallelUpdate = new mindustry.net.Administration.Config("parallelPower", "Update power graphs in parallel, before other entities, when there are many of them.", false);
+    /** MDTX: Below this many graphs, they are updated by their entities as usual. */
+    public static int minParallelGraphs = 64;
+    /** MDTX: Whether graphs were already updated this tick, so their entities skip it. */
+    public static boolean updatedInParallel;
+    private static @Nullable ForkJoinPool pool;
+    private static final Seq<PowerGraph> parallelGraphs = new Seq<>(false, 64, PowerGraph.class);
+
     private static final Queue<Building> queue = new Queue<>();
     private static final Seq<Building> outArray1 = new Seq<>();
     private static final Seq<Building> outArray2 = new Seq<>();
@@ -256,6 +267,52 @@ public class PowerGraph{
         }
     }
 
+    /**
+     * MDTX: Updates all graphs with entities on a fork-join pool, when enabled and there are enough of them. Called before entities are updated.
+     * A building only belongs to one graph, and {@link #update()} only writes to the graph and the power modules of its buildings,
+     * so every graph ends up the same as when updated on its own. Graphs are updated before all buildings, instead of in entity order.
+     */
+    public static void updateParallel(){
+        updatedInParallel = parallelUpdate.bool() && Groups.powerGraph.size() >= minParallelGraphs;
+        if(!updatedInParallel) return;
+
+        parallelGraphs.clear();
+        Groups.powerGraph.each(e -> parallelGraphs.add(e.graph()));
+        updateAll(parallelGraphs);
+        parallelGraphs.clear();
+    }
+
+    /** MDTX: Updates the graphs in parallel. They must not share buildings. */
+    public static void updateAll(Seq<PowerGraph> graphs){
+        if(pool == null) pool = new ForkJoinPool(Math.max(OS.cores - 1, 1));
+        int grain = Math.max(graphs.size / (pool.getParallelism() * 4), 8);
+        pool.invoke(new UpdateTask(graphs.items, 0, graphs.size, grain));
+    }
+
+    static class UpdateTask extends RecursiveAction{
+        final PowerGraph[] graphs;
+        final int from, to, grain;
+
+        UpdateTask(PowerGraph[] graphs, int from, int to, int grain){
+            this.graphs = graphs;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from <= grain){
+                for(int i = from; i < to; i++){
+                    graphs[i].update();
+                }
+            }else{
+                int mid = (from + to) >>> 1;
+                invokeAll(new UpdateTask(graphs, from, mid, grain), new UpdateTask(graphs, mid, to, grain));
+            }
+        }
+    }
+
     public void addGraph(PowerGraph graph){
         if(graph == this) return;
 
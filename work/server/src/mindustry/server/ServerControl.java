@@ -247,11 +247,22 @@ public class ServerControl implements ApplicationListener{
                     Fi file = saveDirectory.child(fileName);
                     info("Autosaving...");
 
-                    try{
-                        SaveIO.save(file);
-                        info("Autosave completed.");
-                    }catch(Throwable e){
-                        err("Autosave failed.", e);
+                    //MDTX: compress and write on a background thread
+                    if(SaveIO.asyncSave.bool()){
+                        SaveIO.saveAsync(file, e -> {
+                            if(e == null){
+                                info("Autosave completed.");
+                            }else{
+                                err("Autosave failed.", e);
+                            }
+                        });
+                    }else{
+                        try{
+                            SaveIO.save(file);
+                            info("Autosave completed.");
+                        }catch(Throwable e){
+                            err("Autosave failed.", e);
+                        }
                     }
                 }
             }
@@ -1084,6 +1095,82 @@ public class ServerControl implements ApplicationListener{
             info("@ MB collected. Memory usage now at @ MB.", pre - post, post);
         });
 
+        //MDTX: tick profiler
+        handler.register("profiler", "[on/off/top/json] [file]", "Toggle the tick profiler, print the slowest parts of the tick, or dump all of it as JSON.", arg -> {
+            String action = arg.length == 0 ? "top" : arg[0];
+            if(action.equals("on") || action.equals("off")){
+                mindustryX.features.TickProfiler.enabled.set(action.equals("on"));
+                info("Tick profiler @.", action.equals("on") ? "enabled" : "disabled");
+            }else if(!mindustryX.features.TickProfiler.enabled.bool()){
+                err("The profiler is disabled. Use 'profiler on' first.");
+            }else if(action.equals("top")){
+                info(mindustryX.features.TickProfiler.summary(15));
+            }else if(action.equals("json")){
+                String json = mindustryX.features.TickProfiler.json();
+                if(arg.length > 1){
+                    Fi file = Core.settings.getDataDirectory().child(arg[1]);
+                    file.writeString(json);
+                    info("Profile written to @.", file.absolutePath());
+                }else{
+                    info(json);
+                }
+            }else{
+                err("Unknown action. Use on, off, top or json.");
+            }
+        });
+
+        //MDTX: tick benchmark
+        handler.register("benchmark", "<map/save> <ticks> [seed]", "Load a map, save slot or save file and run ticks as fast as possible, then print tick times.", arg -> {
+            if(state.isGame()){
+                err("Already hosting. Type 'stop' to stop hosting first.");
+                return;
+            }
+            if(!Strings.canParsePositiveInt(arg[1])){
+                err("Ticks must be a positive number.");
+                return;
+            }
+            if(arg.length > 2 && !Strings.canParseInt(arg[2])){
+                err("Seed must be a number.");
+                return;
+            }
+            int ticks = Strings.parseInt(arg[1]);
+            long seed = arg.length > 2 ? Strings.parseInt(arg[2]) : 0;
+
+            Map map = maps.all().find(m -> m.plainName().replace('_', ' ').equalsIgnoreCase(Strings.stripColors(arg[0]).replace('_', ' ')));
+            Fi save = saveDirectory.child(arg[0] + "." + saveExtension);
+            if(!save.exists()) save = Core.files.absolute(arg[0]);
+
+            logic.reset();
+            try{
+                if(map != null){
+                    world.loadMap(map, map.applyRules(lastMode));
+                    state.rules = map.applyRules(lastMode);
+                    logic.play();
+                }else if(SaveIO.isSaveValid(save)){
+                    SaveIO.load(save);
+                    state.rules.sector = null;
+                    state.set(State.playing);
+                }else{
+                    err("No map, save slot or save file named '@' found.", arg[0]);
+                    return;
+                }
+            }catch(Throwable e){
+                err("Failed to load '@': @", arg[0], Strings.getSimpleMessage(e));
+                logic.reset();
+                return;
+            }
+
+            info("Running @ ticks on @...", ticks, map != null ? map.plainName() : save.name());
+            Time.setDeltaProvider(() -> 1f);
+            try{
+                info(mindustryX.features.TickBenchmark.run(ticks, seed));
+            }finally{
+                Time.setDeltaProvider(() -> Math.min(Core.graphics.getDeltaTime() * 60f, maxDeltaServer));
+                state.set(State.menu);
+                logic.reset();
+            }
+        });
+
         handler.register("yes", "Run the last suggested incorrect command.", arg -> {
             if(suggested == null){
                 err("There is nothing to say yes to.");
@@ -71,7 +71,7 @@ public class ServerLauncher implements ApplicationListener{
 
         bases.load();
 
-        Core.app.addListener(new ApplicationListener(){public void update(){ asyncCore.begin(); }});
+        Core.app.addListener(new ApplicationListener(){public void update(){ net.update(); asyncCore.begin(); }});//MDTX: net.update
         Core.app.addListener(logic = new Logic());
         Core.app.addListener(netServer = new NetServer());
         Core.app.addListener(new ServerControl(args));
@@ -374,6 +374,35 @@ public class ApplicationTests{
         assertTrue(state.teams.playerCores().size > 0);
     }
 
+    @Test
+    void saveLoadAsync(){
+        world.loadMap(testMap);
+        Fi file = saveDirectory.child("async.msav");
+        file.delete();
+        SaveIO.backupFileFor(file).delete();
+
+        Unit unit = UnitTypes.dagger.spawn(Team.sharded, 20f, 30f);
+        unit.health = 30f;
+        SaveIO.saveAsync(file, null);
+        //the snapshot is taken before returning
+        unit.health = 10f;
+        SaveIO.saveAsync(file, null);
+        SaveIO.waitForSave();
+
+        assertTrue(SaveIO.backupFileFor(file).exists(), "The previous save must be kept as backup.");
+        assertFalse(file.sibling(file.name() + ".tmp").exists());
+
+        resetWorld();
+        SaveIO.load(file);
+        Unit spawned = Groups.unit.find(u -> u.type == UnitTypes.dagger);
+        assertNotNull(spawned);
+        assertEquals(10f, spawned.health);
+
+        resetWorld();
+        SaveIO.load(SaveIO.backupFileFor(file));
+        assertEquals(30f, Groups.unit.find(u -> u.type == UnitTypes.dagger).health);
+    }
+
     void updateBlocks(int times){
         for(Tile tile : world.tiles){
             if(tile.build != null && tile.isCenter()){
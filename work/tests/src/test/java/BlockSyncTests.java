@@ -0,0 +1,60 @@
+import arc.util.*;
+import mindustry.content.*;
+import mindustry.core.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+import mindustry.world.*;
+import org.junit.jupiter.api.*;
+
+import static mindustry.Vars.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks which buildings {@link NetServer#writeBlockSnapshots()} sends with {@link NetServer#deltaBlockSync}. */
+public class BlockSyncTests{
+
+    @BeforeAll
+    static void init(){
+        ApplicationTests.launchApplication(false);
+        Time.setDeltaProvider(() -> 1f);
+    }
+
+    @AfterEach
+    void resetConfig(){
+        NetServer.deltaBlockSync.set(false);
+        NetServer.blockSyncFullInterval.set(5);
+    }
+
+    @Test
+    void onlyChanged() throws Exception{
+        logic.reset();
+        Tiles tiles = world.resize(16, 16);
+        world.beginMapLoad();
+        tiles.fill();
+        for(int i = 0; i < 5; i++){
+            tiles.getn(2 + i * 2, 2).setBlock(Blocks.duo, Team.sharded, 0);
+        }
+        tiles.getn(4, 8).setBlock(Blocks.container, Team.sharded, 0);
+        world.endMapLoad();
+        state.teams.updateTeamStats();
+
+        NetServer.deltaBlockSync.set(true);
+        NetServer.blockSyncFullInterval.set(3);
+
+        //the first sync after loading sends everything
+        assertSync(6, 0);
+        assertSync(0, 6);
+
+        world.build(4, 8).items.add(Items.copper, 10);
+        assertSync(1, 5);
+
+        //full refresh
+        assertSync(6, 0);
+    }
+
+    static void assertSync(int sent, int skipped) throws Exception{
+        long sentBefore = netServer.blockSyncSent, skippedBefore = netServer.blockSyncSkipped;
+        netServer.writeBlockSnapshots();
+        assertEquals(sent, netServer.blockSyncSent - sentBefore, "sent");
+        assertEquals(skipped, netServer.blockSyncSkipped - skippedBefore, "skipped");
+    }
+}
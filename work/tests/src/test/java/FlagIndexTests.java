@@ -0,0 +1,65 @@
+import arc.math.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import mindustry.ai.*;
+import mindustry.gen.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks that {@link FlagIndex} gives the same results as scanning the list of buildings. */
+public class FlagIndexTests{
+    static final int width = 200, height = 150;
+
+    @Test
+    void sameAsLinearScan(){
+        Rand rand = new Rand(7);
+        FlagIndex index = new FlagIndex(width, height);
+        Seq<Building> list = new Seq<>();
+
+        for(int i = 0; i < 2000; i++){
+            Building build = Building.create();
+            //snapped to a coarse grid, so there are many equal distances
+            build.x = rand.random(width / 4) * 32f;
+            build.y = rand.random(height / 4) * 32f;
+            index.add(build);
+            list.add(build);
+        }
+
+        for(int i = 0; i < 600; i++){
+            Building build = list.remove(rand.random(list.size - 1));
+            index.remove(build);
+        }
+        assertEquals(list.size, index.size());
+
+        for(int i = 0; i < 5000; i++){
+            //some queries are outside of the map
+            float x = rand.random(-200f, width * 8f + 200f), y = rand.random(-200f, height * 8f + 200f);
+            if(i % 4 == 0){
+                x = rand.random(width / 4) * 32f + 16f;
+                y = rand.random(height / 4) * 32f + 16f;
+            }
+
+            assertSame(Geometry.findClosest(x, y, list), index.findClosest(x, y), "closest to " + x + ", " + y);
+
+            float range = rand.random(300f);
+            ObjectSet<Building> expected = new ObjectSet<>(), found = new ObjectSet<>();
+            for(Building build : list){
+                if(build.within(x, y, range)) expected.add(build);
+            }
+            index.eachWithin(x, y, range, found::add);
+            assertEquals(expected, found);
+        }
+    }
+
+    @Test
+    void empty(){
+        FlagIndex index = new FlagIndex(width, height);
+        assertNull(index.findClosest(10f, 10f));
+
+        Building build = Building.create();
+        index.add(build);
+        index.remove(build);
+        assertNull(index.findClosest(10f, 10f));
+    }
+}
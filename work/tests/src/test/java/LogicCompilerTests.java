@@ -0,0 +1,141 @@
+import arc.util.*;
+import mindustry.logic.*;
+import mindustryX.features.logic.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.*;
+import org.junit.jupiter.params.provider.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Runs the same programs interpreted and compiled, and checks that every variable ends up the same. */
+public class LogicCompilerTests{
+    static final int[] budgets = {1, 2, 3, 7, 13, 50, 1000};
+
+    @BeforeAll
+    static void init(){
+        ApplicationTests.launchApplication(false);
+        Time.setDeltaProvider(() -> 1f);
+    }
+
+    @AfterEach
+    void resetConfig(){
+        LogicCompiler.enabled.set(false);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+    //counting loop
+    """
+    set i 0
+    op add i i 1
+    op mul x i 3
+    op mod y x 7
+    op idiv z x 4
+    jump 1 lessThan i 1000
+    op sub i i 0.5
+    """,
+    //fractional and written counter
+    """
+    set a 0
+    op add a a 1
+    set @counter 1.5
+    op add b b 1
+    """,
+    //counter as operand
+    """
+    op add a @counter 2
+    set c @counter
+    jump 0 greaterThan @counter 5
+    print c
+    """,
+    //null, NaN and object comparisons
+    """
+    op div x 1 0
+    op add y x 1
+    op equal e x null
+    op strictEqual s y null
+    op notEqual n @this null
+    jump 0 always
+    """,
+    //bitwise and math ops
+    """
+    op shl a 1 b
+    op add b b 1
+    op xor c a b
+    op or d c 5
+    op and e d 12
+    op shr f e 1
+    op ushr g -8 1
+    op max h a c
+    op min k a c
+    op emod m -7 3
+    op lessThanEq n a c
+    op greaterThanEq n2 a c
+    op land o a 0
+    op abs p -3.5
+    op floor q 2.7
+    op ceil r 2.2
+    op pow s 2 b
+    jump 0 greaterThan 30 b
+    stop
+    """,
+    //select, print and yields
+    """
+    select r lessThan a 5 x y
+    op add a a 1
+    set x a
+    set y b
+    op sub b b 1
+    print r
+    wait 0.05
+    jump 0 notEqual a 20
+    end
+    """,
+    //constants can't be written
+    """
+    set @unit 5
+    set true 2
+    op add false 1 2
+    set v true
+    """
+    })
+    void sameResults(String code){
+        LExecutor interpreted = load(code, false), compiled = load(code, true);
+        assertNull(interpreted.compiled);
+        assertNotNull(compiled.compiled);
+
+        for(int round = 0; round < 500; round++){
+            int budget = budgets[round % budgets.length];
+            assertEquals(interpreted.runBudget(budget), compiled.runBudget(budget), "instructions run in round " + round);
+            assertEquals(interpreted.yield, compiled.yield, "yield in round " + round);
+            interpreted.yield = compiled.yield = false;
+
+            assertSameVars(interpreted, compiled, round);
+            assertEquals(interpreted.textBuffer.toString(), compiled.textBuffer.toString());
+            interpreted.textBuffer.setLength(0);
+            compiled.textBuffer.setLength(0);
+        }
+    }
+
+    static LExecutor load(String code, boolean compile){
+        LogicCompiler.enabled.set(compile);
+        LExecutor exec = new LExecutor();
+        exec.load(LAssembler.assemble(code, false));
+        return exec;
+    }
+
+    static void assertSameVars(LExecutor expected, LExecutor actual, int round){
+        assertEquals(expected.allVars.length, actual.allVars.length);
+        for(int i = 0; i < expected.allVars.length; i++){
+            LVar a = expected.allVars[i], b = actual.allVars[i];
+            String at = a.name + " in round " + round;
+            assertEquals(a.name, b.name);
+            assertEquals(a.isobj, b.isobj, at);
+            if(a.isobj){
+                assertEquals(a.objval, b.objval, at);
+            }else{
+                assertEquals(a.numval, b.numval, at);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import arc.struct.*;
+import mindustry.net.*;
+import mindustry.net.Packets.*;
+import org.junit.jupiter.api.*;
+
+import java.time.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks that the main thread never waits for itself when it adds packets to a full inbound queue. */
+public class PacketQueueTests{
+
+    @Test
+    void closeWhileFull(){
+        PacketQueue queue = new PacketQueue(16);
+        //adds its disconnect like the disconnect listener of ArcNetProvider, on the thread closing it
+        TestConnection connection = new TestConnection(queue);
+        for(int i = 0; i < 16; i++){
+            queue.put(connection, new Connect());
+        }
+
+        Seq<Packet> handled = new Seq<>();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> queue.drain((con, packet) -> {
+            handled.add(packet);
+            //the queue is still full apart from the slot just freed
+            if(handled.size == 1){
+                con.close();
+                con.close();
+            }
+        }, 0));
+
+        assertEquals(18, handled.size);
+        for(int i = 0; i < 16; i++){
+            assertTrue(handled.get(i) instanceof Connect);
+        }
+        assertTrue(handled.get(16) instanceof Disconnect);
+        assertTrue(handled.get(17) instanceof Disconnect);
+        assertEquals(0, connection.queuedPackets.get());
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    void overflowKeepsOrder(){
+        PacketQueue queue = new PacketQueue(4);
+        for(int i = 0; i < 4; i++){
+            queue.put(null, disconnect(i));
+        }
+
+        Seq<String> handled = new Seq<>();
+        queue.drain((con, packet) -> {
+            String reason = ((Disconnect)packet).reason;
+            handled.add(reason);
+            if(reason.equals("0")){
+                for(int i = 4; i < 8; i++){
+                    queue.put(null, disconnect(i));
+                }
+            }
+        }, 0);
+
+        assertEquals(Seq.with("0", "1", "2", "3", "4", "5", "6", "7"), handled);
+    }
+
+    static Disconnect disconnect(int index){
+        Disconnect packet = new Disconnect();
+        packet.reason = String.valueOf(index);
+        return packet;
+    }
+
+    static class TestConnection extends NetConnection{
+        final PacketQueue queue;
+
+        TestConnection(PacketQueue queue){
+            super("127.0.0.1");
+            this.queue = queue;
+        }
+
+        @Override
+        public void send(Object object, boolean reliable){
+        }
+
+        @Override
+        public void close(){
+            queue.put(this, new Disconnect());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+import arc.util.*;
+import mindustry.content.*;
+import mindustry.core.GameState.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+import mindustry.logic.*;
+import mindustry.world.*;
+import mindustry.world.blocks.logic.LogicBlock.*;
+import mindustry.world.blocks.logic.LogicDisplay.*;
+import mindustry.world.blocks.logic.MemoryBlock.*;
+import mindustry.world.blocks.logic.MessageBlock.*;
+import mindustryX.features.logic.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.*;
+import org.junit.jupiter.params.provider.*;
+
+import static mindustry.Vars.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks which programs {@link ParallelLogic} may run off the main thread, and that running them there gives the same results. */
+public class ParallelLogicTests{
+    /** Two processors per group share a memory cell and a display, every processor has its own message. */
+    static final String program = """
+    read x cell1 0
+    op add x x k
+    op mul y x 7
+    op mod y y 256
+    write x cell1 0
+    write y cell1 k
+    packcolor c 0.2 0.4 y 1
+    unpackcolor r g b a c
+    print "k="
+    print k
+    print " x="
+    print x
+    print " b="
+    print b
+    printflush message1
+    draw col c
+    draw rect k y 4 4
+    draw color r g b a
+    draw line k 0 y 80
+    drawflush display1
+    """;
+
+    @BeforeAll
+    static void init(){
+        ApplicationTests.launchApplication(false);
+        Time.setDeltaProvider(() -> 1f);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+    """
+    set i 0
+    op add i i 1
+    op mul x i 3
+    jump 1 lessThan i 1000
+    """,
+    """
+    read x cell1 0
+    op add x x 1
+    write x cell1 0
+    print x
+    printflush message1
+    """,
+    """
+    draw clear 0 0 0
+    draw rect 0 0 10 10
+    drawflush display1
+    wait 0.5
+    """,
+    })
+    void isolated(String code){
+        LExecutor exec = load(code);
+        assertTrue(exec.isolated);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+    //shared random
+    "op rand x 10",
+    //units and the world
+    "ubind @poly",
+    "sensor x cell1 @totalItems",
+    "getlink x 0",
+    //target is not a link
+    """
+    getlink c 0
+    write 1 c 0
+    """,
+    })
+    void notIsolated(String code){
+        LExecutor exec = load(code);
+        assertFalse(exec.isolated);
+    }
+
+    @AfterEach
+    void resetConfig(){
+        ParallelLogic.enabled.set(false);
+        state.set(State.menu);
+    }
+
+    @Test
+    void sameAsSerial(){
+        String serial = run(false);
+        String parallel = run(true);
+        assertTrue(ParallelLogic.stats().startsWith("parallel logic: 24/24"), ParallelLogic.stats());
+        assertEquals(serial, parallel);
+    }
+
+    /** @return the contents of all memory cells, messages and displays after running the processors. */
+    static String run(boolean parallel){
+        logic.reset();
+        Tiles tiles = world.resize(64, 64);
+        world.beginMapLoad();
+        tiles.fill();
+
+        StringBuilder out = new StringBuilder();
+        Building[] cells = new Building[12], displays = new Building[12], messages = new Building[24];
+        LogicBuild[] processors = new LogicBuild[24];
+        for(int group = 0; group < 12; group++){
+            int x = 4 + group % 4 * 14, y = 4 + group / 4 * 14;
+            cells[group] = place(Blocks.memoryCell, x, y + 2);
+            displays[group] = place(Blocks.logicDisplay, x + 3, y + 4);
+            for(int i = 0; i < 2; i++){
+                int k = group * 2 + i;
+                messages[k] = place(Blocks.message, x + 2 + i, y);
+                processors[k] = (LogicBuild)place(Blocks.microProcessor, x + i, y);
+            }
+        }
+        world.endMapLoad();
+        state.set(State.playing);
+
+        for(int k = 0; k < 24; k++){
+            LogicBuild build = processors[k];
+            build.links.add(new LogicLink(cells[k / 2].tileX(), cells[k / 2].tileY(), "cell1", true));
+            build.links.add(new LogicLink(messages[k].tileX(), messages[k].tileY(), "message1", true));
+            build.links.add(new LogicLink(displays[k / 2].tileX(), displays[k / 2].tileY(), "display1", true));
+            build.updateCode("set k " + (k + 1) + "\n" + program);
+        }
+
+        ParallelLogic.enabled.set(parallel);
+        //displays only get commands on clients
+        headless = false;
+        try{
+            for(int tick = 0; tick < 300; tick++){
+                ParallelLogic.begin();
+                Groups.build.update();
+                ParallelLogic.end();
+            }
+        }finally{
+            headless = true;
+        }
+
+        for(int k = 0; k < 24; k++){
+            assertTrue(processors[k].executor.isolated, "processor " + k);
+            out.append(((MessageBuild)messages[k]).message).append('\n');
+        }
+        for(int group = 0; group < 12; group++){
+            double[] memory = ((MemoryBuild)cells[group]).memory;
+            for(int i = 0; i <= 24; i++){
+                out.append(memory[i]).append(' ');
+            }
+            out.append('\n').append(((LogicDisplayBuild)displays[group]).commands).append('\n');
+        }
+        return out.toString();
+    }
+
+    static Building place(Block block, int x, int y){
+        Tile tile = world.tile(x, y);
+        tile.setBlock(block, Team.sharded, 0);
+        return tile.build;
+    }
+
+    @Test
+    void targets(){
+        LExecutor exec = load("""
+        write 1 cell1 0
+        read x cell1 1
+        printflush message1
+        """);
+        assertEquals(3, exec.isolatedTargets.length);
+        assertInstanceOf(Building.class, exec.isolatedTargets[2].obj());
+    }
+
+    static LExecutor load(String code){
+        LAssembler asm = LAssembler.assemble(code, false);
+        for(String link : new String[]{"cell1", "message1", "display1"}){
+            asm.putConst(link, Building.create());
+        }
+        LExecutor exec = new LExecutor();
+        exec.load(asm);
+        return exec;
+    }
+}
@@ -0,0 +1,193 @@
+import arc.*;
+import arc.files.*;
+import arc.struct.*;
+import mindustry.net.*;
+import mindustry.net.Administration.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks that {@link PlayerStore} keeps player info across restarts, crashes and compaction. */
+public class PlayerStoreTests{
+    Fi dir;
+
+    @BeforeAll
+    static void init(){
+        ApplicationTests.launchApplication(false);
+    }
+
+    @BeforeEach
+    void setup(){
+        dir = Fi.tempDirectory("players");
+    }
+
+    @AfterEach
+    void cleanup(){
+        dir.deleteDirectory();
+        PlayerStore.enabled.set(false);
+    }
+
+    @Test
+    void reopen(){
+        PlayerStore store = new PlayerStore(dir.child("players.bin"));
+        store.put(info("a", "1.1.1.1"));
+        store.put(info("b", "2.2.2.2", "1.1.1.1"));
+        store.put(info("c", "3.3.3.3"));
+        store.get("b").banned = true;
+        store.flush();
+        store.close();
+
+        store = new PlayerStore(dir.child("players.bin"));
+        assertEquals(3, store.size());
+        assertEquals(0, store.loaded.size, "entries are read when used");
+
+        PlayerInfo b = store.get("b");
+        assertEquals("name-b", b.lastName);
+        assertEquals(Seq.with("2.2.2.2", "1.1.1.1"), b.ips);
+        assertTrue(b.banned);
+        assertNull(b.adminUsid);
+        assertEquals(1, store.loaded.size);
+
+        assertEquals(2, store.findByIP("1.1.1.1").size);
+        store.loadIf(e -> e.banned);
+        assertEquals(3, store.loaded.size, "found by IP, and banned");
+        store.close();
+    }
+
+    @Test
+    void onlyChanged(){
+        PlayerStore store = new PlayerStore(dir.child("players.bin"));
+        for(int i = 0; i < 10; i++){
+            store.put(info("p" + i, "10.0.0." + i));
+        }
+        store.flush();
+        assertEquals(10, store.appended);
+
+        store.get("p3").timesJoined++;
+        store.get("p4");
+        long length = dir.child("players.bin").length();
+        store.flush();
+        assertEquals(11, store.appended);
+        assertEquals(1, store.skipped, "only retrieved entries are compared");
+        assertTrue(dir.child("players.bin").length() > length, "appended");
+
+        store.flush();
+        assertEquals(11, store.appended);
+        assertEquals(1, store.skipped, "nothing retrieved");
+        store.close();
+    }
+
+    @Test
+    void search(){
+        PlayerStore store = new PlayerStore(dir.child("players.bin"));
+        for(int i = 0; i < 10; i++){
+            store.put(info("p" + i, "10.0.0." + i));
+        }
+        store.flush();
+        store.close();
+
+        store = new PlayerStore(dir.child("players.bin"));
+        store.get("p1");
+        Seq<PlayerInfo> found = store.select(info -> info.lastName.endsWith("3") || info.lastName.endsWith("1"));
+        assertEquals(2, found.size);
+        assertEquals(2, store.loaded.size, "only matches are kept");
+        assertSame(store.get("p1"), found.find(info -> info.id.equals("p1")));
+
+        found.find(info -> info.id.equals("p3")).banned = true;
+        store.flush();
+        store.close();
+
+        store = new PlayerStore(dir.child("players.bin"));
+        assertTrue(store.get("p3").banned, "found entries are written");
+        store.close();
+    }
+
+    @Test
+    void tornRecord(){
+        PlayerStore store = new PlayerStore(dir.child("players.bin"));
+        store.put(info("a", "1.1.1.1"));
+        store.flush();
+        store.close();
+
+        //a crash while appending the next record
+        Fi file = dir.child("players.bin");
+        long length = file.length();
+        file.writeBytes(new byte[]{0, 0, 0, 60, 1, 2, 3, 4, 5}, true);
+
+        store = new PlayerStore(file);
+        assertEquals(1, store.size());
+        assertEquals(length, file.length(), "damaged record is cut off");
+        store.get("a").timesKicked = 2;
+        store.flush();
+        store.close();
+
+        store = new PlayerStore(file);
+        assertEquals(2, store.get("a").timesKicked);
+        store.close();
+    }
+
+    @Test
+    void compact() throws Exception{
+        Fi file = dir.child("players.bin");
+        PlayerStore store = new PlayerStore(file);
+        store.put(info("a", "1.1.1.1"));
+        store.put(info("b", "2.2.2.2"));
+        for(int i = 0; i < 20; i++){
+            store.get("a").timesJoined++;
+            store.flush();
+        }
+        long length = file.length();
+        store.compact();
+        assertTrue(file.length() < length / 5);
+        store.get("b").admin = true;
+        store.flush();
+        store.close();
+
+        store = new PlayerStore(file);
+        assertEquals(20, store.get("a").timesJoined);
+        assertTrue(store.get("b").admin);
+        store.close();
+    }
+
+    @Test
+    void migrate(){
+        Fi file = Core.settings.getDataDirectory().child("player-data.bin");
+        try{
+            ObjectMap<String, PlayerInfo> infos = new ObjectMap<>();
+            infos.put("a", info("a", "1.1.1.1"));
+            infos.put("b", info("b", "2.2.2.2"));
+            Core.settings.putJson("player-data", infos);
+
+            PlayerStore.enabled.set(true);
+            Administration admins = new Administration();
+            assertFalse(Core.settings.has("player-data"));
+            assertEquals(2, admins.store.size());
+            assertEquals("name-b", admins.findByIP("2.2.2.2").lastName);
+            admins.banPlayerID("a");
+            admins.forceSave();
+            admins.store.close();
+
+            //and back once disabled
+            PlayerStore.enabled.set(false);
+            admins = new Administration();
+            assertNull(admins.store);
+            assertEquals(2, admins.playerInfo.size);
+            assertTrue(admins.isIDBanned("a"));
+            assertFalse(file.exists());
+        }finally{
+            file.delete();
+            file.sibling(file.name() + ".old").delete();
+            Core.settings.remove("player-data");
+        }
+    }
+
+    static PlayerInfo info(String id, String... ips){
+        PlayerInfo info = new PlayerInfo();
+        info.id = id;
+        info.lastName = "name-" + id;
+        info.lastIP = ips[ips.length - 1];
+        info.ips.addAll(ips);
+        info.names.add(info.lastName);
+        return info;
+    }
+}
@@ -0,0 +1,116 @@
+import arc.util.*;
+import mindustry.content.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+import mindustryX.features.net.*;
+import mindustryX.features.net.SnapshotStaging.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks how {@link SnapshotStaging} frames delta snapshot packets, and hands them to the game thread. */
+public class SnapshotStagingTests{
+    static int type;
+
+    @BeforeAll
+    static void init(){
+        ApplicationTests.launchApplication(false);
+        Time.setDeltaProvider(() -> 1f);
+        type = UnitTypes.dagger.create(Team.sharded).classId() & 0xFF;
+    }
+
+    @BeforeEach
+    void reset(){
+        SnapshotStaging.reset();
+    }
+
+    @Test
+    void staged(){
+        byte[] payload = payload(7, 10, 0, 10);
+        receive(payload);
+
+        long unstaged = SnapshotStaging.unstagedFrames;
+        //the handler gets the contents array of the packet
+        Frame frame = SnapshotStaging.take(payload);
+        assertNotNull(frame);
+        assertEquals(unstaged, SnapshotStaging.unstagedFrames, "framed on the network thread");
+        assertEquals(7, frame.seq);
+        assertEquals(3, frame.amount);
+        assertArrayEquals(new int[]{100, 101, 102}, frame.ids);
+        assertArrayEquals(new int[]{type, type, type}, frame.classIds);
+        assertArrayEquals(new int[]{13, 30, 37}, frame.offsets);
+        assertArrayEquals(new int[]{10, 0, 10}, frame.lengths);
+    }
+
+    @Test
+    void droppedPackets(){
+        byte[][] payloads = new byte[3][];
+        for(int seq = 1; seq <= 3; seq++){
+            receive(payloads[seq - 1] = payload(seq, 4));
+        }
+
+        long unstaged = SnapshotStaging.unstagedFrames;
+        //packets 1 and 2 were never handled
+        assertEquals(3, SnapshotStaging.take(payloads[2]).seq);
+        assertEquals(unstaged, SnapshotStaging.unstagedFrames);
+
+        //taken already, framed again on the game thread
+        assertEquals(3, SnapshotStaging.take(payloads[2]).seq);
+        assertEquals(unstaged + 1, SnapshotStaging.unstagedFrames);
+
+        //same content, but not the contents of a staged packet
+        assertEquals(2, SnapshotStaging.take(payloads[1].clone()).seq);
+        assertEquals(unstaged + 2, SnapshotStaging.unstagedFrames);
+    }
+
+    @Test
+    void otherPackets(){
+        byte[] payload = payload(1, 4);
+        ClientBinaryPacketUnreliableCallPacket packet = new ClientBinaryPacketUnreliableCallPacket();
+        packet.type = "other";
+        packet.contents = payload;
+        SnapshotStaging.stage(packet);
+
+        long unstaged = SnapshotStaging.unstagedFrames;
+        SnapshotStaging.take(payload);
+        assertEquals(unstaged + 1, SnapshotStaging.unstagedFrames);
+    }
+
+    @Test
+    void malformed(){
+        byte[] payload = payload(1, 4, 4);
+        //second record claims to be longer than the packet
+        payload[6 + 11 + 5] = 0x7f;
+        receive(payload);
+
+        long staged = SnapshotStaging.stagedFrames.get();
+        assertNull(SnapshotStaging.take(payload));
+        assertEquals(staged, SnapshotStaging.stagedFrames.get());
+    }
+
+    /** Stages a packet like the packet serializer on the network thread, once it has read it. */
+    static void receive(byte[] payload){
+        ClientBinaryPacketUnreliableCallPacket packet = new ClientBinaryPacketUnreliableCallPacket();
+        packet.type = DeltaSnapshot.dataPacket;
+        packet.contents = payload;
+        SnapshotStaging.stage(packet);
+    }
+
+    /** A delta snapshot with records of these lengths, for entities 100, 101... */
+    static byte[] payload(int seq, int... lengths){
+        int size = 6;
+        for(int length : lengths) size += 7 + length;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(seq).putShort((short)lengths.length);
+        for(int i = 0; i < lengths.length; i++){
+            buffer.putInt(100 + i).put((byte)type).putShort((short)lengths[i]);
+            for(int j = 0; j < lengths[i]; j++){
+                buffer.put((byte)i);
+            }
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,86 @@
+import arc.*;
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.content.*;
+import mindustry.entities.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+import mindustry.type.*;
+import mindustryX.events.*;
+import org.junit.jupiter.api.*;
+
+import static mindustry.Vars.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks that batched splash damage deals the same damage as applying every explosion immediately. */
+public class SplashBatchTests{
+    static final float startHealth = 100000f;
+    static final IntIntMap healthEvents = new IntIntMap();
+
+    @BeforeAll
+    static void init(){
+        ApplicationTests.launchApplication(false);
+        Time.setDeltaProvider(() -> 1f);
+        Events.on(HealthChangedEvent.class, e -> {
+            if(e.entity instanceof Unit unit) healthEvents.increment(unit.id);
+        });
+    }
+
+    @AfterEach
+    void resetConfig(){
+        SplashBatch.enabled.set(false);
+    }
+
+    @Test
+    void sameAsImmediate(){
+        Seq<Unit> immediate = run(false);
+        IntIntMap immediateEvents = new IntIntMap(healthEvents);
+        Seq<Unit> batched = run(true);
+
+        assertEquals(immediate.size, batched.size);
+        boolean repeated = false;
+        for(int i = 0; i < immediate.size; i++){
+            Unit a = immediate.get(i), b = batched.get(i);
+            assertEquals(startHealth - a.health, startHealth - b.health, 0.05f, "health of unit " + i);
+            assertEquals(a.shield, b.shield, 0.01f, "shield of unit " + i);
+            assertEquals(a.vel.x, b.vel.x, 0.001f);
+            assertEquals(a.vel.y, b.vel.y, 0.001f);
+            assertTrue(healthEvents.get(b.id) <= 1, "one health event per unit");
+            repeated |= immediateEvents.get(a.id) > 1;
+        }
+        assertTrue(repeated, "explosions overlap");
+    }
+
+    static Seq<Unit> run(boolean batch){
+        logic.reset();
+        Tiles tiles = world.resize(64, 64);
+        world.beginMapLoad();
+        tiles.fill();
+        world.endMapLoad();
+
+        Rand rand = new Rand(3);
+        Seq<Unit> units = new Seq<>();
+        UnitType[] types = {UnitTypes.dagger, UnitTypes.mace, UnitTypes.flare};
+        for(int i = 0; i < 200; i++){
+            Unit unit = types[i % types.length].create(i % 2 == 0 ? Team.sharded : Team.crux);
+            unit.set(rand.random(64 * tilesize), rand.random(64 * tilesize));
+            unit.maxHealth = startHealth;
+            unit.heal();
+            if(i % 5 == 0) unit.shield = 50f;
+            unit.add();
+            units.add(unit);
+        }
+        state.teams.updateTeamStats();
+        healthEvents.clear();
+
+        SplashBatch.enabled.set(batch);
+        SplashBatch.begin();
+        for(int i = 0; i < 400; i++){
+            Damage.damage(i % 2 == 0 ? Team.sharded : Team.crux, rand.random(64 * tilesize), rand.random(64 * tilesize),
+            rand.random(8f, 80f), rand.random(5f, 60f), false, i % 3 != 0, true, i % 4 == 0, null);
+        }
+        SplashBatch.end();
+        return units;
+    }
+}
@@ -0,0 +1,45 @@
+import arc.util.*;
+import arc.util.io.*;
+import mindustry.gen.*;
+import mindustry.net.*;
+import mindustryX.features.net.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.util.zip.*;
+
+import static mindustry.Vars.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks that world data joined from shared parts reads the same as {@link NetworkIO#writeWorld}. */
+public class WorldDataEncoderTests{
+
+    @BeforeAll
+    static void init(){
+        ApplicationTests.launchApplication(false);
+        Time.setDeltaProvider(() -> 1f);
+    }
+
+    @Test
+    void sameAsWriteWorld() throws Exception{
+        logic.reset();
+        world.loadMap(ApplicationTests.testMap);
+
+        long shared = WorldDataEncoder.sharedMaps;
+        for(int i = 0; i < 3; i++){
+            Player player = Player.create();
+            player.id = 100 + i;
+            player.name = "player" + i;
+
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            NetworkIO.writeWorld(player, expected);
+
+            byte[] encoded = WorldDataEncoder.encode(player).get();
+            //reading to the end also checks the combined checksum
+            byte[] actual = Streams.copyBytes(new InflaterInputStream(new ByteArrayInputStream(encoded)));
+            assertArrayEquals(expected.toByteArray(), actual);
+        }
+        //the map part was written once
+        assertEquals(shared + 2, WorldDataEncoder.sharedMaps);
+    }
+}
@@ -0,0 +1,76 @@
+package power;
+
+import arc.math.*;
+import arc.struct.*;
+import mindustry.gen.*;
+import mindustry.world.*;
+import mindustry.world.blocks.power.PowerGenerator.*;
+import mindustry.world.blocks.power.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks that {@link PowerGraph#updateAll(Seq)} gives exactly the same results as updating each graph in turn. */
+public class PowerGraphParallelTests extends PowerTestFixture{
+    static final int graphCount = 300, ticks = 10_000;
+
+    @Test
+    void sameAsSerial(){
+        Seq<PowerGraph> serial = createGraphs(), parallel = createGraphs();
+
+        for(int tick = 0; tick < ticks; tick++){
+            step(serial, tick);
+            step(parallel, tick);
+
+            for(PowerGraph graph : serial){
+                graph.update();
+            }
+            PowerGraph.updateAll(parallel);
+
+            for(int i = 0; i < graphCount; i++){
+                Seq<Building> a = serial.get(i).all, b = parallel.get(i).all;
+                for(int j = 0; j < a.size; j++){
+                    //exact, not within an epsilon
+                    assertEquals(a.get(j).power.status, b.get(j).power.status, 0f, "status of building " + j + " in graph " + i + " at tick " + tick);
+                }
+                assertEquals(serial.get(i).getLastPowerStored(), parallel.get(i).getLastPowerStored(), 0f);
+            }
+        }
+    }
+
+    /** The same seed always creates the same graphs, with a mix of generators, batteries and consumers. */
+    static Seq<PowerGraph> createGraphs(){
+        Rand rand = new Rand(42);
+        Seq<PowerGraph> graphs = new Seq<>();
+        for(int i = 0; i < graphCount; i++){
+            PowerGraph graph = new PowerGraph();
+            int size = rand.random(1, 12);
+            for(int j = 0; j < size; j++){
+                Block block = switch(rand.random(2)){
+                    case 0 -> createFakeProducerBlock(rand.random(0.1f, 2f));
+                    case 1 -> createFakeBattery(rand.random(10f, 500f));
+                    default -> createFakeDirectConsumer(rand.random(0.1f, 2f));
+                };
+                Tile tile = createFakeTile(i, j, block);
+                graph.add(tile.build);
+            }
+            graphs.add(graph);
+        }
+        return graphs;
+    }
+
+    /** Changes production and consumption deterministically, so batteries charge and discharge. */
+    static void step(Seq<PowerGraph> graphs, int tick){
+        for(int i = 0; i < graphs.size; i++){
+            Seq<Building> all = graphs.get(i).all;
+            for(int j = 0; j < all.size; j++){
+                Building build = all.get(j);
+                if(build instanceof GeneratorBuild gen){
+                    gen.productionEfficiency = Mathf.absin(tick + i * 7 + j, 40f, 1f);
+                }else{
+                    build.shouldConsumePower = ((tick / 50) + i + j) % 3 != 0;
+                }
+            }
+        }
+    }
+}